@@ -13,6 +13,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableFeignClients       // Enable Feign clients for inter-service calls
 @EnableCaching            // Enable caching
 @EnableAsync(proxyTargetClass = true)
+@EnableScheduling         // Enable background jobs
 public class UserServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,264 @@
+package com.yushan.user_service.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.yushan.user_service.client.dto.ChapterInfoDTO;
+import com.yushan.user_service.client.dto.NovelInfoDTO;
+import com.yushan.user_service.dto.ApiResponse;
+import com.yushan.user_service.enums.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Caching Content Service Client
+ *
+ * Read-through cache of novel and chapter metadata in front of the content-service Feign
+ * client. Entries are bounded in number and expire per entry: found novels and chapters
+ * after their own TTL, IDs the content service did not return after a shorter negative
+ * TTL. Batch reads only send the IDs missing from the cache. Fallback responses from the
+ * circuit breaker never produce negative entries, so an outage does not poison the cache.
+ *
+ * Every real answer is also written to the {@link ContentSnapshotStore}. When the content
+ * service is unavailable, missing entries are served from that last-known-good copy and
+ * the response carries {@link #STALE_MESSAGE}. Stale entries are cached for a few seconds
+ * only, which keeps requests off the breaker while it is half-open without hiding the
+ * recovery for long.
+ *
+ * Misses go to the content service through {@link CoalescingContentServiceClient}. Novel
+ * status changes are seen after at most the novel TTL.
+ */
+@Component(CachingContentServiceClient.BEAN_NAME)
+public class CachingContentServiceClient implements ContentServiceClient {
+
+    public static final String BEAN_NAME = "cachingContentServiceClient";
+
+    /**
+     * Message of responses holding last-known-good metadata
+     */
+    public static final String STALE_MESSAGE = "Stale";
+
+    private final Tier<NovelInfoDTO> novels;
+
+    private final Tier<ChapterInfoDTO> chapters;
+
+    private final Counter negativeHits;
+
+    private final Counter staleServed;
+
+    private final Counter remoteIds;
+
+    @Autowired
+    public CachingContentServiceClient(@Qualifier(CoalescingContentServiceClient.BEAN_NAME) ContentServiceClient delegate,
+                                       ContentSnapshotStore snapshots,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${content.cache.novel.ttl-seconds:300}") long novelTtlSeconds,
+                                       @Value("${content.cache.chapter.ttl-seconds:3600}") long chapterTtlSeconds,
+                                       @Value("${content.cache.negative-ttl-seconds:30}") long negativeTtlSeconds,
+                                       @Value("${content.cache.stale-ttl-seconds:5}") long staleTtlSeconds,
+                                       @Value("${content.cache.max-size:100000}") long maxSize) {
+        this(delegate, snapshots, meterRegistry, novelTtlSeconds, chapterTtlSeconds, negativeTtlSeconds, staleTtlSeconds,
+                maxSize, Ticker.systemTicker());
+    }
+
+    CachingContentServiceClient(ContentServiceClient delegate, ContentSnapshotStore snapshots, MeterRegistry meterRegistry,
+                                long novelTtlSeconds, long chapterTtlSeconds, long negativeTtlSeconds, long staleTtlSeconds,
+                                long maxSize, Ticker ticker) {
+        Cache<Integer, Entry<NovelInfoDTO>> novelCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                .expireAfter(new EntryExpiry<NovelInfoDTO>(novelTtlSeconds, negativeTtlSeconds, staleTtlSeconds))
+                .recordStats()
+                .build();
+        Cache<Integer, Entry<ChapterInfoDTO>> chapterCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                .expireAfter(new EntryExpiry<ChapterInfoDTO>(chapterTtlSeconds, negativeTtlSeconds, staleTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, novelCache, "content.novels");
+        CaffeineCacheMetrics.monitor(meterRegistry, chapterCache, "content.chapters");
+        this.novels = new Tier<>(novelCache, delegate::getNovelsByIds, NovelInfoDTO::id,
+                snapshots::saveNovels, snapshots::findNovels);
+        this.chapters = new Tier<>(chapterCache, delegate::getChaptersByIds, ChapterInfoDTO::id,
+                snapshots::saveChapters, snapshots::findChapters);
+        this.negativeHits = Counter.builder("content.cache.negative.hits").register(meterRegistry);
+        this.staleServed = Counter.builder("content.cache.stale.served").register(meterRegistry);
+        this.remoteIds = Counter.builder("content.cache.remote.ids").register(meterRegistry);
+    }
+
+    @Override
+    public ApiResponse<List<NovelInfoDTO>> getNovelsByIds(List<Integer> novelIds) {
+        return novels.getAll(novelIds);
+    }
+
+    @Override
+    public ApiResponse<List<ChapterInfoDTO>> getChaptersByIds(List<Integer> chapterIds) {
+        return chapters.getAll(chapterIds);
+    }
+
+    @Override
+    public ApiResponse<NovelInfoDTO> getNovelById(Integer novelId) {
+        ApiResponse<List<NovelInfoDTO>> response = novels.getAll(List.of(novelId));
+        List<NovelInfoDTO> found = response.getData();
+        return new ApiResponse<>(response.getCode(), response.getMessage(), found.isEmpty() ? null : found.get(0));
+    }
+
+    /**
+     * Check whether a response holds last-known-good metadata
+     *
+     * @param response Response of this client
+     * @return true if any item in it is stale
+     */
+    public static boolean isStale(ApiResponse<?> response) {
+        return response != null && STALE_MESSAGE.equals(response.getMessage());
+    }
+
+    private static boolean isAuthoritative(ApiResponse<?> response) {
+        return response != null
+                && response.getCode() == ErrorCode.SUCCESS.getCode()
+                && !ContentServiceFallback.MESSAGE.equals(response.getMessage());
+    }
+
+    /**
+     * Cache, remote loader and snapshot of one item type
+     */
+    private final class Tier<T> {
+
+        private final Cache<Integer, Entry<T>> cache;
+
+        private final Function<List<Integer>, ApiResponse<List<T>>> loader;
+
+        private final Function<T, Integer> idOf;
+
+        private final Consumer<Collection<T>> snapshot;
+
+        private final Function<Collection<Integer>, Map<Integer, T>> lastKnown;
+
+        private Tier(Cache<Integer, Entry<T>> cache,
+                     Function<List<Integer>, ApiResponse<List<T>>> loader,
+                     Function<T, Integer> idOf,
+                     Consumer<Collection<T>> snapshot,
+                     Function<Collection<Integer>, Map<Integer, T>> lastKnown) {
+            this.cache = cache;
+            this.loader = loader;
+            this.idOf = idOf;
+            this.snapshot = snapshot;
+            this.lastKnown = lastKnown;
+        }
+
+        private ApiResponse<List<T>> getAll(List<Integer> ids) {
+            if (ids == null || ids.isEmpty()) {
+                return ApiResponse.success(Collections.emptyList());
+            }
+            Map<Integer, Entry<T>> found = new HashMap<>(cache.getAllPresent(ids));
+            List<Integer> missing = new ArrayList<>(new LinkedHashSet<>(ids));
+            missing.removeAll(found.keySet());
+            found.values().forEach(entry -> {
+                if (entry.value() == null) {
+                    negativeHits.increment();
+                }
+            });
+
+            ApiResponse<List<T>> response = null;
+            if (!missing.isEmpty()) {
+                remoteIds.increment(missing.size());
+                response = loader.apply(missing);
+                List<T> loaded = response != null && response.getData() != null ? response.getData() : List.of();
+                Map<Integer, Entry<T>> fromRemote = new HashMap<>();
+                for (T item : loaded) {
+                    fromRemote.put(idOf.apply(item), new Entry<>(item, false));
+                }
+                if (isAuthoritative(response)) {
+                    snapshot.accept(loaded);
+                    // only a real answer proves an ID does not exist
+                    for (Integer id : missing) {
+                        fromRemote.putIfAbsent(id, new Entry<>(null, false));
+                    }
+                } else {
+                    List<Integer> unanswered = new ArrayList<>(missing);
+                    unanswered.removeAll(fromRemote.keySet());
+                    lastKnown.apply(unanswered).forEach((id, item) -> fromRemote.put(id, new Entry<>(item, true)));
+                }
+                cache.putAll(fromRemote);
+                found.putAll(fromRemote);
+            }
+
+            List<T> result = new ArrayList<>();
+            int stale = 0;
+            for (Integer id : new LinkedHashSet<>(ids)) {
+                Entry<T> entry = found.get(id);
+                if (entry != null && entry.value() != null) {
+                    result.add(entry.value());
+                    if (entry.stale()) {
+                        stale++;
+                    }
+                }
+            }
+            if (stale > 0) {
+                staleServed.increment(stale);
+                return ApiResponse.success(STALE_MESSAGE, result);
+            }
+            if (response != null && !isAuthoritative(response)) {
+                return ApiResponse.success(response.getMessage(), result);
+            }
+            return ApiResponse.success(result);
+        }
+    }
+
+    /**
+     * Cached lookup result; a null value records that the ID does not exist, stale marks a
+     * value served from the snapshot
+     */
+    private record Entry<T>(T value, boolean stale) {
+    }
+
+    private static final class EntryExpiry<T> implements Expiry<Integer, Entry<T>> {
+
+        private final long ttlNanos;
+
+        private final long negativeTtlNanos;
+
+        private final long staleTtlNanos;
+
+        private EntryExpiry(long ttlSeconds, long negativeTtlSeconds, long staleTtlSeconds) {
+            this.ttlNanos = ttlSeconds * 1_000_000_000L;
+            this.negativeTtlNanos = negativeTtlSeconds * 1_000_000_000L;
+            this.staleTtlNanos = staleTtlSeconds * 1_000_000_000L;
+        }
+
+        @Override
+        public long expireAfterCreate(Integer key, Entry<T> entry, long currentTime) {
+            if (entry.stale()) {
+                return staleTtlNanos;
+            }
+            return entry.value() != null ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Integer key, Entry<T> entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Integer key, Entry<T> entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
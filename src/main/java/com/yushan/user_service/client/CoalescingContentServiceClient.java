@@ -0,0 +1,219 @@
+package com.yushan.user_service.client;
+
+import com.yushan.user_service.client.dto.ChapterInfoDTO;
+import com.yushan.user_service.client.dto.NovelInfoDTO;
+import com.yushan.user_service.dto.ApiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalescing Content Service Client
+ *
+ * Micro-batches lookups from concurrent callers into one content-service call. The
+ * first lookup of a window schedules a flush after window-ms; lookups arriving before
+ * it join the batch, which is flushed early once it holds max-ids distinct IDs. The
+ * batch is sent deduplicated and every caller gets back only the items it asked for,
+ * with the message of the shared response so fallbacks stay recognisable. Single novel
+ * lookups go through the novel batch. A window of 0 disables batching.
+ *
+ * Sits between {@link CachingContentServiceClient} and the Feign client, so only cache
+ * misses are batched.
+ */
+@Component(CoalescingContentServiceClient.BEAN_NAME)
+public class CoalescingContentServiceClient implements ContentServiceClient {
+
+    public static final String BEAN_NAME = "coalescingContentServiceClient";
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService callers;
+
+    private final Batcher<NovelInfoDTO> novels;
+
+    private final Batcher<ChapterInfoDTO> chapters;
+
+    public CoalescingContentServiceClient(ContentServiceClient delegate,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${content.batch.window-ms:3}") long windowMs,
+                                          @Value("${content.batch.max-ids:200}") int maxIds) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.callers = Executors.newVirtualThreadPerTaskExecutor();
+        this.novels = new Batcher<>("novels", delegate::getNovelsByIds, NovelInfoDTO::id, windowMs, maxIds, meterRegistry);
+        this.chapters = new Batcher<>("chapters", delegate::getChaptersByIds, ChapterInfoDTO::id, windowMs, maxIds, meterRegistry);
+    }
+
+    @Override
+    public ApiResponse<List<NovelInfoDTO>> getNovelsByIds(List<Integer> novelIds) {
+        return novels.load(novelIds);
+    }
+
+    @Override
+    public ApiResponse<List<ChapterInfoDTO>> getChaptersByIds(List<Integer> chapterIds) {
+        return chapters.load(chapterIds);
+    }
+
+    @Override
+    public ApiResponse<NovelInfoDTO> getNovelById(Integer novelId) {
+        ApiResponse<List<NovelInfoDTO>> response = novels.load(List.of(novelId));
+        if (response == null) {
+            return null;
+        }
+        List<NovelInfoDTO> found = response.getData();
+        return new ApiResponse<>(response.getCode(), response.getMessage(),
+                found == null || found.isEmpty() ? null : found.get(0));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        callers.shutdown();
+    }
+
+    /**
+     * Pending lookups of one item type
+     */
+    private final class Batcher<T> {
+
+        private final Function<List<Integer>, ApiResponse<List<T>>> loader;
+
+        private final Function<T, Integer> idOf;
+
+        private final long windowMs;
+
+        private final int maxIds;
+
+        private final DistributionSummary batchIds;
+
+        private final Counter coalesced;
+
+        private List<Pending<T>> pending = new ArrayList<>();
+
+        private Set<Integer> pendingIds = new LinkedHashSet<>();
+
+        private boolean flushScheduled;
+
+        private Batcher(String type, Function<List<Integer>, ApiResponse<List<T>>> loader, Function<T, Integer> idOf,
+                        long windowMs, int maxIds, MeterRegistry meterRegistry) {
+            this.loader = loader;
+            this.idOf = idOf;
+            this.windowMs = windowMs;
+            this.maxIds = maxIds;
+            this.batchIds = DistributionSummary.builder("content.batch.ids").tag("type", type).register(meterRegistry);
+            this.coalesced = Counter.builder("content.batch.lookups").tag("type", type).register(meterRegistry);
+        }
+
+        private ApiResponse<List<T>> load(List<Integer> ids) {
+            if (ids == null || ids.isEmpty()) {
+                return ApiResponse.success(Collections.emptyList());
+            }
+            if (windowMs <= 0) {
+                return loader.apply(ids);
+            }
+            Pending<T> lookup = new Pending<>(ids, new CompletableFuture<>());
+            boolean full;
+            synchronized (this) {
+                pending.add(lookup);
+                pendingIds.addAll(ids);
+                full = pendingIds.size() >= maxIds;
+                if (!full && !flushScheduled) {
+                    flushScheduled = true;
+                    scheduler.schedule(this::onTimer, windowMs, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (full) {
+                flush();
+            }
+            try {
+                return lookup.result().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        private void onTimer() {
+            synchronized (this) {
+                flushScheduled = false;
+            }
+            flush();
+        }
+
+        private void flush() {
+            List<Pending<T>> batch;
+            List<Integer> ids;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                ids = new ArrayList<>(pendingIds);
+                pending = new ArrayList<>();
+                pendingIds = new LinkedHashSet<>();
+            }
+            batchIds.record(ids.size());
+            coalesced.increment(batch.size());
+            try {
+                callers.execute(() -> dispatch(ids, batch));
+            } catch (RejectedExecutionException e) {
+                batch.forEach(lookup -> lookup.result().completeExceptionally(e));
+            }
+        }
+
+        private void dispatch(List<Integer> ids, List<Pending<T>> batch) {
+            ApiResponse<List<T>> response;
+            try {
+                response = loader.apply(ids);
+            } catch (RuntimeException e) {
+                batch.forEach(lookup -> lookup.result().completeExceptionally(e));
+                return;
+            }
+            Map<Integer, T> byId = new HashMap<>();
+            if (response != null && response.getData() != null) {
+                for (T item : response.getData()) {
+                    byId.put(idOf.apply(item), item);
+                }
+            }
+            for (Pending<T> lookup : batch) {
+                List<T> items = new ArrayList<>();
+                for (Integer id : new LinkedHashSet<>(lookup.ids())) {
+                    T item = byId.get(id);
+                    if (item != null) {
+                        items.add(item);
+                    }
+                }
+                lookup.result().complete(response != null
+                        ? new ApiResponse<>(response.getCode(), response.getMessage(), items)
+                        : null);
+            }
+        }
+    }
+
+    private record Pending<T>(List<Integer> ids, CompletableFuture<ApiResponse<List<T>>> result) {
+    }
+}
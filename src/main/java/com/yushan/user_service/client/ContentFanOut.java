@@ -0,0 +1,92 @@
+package com.yushan.user_service.client;
+
+import com.yushan.user_service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Content Fan-Out
+ *
+ * Runs independent content-service lookups of one request in parallel on virtual
+ * threads, so the request waits for the slowest lookup instead of their sum. All
+ * lookups share one deadline; when it passes, or one lookup fails, the others are
+ * cancelled and the caller gets a {@link ServiceUnavailableException} or the failure.
+ */
+@Component
+public class ContentFanOut {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final long deadlineNanos;
+
+    private final Counter deadlineExceeded;
+
+    public ContentFanOut(MeterRegistry meterRegistry,
+                         @Value("${content.fanout.deadline-ms:3000}") long deadlineMs) {
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        this.deadlineExceeded = Counter.builder("content.fanout.deadline.exceeded").register(meterRegistry);
+    }
+
+    /**
+     * Run two lookups in parallel
+     *
+     * @param first First lookup
+     * @param second Second lookup
+     * @return both results
+     * @throws ServiceUnavailableException if they do not finish before the deadline
+     */
+    public <A, B> Both<A, B> both(Supplier<A> first, Supplier<B> second) {
+        long deadline = System.nanoTime() + deadlineNanos;
+        Future<A> firstResult = executor.submit(first::get);
+        Future<B> secondResult = executor.submit(second::get);
+        try {
+            A a = await(firstResult, deadline);
+            return new Both<>(a, await(secondResult, deadline));
+        } finally {
+            // no-op for finished lookups, interrupts the other one on failure or timeout
+            firstResult.cancel(true);
+            secondResult.cancel(true);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T await(Future<T> result, long deadline) {
+        try {
+            return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            deadlineExceeded.increment();
+            throw new ServiceUnavailableException("Content service did not answer in time", RETRY_AFTER_SECONDS, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for the content service", RETRY_AFTER_SECONDS, e);
+        }
+    }
+
+    /**
+     * Results of two parallel lookups
+     */
+    public record Both<A, B>(A first, B second) {
+    }
+}
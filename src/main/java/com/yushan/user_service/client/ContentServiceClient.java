@@ -39,25 +39,30 @@ public interface ContentServiceClient {
     class ContentServiceFallback implements ContentServiceClient {
         private static final Logger logger = LoggerFactory.getLogger(ContentServiceFallback.class);
 
+        /**
+         * Message of fallback responses, so callers can tell them from real empty results
+         */
+        public static final String MESSAGE = "Content service unavailable";
+
         @Override
         public ApiResponse<List<NovelInfoDTO>> getNovelsByIds(List<Integer> novelIds) {
             logger.error("Circuit breaker opened for content-service. Falling back for getNovelsByIds request with {} ids.", novelIds.size());
             // return an empty list as a fallback
-            return ApiResponse.success(Collections.emptyList());
+            return ApiResponse.success(MESSAGE, Collections.emptyList());
         }
 
         @Override
         public ApiResponse<List<ChapterInfoDTO>> getChaptersByIds(List<Integer> chapterIds) {
             logger.error("Circuit breaker opened for content-service. Falling back for getChaptersByIds request with {} ids.", chapterIds.size());
             // return an empty list as a fallback
-            return ApiResponse.success(Collections.emptyList());
+            return ApiResponse.success(MESSAGE, Collections.emptyList());
         }
 
         @Override
         public ApiResponse<NovelInfoDTO> getNovelById(@RequestParam("novelId") Integer novelId) {
             logger.error("Circuit breaker opened for content-service. Falling back for getNovelById request with {} id.", novelId);
             // return an empty list as a fallback
-            return ApiResponse.success(null);
+            return ApiResponse.success(MESSAGE, null);
         }
     }
 }
\ No newline at end of file
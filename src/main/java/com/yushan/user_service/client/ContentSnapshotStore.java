@@ -0,0 +1,154 @@
+package com.yushan.user_service.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yushan.user_service.client.dto.ChapterInfoDTO;
+import com.yushan.user_service.client.dto.NovelInfoDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Content Snapshot Store
+ *
+ * Last-known-good copy of novel and chapter metadata, kept on local disk in two
+ * size-bounded {@link SlotFile}s so it survives restarts. Every answer from the content
+ * service is written here; when the content service is unavailable the metadata cache
+ * serves missing entries from it and marks them stale. If the files cannot be opened
+ * the store stays empty and lookups find nothing.
+ */
+@Slf4j
+@Component
+public class ContentSnapshotStore {
+
+    private final ObjectMapper objectMapper;
+
+    private final Path directory;
+
+    private final int novelSlots;
+
+    private final int chapterSlots;
+
+    private final Counter oversized;
+
+    private volatile SlotFile novels;
+
+    private volatile SlotFile chapters;
+
+    public ContentSnapshotStore(ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${content.snapshot.path:data/content-snapshot}") String directory,
+                                @Value("${content.snapshot.novel-slots:65536}") int novelSlots,
+                                @Value("${content.snapshot.chapter-slots:262144}") int chapterSlots) {
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.novelSlots = novelSlots;
+        this.chapterSlots = chapterSlots;
+        this.oversized = Counter.builder("content.snapshot.oversized").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void open() {
+        try {
+            novels = new SlotFile(directory.resolve("novels.slots"), novelSlots, 512);
+            chapters = new SlotFile(directory.resolve("chapters.slots"), chapterSlots, 96);
+        } catch (IOException e) {
+            log.error("Cannot open content snapshot in {}, stale fallback is disabled", directory, e);
+        }
+    }
+
+    /**
+     * Remember novels returned by the content service
+     *
+     * @param found Novels
+     */
+    public void saveNovels(Collection<NovelInfoDTO> found) {
+        save(novels, found, NovelInfoDTO::id);
+    }
+
+    /**
+     * Remember chapters returned by the content service
+     *
+     * @param found Chapters
+     */
+    public void saveChapters(Collection<ChapterInfoDTO> found) {
+        save(chapters, found, ChapterInfoDTO::id);
+    }
+
+    /**
+     * Get the last known metadata of novels
+     *
+     * @param novelIds Novel IDs
+     * @return novels found, by ID
+     */
+    public Map<Integer, NovelInfoDTO> findNovels(Collection<Integer> novelIds) {
+        return find(novels, novelIds, NovelInfoDTO.class);
+    }
+
+    /**
+     * Get the last known metadata of chapters
+     *
+     * @param chapterIds Chapter IDs
+     * @return chapters found, by ID
+     */
+    public Map<Integer, ChapterInfoDTO> findChapters(Collection<Integer> chapterIds) {
+        return find(chapters, chapterIds, ChapterInfoDTO.class);
+    }
+
+    @PreDestroy
+    public void close() {
+        for (SlotFile file : new SlotFile[]{novels, chapters}) {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close content snapshot in {}", directory, e);
+                }
+            }
+        }
+    }
+
+    private <T> void save(SlotFile file, Collection<T> items, Function<T, Integer> idOf) {
+        if (file == null) {
+            return;
+        }
+        for (T item : items) {
+            try {
+                if (!file.put(idOf.apply(item), objectMapper.writeValueAsBytes(item))) {
+                    oversized.increment();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to snapshot {} {}", item.getClass().getSimpleName(), idOf.apply(item), e);
+            }
+        }
+    }
+
+    private <T> Map<Integer, T> find(SlotFile file, Collection<Integer> ids, Class<T> type) {
+        Map<Integer, T> found = new HashMap<>();
+        if (file == null) {
+            return found;
+        }
+        for (Integer id : ids) {
+            byte[] value = file.get(id);
+            if (value == null) {
+                continue;
+            }
+            try {
+                found.put(id, objectMapper.readValue(value, type));
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable snapshot of {} {}", type.getSimpleName(), id);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,132 @@
+package com.yushan.user_service.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size, memory-mapped table of byte values keyed by int
+ *
+ * Layout: an 8-byte header holding a magic number and the slot size, followed by equal
+ * slots of [int key][int length][int crc32][value]. A key is stored in the slot its hash
+ * picks and replaces whatever key was there, so the file never grows and the most
+ * recently written keys win. A slot whose checksum does not match, e.g. after a crash
+ * mid-write, reads as empty. A file written with another slot size is cleared on open.
+ */
+@Slf4j
+public class SlotFile implements Closeable {
+
+    private static final int MAGIC = 0x534C4F54;
+
+    private static final int HEADER_BYTES = 8;
+
+    private static final int SLOT_HEADER_BYTES = 12;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int slots;
+
+    private final int slotBytes;
+
+    /**
+     * Open or create a slot file
+     *
+     * @param path Slot file
+     * @param slots Number of slots
+     * @param slotBytes Size of a slot in bytes, including its 12-byte header
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public SlotFile(Path path, int slots, int slotBytes) throws IOException {
+        if (slotBytes <= SLOT_HEADER_BYTES) {
+            throw new IllegalArgumentException("slotBytes must be larger than " + SLOT_HEADER_BYTES);
+        }
+        this.slots = slots;
+        this.slotBytes = slotBytes;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        long capacity = HEADER_BYTES + (long) slots * slotBytes;
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("slot file would exceed 2 GB: " + capacity + " bytes");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() != capacity) {
+            channel.truncate(0);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != slotBytes) {
+            log.info("Initialising slot file {} with {} slots of {} bytes", path, slots, slotBytes);
+            for (int offset = HEADER_BYTES; offset < capacity; offset += slotBytes) {
+                buffer.putInt(offset + 4, 0);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, slotBytes);
+        }
+    }
+
+    /**
+     * Store a value, replacing the key sharing its slot
+     *
+     * @param key Key
+     * @param value Value, at most {@link #maxValueBytes()} long
+     * @return false if the value does not fit in a slot
+     */
+    public synchronized boolean put(int key, byte[] value) {
+        if (value.length == 0 || value.length > maxValueBytes()) {
+            return false;
+        }
+        int offset = offset(key);
+        CRC32 crc = new CRC32();
+        crc.update(value);
+        buffer.putInt(offset, key);
+        buffer.putInt(offset + 4, value.length);
+        buffer.putInt(offset + 8, (int) crc.getValue());
+        buffer.put(offset + SLOT_HEADER_BYTES, value);
+        return true;
+    }
+
+    /**
+     * Read a value
+     *
+     * @param key Key
+     * @return the value, or null if the key is not stored
+     */
+    public synchronized byte[] get(int key) {
+        int offset = offset(key);
+        int length = buffer.getInt(offset + 4);
+        if (length <= 0 || length > maxValueBytes() || buffer.getInt(offset) != key) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(offset + SLOT_HEADER_BYTES, value);
+        CRC32 crc = new CRC32();
+        crc.update(value);
+        return (int) crc.getValue() == buffer.getInt(offset + 8) ? value : null;
+    }
+
+    public int maxValueBytes() {
+        return slotBytes - SLOT_HEADER_BYTES;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private int offset(int key) {
+        // spread sequential ids over the table
+        int h = key * 0x9E3779B9;
+        h ^= h >>> 16;
+        return HEADER_BYTES + Math.floorMod(h, slots) * slotBytes;
+    }
+}
@@ -1,16 +1,22 @@
 package com.yushan.user_service.config;
 
+import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.SqlSessionFactoryBean;
 import org.mybatis.spring.SqlSessionTemplate;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import javax.sql.DataSource;
+import java.util.Properties;
 
+@Slf4j
 @Configuration
 @MapperScan("com.yushan.user_service.dao")
 public class DatabaseConfig {
@@ -18,6 +24,16 @@ public class DatabaseConfig {
     @Autowired
     private DataSource dataSource;
 
+    // entries that still need a user_id: rows without one whose library exists, which
+    // NovelLibraryUserIdBackfill fills; served by the partial index on rows without user_id
+    private static final String USER_ID_BACKFILL_PENDING = "select exists (select 1 from novel_library nl "
+            + "join library l on l.id = nl.library_id where nl.user_id is null)";
+
+    // read library entries by novel_library.user_id; fixed at startup, and only taken up
+    // once its backfill has completed, so turn it on and restart after the backfill
+    @Value("${library.user-id-reads.enabled:false}")
+    private boolean libraryUserIdReadsEnabled;
+
     @Bean
     public SqlSessionFactory sqlSessionFactory() throws Exception {
         SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
@@ -26,12 +42,33 @@ public class DatabaseConfig {
              new PathMatchingResourcePatternResolver().getResources("classpath:/mapper/**Mapper.xml")
          );
         factoryBean.setTypeAliasesPackage("com.yushan.user_service.entity");
+        Properties properties = new Properties();
+        properties.setProperty("libraryUserIdReads", String.valueOf(libraryUserIdReads()));
+        factoryBean.setConfigurationProperties(properties);
         factoryBean.setConfigLocation(
             new PathMatchingResourcePatternResolver().getResource("classpath:config/mybatis-config.xml")
         );
         return factoryBean.getObject();
     }
 
+    private boolean libraryUserIdReads() {
+        if (!libraryUserIdReadsEnabled) {
+            return false;
+        }
+        try {
+            if (Boolean.TRUE.equals(new JdbcTemplate(dataSource).queryForObject(USER_ID_BACKFILL_PENDING, Boolean.class))) {
+                log.warn("library.user-id-reads.enabled is set but novel_library.user_id is not backfilled yet, "
+                        + "reading library entries through library until a restart after the backfill");
+                return false;
+            }
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Could not check the novel_library.user_id backfill, reading library entries through library: {}",
+                    e.getMessage());
+            return false;
+        }
+    }
+
     @Bean
     public SqlSessionTemplate sqlSessionTemplate(SqlSessionFactory sqlSessionFactory) {
         return new SqlSessionTemplate(sqlSessionFactory);
@@ -0,0 +1,66 @@
+package com.yushan.user_service.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka consumer configuration for high-volume topics
+ *
+ * The activity and novel status listeners receive raw bytes in batches and commit
+ * offsets manually, after the batch has been written (activity: once the write-behind
+ * buffer has flushed it), so a crash replays only what was not written yet.
+ */
+@Configuration
+public class KafkaConsumerConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${user.activity.listener.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${user.activity.listener.fetch-max-wait-ms:500}")
+    private int fetchMaxWaitMs;
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> activityBatchListenerContainerFactory() {
+        return batchListenerContainerFactory();
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> novelStatusBatchListenerContainerFactory() {
+        return batchListenerContainerFactory();
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<String, byte[]> batchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(byteArrayConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    // not a bean, so Spring Boot keeps its auto-configured consumer factory for other listeners
+    private ConsumerFactory<String, byte[]> byteArrayConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        configProps.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, fetchMaxWaitMs);
+
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+}
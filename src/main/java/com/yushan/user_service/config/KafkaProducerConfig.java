@@ -1,37 +1,126 @@
 package com.yushan.user_service.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Kafka producer profiles. Every event goes through one of the two byte[] templates,
+ * picked per topic by KafkaTemplateRouter; there is no other producer.
+ */
 @Configuration
 public class KafkaProducerConfig {
 
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${kafka.publisher.max-block-ms:2000}")
+    private long publisherMaxBlockMs;
+
+    /**
+     * High-throughput profile for the active topic. Activity events only feed
+     * last-active times and are throttled per user anyway, so losing an occasional
+     * batch is acceptable: leader-only acks, no idempotence, few retries, and long
+     * linger with large lz4-compressed batches.
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> activityProducerFactory(
+            MeterRegistry meterRegistry,
+            @Value("${kafka.producer.activity.acks:1}") String acks,
+            @Value("${kafka.producer.activity.linger-ms:50}") int lingerMs,
+            @Value("${kafka.producer.activity.batch-size:262144}") int batchSize,
+            @Value("${kafka.producer.activity.compression-type:lz4}") String compressionType,
+            @Value("${kafka.producer.activity.retries:2}") int retries) {
+        Map<String, Object> configProps = byteArrayProducerProps();
+        configProps.put(ProducerConfig.ACKS_CONFIG, acks);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        configProps.put(ProducerConfig.RETRIES_CONFIG, retries);
+        configProps.put(ProducerConfig.CLIENT_ID_CONFIG, "user-service-activity");
+
+        return instrumented(new DefaultKafkaProducerFactory<>(configProps), meterRegistry, "activity");
+    }
+
+    /**
+     * Durable profile for user.events and the outbox relay: acks from all in-sync
+     * replicas and idempotence, so retries neither lose nor duplicate records or
+     * reorder them within a partition. Linger is short, these events are rare.
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> userEventsProducerFactory(
+            MeterRegistry meterRegistry,
+            @Value("${kafka.producer.user-events.linger-ms:5}") int lingerMs,
+            @Value("${kafka.producer.user-events.batch-size:65536}") int batchSize,
+            @Value("${kafka.producer.user-events.compression-type:zstd}") String compressionType,
+            @Value("${kafka.producer.user-events.delivery-timeout-ms:120000}") int deliveryTimeoutMs) {
+        Map<String, Object> configProps = byteArrayProducerProps();
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        configProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliveryTimeoutMs);
+        configProps.put(ProducerConfig.CLIENT_ID_CONFIG, "user-service-user-events");
+
+        return instrumented(new DefaultKafkaProducerFactory<>(configProps), meterRegistry, "user-events");
+    }
+
     @Bean
-    public ProducerFactory<String, Object> producerFactory() {
+    public KafkaTemplate<String, byte[]> activityKafkaTemplate(ProducerFactory<String, byte[]> activityProducerFactory) {
+        return instrumented(new KafkaTemplate<>(activityProducerFactory), "activity");
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> userEventsKafkaTemplate(ProducerFactory<String, byte[]> userEventsProducerFactory) {
+        return instrumented(new KafkaTemplate<>(userEventsProducerFactory), "user-events");
+    }
+
+    /**
+     * Settings shared by the profiles, whose values are serialized by EventCodec.
+     * Metadata waits are kept short because unsent events are journaled, not lost.
+     */
+    private Map<String, Object> byteArrayProducerProps() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, publisherMaxBlockMs);
+        return configProps;
+    }
 
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-
-        return new DefaultKafkaProducerFactory<>(configProps);
+    /**
+     * Bind the Kafka client metrics (record send/error rates, batch size, request
+     * latency, ...) to Micrometer as kafka.producer.*, tagged with the profile
+     */
+    private static ProducerFactory<String, byte[]> instrumented(DefaultKafkaProducerFactory<String, byte[]> factory,
+                                                                MeterRegistry meterRegistry, String profile) {
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry, List.of(Tag.of("profile", profile))));
+        return factory;
     }
 
-    @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    /**
+     * Record send latency, from send() to broker ack or failure, as the
+     * spring.kafka.template timer, tagged with the profile
+     */
+    private static KafkaTemplate<String, byte[]> instrumented(KafkaTemplate<String, byte[]> template, String profile) {
+        template.setMicrometerEnabled(true);
+        template.setMicrometerTags(Map.of("profile", profile));
+        return template;
     }
-}
\ No newline at end of file
+}
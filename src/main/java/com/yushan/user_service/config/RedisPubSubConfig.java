@@ -0,0 +1,30 @@
+package com.yushan.user_service.config;
+
+import com.yushan.user_service.service.TokenRevocationService;
+import com.yushan.user_service.service.UserProfileCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis pub/sub listeners used to keep per-node in-memory state in sync
+ * (token revocation filter, profile cache, ...). Disabled with redis.pubsub.enabled=false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "redis.pubsub.enabled", havingValue = "true", matchIfMissing = true)
+public class RedisPubSubConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       TokenRevocationService tokenRevocationService,
+                                                                       UserProfileCache userProfileCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(tokenRevocationService, new ChannelTopic(TokenRevocationService.CHANNEL));
+        container.addMessageListener(userProfileCache, new ChannelTopic(UserProfileCache.CHANNEL));
+        return container;
+    }
+}
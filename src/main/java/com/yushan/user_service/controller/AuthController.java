@@ -3,17 +3,23 @@ package com.yushan.user_service.controller;
 import com.yushan.user_service.dao.UserMapper;
 import com.yushan.user_service.dto.*;
 import com.yushan.user_service.entity.User;
+import com.yushan.user_service.exception.UnauthorizedException;
 import com.yushan.user_service.exception.ValidationException;
+import com.yushan.user_service.security.CustomUserDetailsService;
 import com.yushan.user_service.service.AuthService;
 import com.yushan.user_service.service.MailService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.UUID;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/v1/auth")
@@ -64,15 +70,39 @@ public class AuthController {
     }
 
     /**
-     * Logout a user
+     * Logout a user: revoke the bearer access token and the optional refresh token
+     * @param authorization
+     * @param refreshRequest
      * @return
      */
     @PostMapping("/logout")
-    public ApiResponse<String> logout() {
+    public ApiResponse<String> logout(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                      @RequestBody(required = false) RefreshRequestDTO refreshRequest) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring(7)
+                : null;
+        String refreshToken = refreshRequest != null ? refreshRequest.getRefreshToken() : null;
+        authService.logout(accessToken, refreshToken);
+
         // Clear SecurityContext
         SecurityContextHolder.clearContext();
 
-        return ApiResponse.success("JWT tokens are stateless and cannot be invalidated server-side. Client should discard tokens.");
+        return ApiResponse.success("Logged out successfully");
+    }
+
+    /**
+     * Sign out all devices: revoke every token and refresh token family of the current user
+     * @param authentication
+     * @return
+     */
+    @PostMapping("/logout-all")
+    @PreAuthorize("isAuthenticated()")
+    public ApiResponse<String> logoutAll(Authentication authentication) {
+        authService.logoutAll(getCurrentUserId(authentication));
+
+        SecurityContextHolder.clearContext();
+
+        return ApiResponse.success("Logged out from all devices");
     }
 
     /**
@@ -107,4 +137,24 @@ public class AuthController {
 
         return ApiResponse.success("Verification code sent successfully");
     }
+
+    /**
+     * get current user id from authentication
+     */
+    protected UUID getCurrentUserId(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new UnauthorizedException("Authentication required");
+        }
+
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof CustomUserDetailsService.CustomUserDetails) {
+            String id = ((CustomUserDetailsService.CustomUserDetails) principal).getUserId();
+            if (id != null) {
+                return UUID.fromString(id);
+            } else {
+                throw new ValidationException("User ID not found");
+            }
+        }
+        throw new UnauthorizedException("Invalid authentication");
+    }
 }
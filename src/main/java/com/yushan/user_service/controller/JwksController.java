@@ -0,0 +1,43 @@
+package com.yushan.user_service.controller;
+
+import com.yushan.user_service.security.JwtKeyProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWKS endpoint
+ *
+ * Publishes the public keys used to sign JWTs so the gateway and peer services
+ * can verify tokens locally. The JSON is built once at startup and served from memory.
+ */
+@RestController
+public class JwksController {
+
+    private static final CacheControl JWKS_CACHE_CONTROL = CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic();
+
+    @Autowired
+    private JwtKeyProvider jwtKeyProvider;
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        String etag = jwtKeyProvider.getJwksEtag();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(JWKS_CACHE_CONTROL)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(JWKS_CACHE_CONTROL)
+                .body(jwtKeyProvider.getJwksJson());
+    }
+}
@@ -97,6 +97,31 @@ public class LibraryController {
     }
 
 
+    /**
+     * get user library by cursor, for infinite scroll and deep pages
+     * @param cursor nextCursor of the previous page, empty for the first page
+     * @param size
+     * @param sort
+     * @param order
+     * @param includeTotal also count the whole library
+     * @param authentication
+     * @return
+     */
+    @GetMapping(params = "cursor")
+    public ApiResponse<CursorPageResponseDTO<LibraryResponseDTO>> getUserLibraryByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "10") Integer size,
+            @RequestParam(value = "sort", defaultValue = "createTime") String sort,
+            @RequestParam(value = "order", defaultValue = "desc") String order,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal,
+            Authentication authentication) {
+        //get user id from authentication
+        UUID userId = getCurrentUserId(authentication);
+
+        CursorPageResponseDTO<LibraryResponseDTO> response = libraryService.getUserLibraryByCursor(userId, cursor, size, sort, order, includeTotal);
+        return ApiResponse.success("Novels retrieved successfully", response);
+    }
+
     /**
      * check if novel in library
      * @param novelId
@@ -4,6 +4,7 @@ import com.yushan.user_service.entity.NovelLibrary;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,6 +20,12 @@ public interface NovelLibraryMapper {
 
     NovelLibrary selectByUserIdAndNovelId(@Param("userId") UUID userId, @Param("novelId") Integer novelId);
 
+    Integer insertByUserId(@Param("userId") UUID userId, @Param("novelId") Integer novelId, @Param("progress") Integer progress);
+
+    NovelLibrary updateProgressByUserIdAndNovelId(@Param("userId") UUID userId,
+                                                  @Param("novelId") Integer novelId,
+                                                  @Param("progress") Integer progress);
+
     int updateByPrimaryKeySelective(NovelLibrary record);
 
     int updateByPrimaryKey(NovelLibrary record);
@@ -35,6 +42,41 @@ public interface NovelLibraryMapper {
 
     long countByUserId(@Param("userId") UUID userId, @Param("novelIds") List<Integer> novelIds);
 
+    // get library methods filtered by the novel_status projection
+    List<NovelLibrary> selectByUserIdAndStatusWithPagination(@Param("userId") UUID userId,
+                                                             @Param("status") int status,
+                                                             @Param("offset") int offset,
+                                                             @Param("size") int size,
+                                                             @Param("sort") String sort,
+                                                             @Param("order") String order);
+
+    long countByUserIdAndStatus(@Param("userId") UUID userId, @Param("status") int status);
+
+    // keyset pagination, afterId null for the first page
+    List<NovelLibrary> selectByUserIdAfter(@Param("userId") UUID userId,
+                                           @Param("novelIds") List<Integer> novelIds,
+                                           @Param("afterValue") Timestamp afterValue,
+                                           @Param("afterId") Integer afterId,
+                                           @Param("limit") int limit,
+                                           @Param("sort") String sort,
+                                           @Param("order") String order);
+
+    List<NovelLibrary> selectByUserIdAndStatusAfter(@Param("userId") UUID userId,
+                                                    @Param("status") int status,
+                                                    @Param("afterValue") Timestamp afterValue,
+                                                    @Param("afterId") Integer afterId,
+                                                    @Param("limit") int limit,
+                                                    @Param("sort") String sort,
+                                                    @Param("order") String order);
+
+    // backfill of novel_library.user_id, returns the last id of the batch or null when done
+    Integer backfillUserIds(@Param("afterId") int afterId, @Param("limit") int limit);
+
+    // shared backfill progress, locked for the transaction; null while another instance holds it
+    Integer lockUserIdBackfillCursor();
+
+    int updateUserIdBackfillCursor(@Param("lastId") int lastId);
+
     int deleteByUserIdAndNovelIds(@Param("userId") UUID userId, @Param("novelIds") List<Integer> novelIds);
 
     List<NovelLibrary> selectByUserIdAndNovelIds(@Param("userId") UUID userId,
@@ -0,0 +1,31 @@
+package com.yushan.user_service.dao;
+
+import com.yushan.user_service.entity.NovelStatusEntry;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface NovelStatusMapper {
+    NovelStatusEntry selectByPrimaryKey(Integer novelId);
+
+    /**
+     * Insert or replace statuses, keeping a stored row whose update time is newer;
+     * entries must have distinct novel ids
+     */
+    int upsertNewer(@Param("entries") List<NovelStatusEntry> entries);
+
+    int insertIfAbsent(@Param("entries") List<NovelStatusEntry> entries);
+
+    /**
+     * Distinct novel ids in some library after the given one, in id order
+     */
+    List<Integer> selectLibraryNovelIdsAfter(@Param("afterNovelId") int afterNovelId, @Param("limit") int limit);
+
+    /**
+     * The given novels that have a projected status
+     */
+    List<Integer> selectProjectedNovelIds(@Param("novelIds") Collection<Integer> novelIds);
+}
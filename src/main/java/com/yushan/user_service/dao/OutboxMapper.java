@@ -0,0 +1,22 @@
+package com.yushan.user_service.dao;
+
+import com.yushan.user_service.entity.OutboxEvent;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+@Mapper
+public interface OutboxMapper {
+    int insert(OutboxEvent record);
+
+    /**
+     * Lock the oldest unpublished events, skipping rows another relay holds
+     */
+    List<OutboxEvent> selectUnpublishedForUpdate(@Param("limit") int limit);
+
+    int markPublished(@Param("ids") List<Long> ids, @Param("publishedTime") Date publishedTime);
+
+    int deletePublishedBefore(@Param("cutoff") Date cutoff, @Param("limit") int limit);
+}
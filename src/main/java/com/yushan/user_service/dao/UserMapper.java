@@ -2,28 +2,57 @@ package com.yushan.user_service.dao;
 
 import com.yushan.user_service.dto.AdminUserFilterDTO;
 import com.yushan.user_service.entity.User;
+import com.yushan.user_service.enums.RegistrationResult;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Mapper
 public interface UserMapper {
+
+    /**
+     * Order of users in multi-row updates (touchLogins, updateLastActiveBatch), so
+     * concurrent batches take row locks in the same order. Matches Postgres uuid order
+     * (unsigned bytes); UUID.compareTo compares signed longs and does not.
+     */
+    Comparator<UUID> ROW_LOCK_ORDER = Comparator.comparing(UUID::toString);
+
     int deleteByPrimaryKey(UUID uuid);
 
     int insert(User record);
 
     int insertSelective(User record);
 
+    /**
+     * Insert a user and their library in a single statement
+     * @return REGISTERED, or EMAIL_TAKEN if the email is already registered
+     */
+    RegistrationResult insertWithLibrary(@Param("user") User user, @Param("libraryUuid") UUID libraryUuid);
+
     User selectByPrimaryKey(UUID uuid);
 
     User selectByEmail(String email);
 
+    User selectAuthPrincipalByUuid(UUID uuid);
+
     int updateByPrimaryKeySelective(User record);
 
     int updateByPrimaryKey(User record);
 
+    int updatePasswordHash(@Param("uuid") UUID uuid, @Param("oldHashPassword") String oldHashPassword,
+                           @Param("hashPassword") String hashPassword);
+
+    int touchLogin(@Param("uuid") UUID uuid, @Param("timestamp") Date timestamp);
+
+    int touchLogins(@Param("logins") Map<UUID, Date> logins);
+
+    int updateLastActiveBatch(@Param("updates") Map<UUID, Date> updates);
+
     List<User> selectUsersForAdmin(@Param("filter") AdminUserFilterDTO filter,
                                    @Param("offset") int offset);
 
@@ -19,6 +19,8 @@ public class LibraryResponseDTO {
     private Integer chapterCnt;
     private Date createTime;
     private Date updateTime;
+    // novel or chapter metadata is last-known-good, the content service was unavailable
+    private boolean stale;
 
     public Date getCreateTime() {
         return createTime == null ? null : new Date(createTime.getTime());
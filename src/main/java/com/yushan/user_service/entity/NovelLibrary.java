@@ -1,6 +1,8 @@
 package com.yushan.user_service.entity;
 
+import java.time.Instant;
 import java.util.Date;
+import java.util.UUID;
 
 public class NovelLibrary {
     private Integer id;
@@ -15,6 +17,11 @@ public class NovelLibrary {
 
     private Date updateTime;
 
+    private UUID userId;
+
+    // sort column value at full precision, only read by keyset page queries
+    private Instant sortValue;
+
     public NovelLibrary(Integer id, Integer libraryId, Integer novelId, Integer progress, Date createTime, Date updateTime) {
         this.id = id;
         this.libraryId = libraryId;
@@ -75,4 +82,20 @@ public class NovelLibrary {
     public void setUpdateTime(Date updateTime) {
         this.updateTime = updateTime != null ? new Date(updateTime.getTime()) : null;
     }
-}
\ No newline at end of file
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public void setUserId(UUID userId) {
+        this.userId = userId;
+    }
+
+    public Instant getSortValue() {
+        return sortValue;
+    }
+
+    public void setSortValue(Instant sortValue) {
+        this.sortValue = sortValue;
+    }
+}
@@ -0,0 +1,45 @@
+package com.yushan.user_service.entity;
+
+import java.util.Date;
+
+public class NovelStatusEntry {
+    private Integer novelId;
+
+    private Integer status;
+
+    private Date updateTime;
+
+    public NovelStatusEntry(Integer novelId, Integer status, Date updateTime) {
+        this.novelId = novelId;
+        this.status = status;
+        this.updateTime = updateTime != null ? new Date(updateTime.getTime()) : null;
+    }
+
+    public NovelStatusEntry() {
+        super();
+    }
+
+    public Integer getNovelId() {
+        return novelId;
+    }
+
+    public void setNovelId(Integer novelId) {
+        this.novelId = novelId;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public Date getUpdateTime() {
+        return updateTime != null ? new Date(updateTime.getTime()) : null;
+    }
+
+    public void setUpdateTime(Date updateTime) {
+        this.updateTime = updateTime != null ? new Date(updateTime.getTime()) : null;
+    }
+}
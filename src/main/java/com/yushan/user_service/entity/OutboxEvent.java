@@ -0,0 +1,89 @@
+package com.yushan.user_service.entity;
+
+import java.util.Date;
+
+public class OutboxEvent {
+    private Long id;
+
+    private String topic;
+
+    private String eventKey;
+
+    private String eventType;
+
+    private byte[] payload;
+
+    private Date createTime;
+
+    private Date publishedTime;
+
+    public OutboxEvent(Long id, String topic, String eventKey, String eventType, byte[] payload, Date createTime, Date publishedTime) {
+        this.id = id;
+        this.topic = topic;
+        this.eventKey = eventKey;
+        this.eventType = eventType;
+        this.payload = payload != null ? payload.clone() : null;
+        this.createTime = createTime != null ? new Date(createTime.getTime()) : null;
+        this.publishedTime = publishedTime != null ? new Date(publishedTime.getTime()) : null;
+    }
+
+    public OutboxEvent() {
+        super();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic == null ? null : topic.trim();
+    }
+
+    public String getEventKey() {
+        return eventKey;
+    }
+
+    public void setEventKey(String eventKey) {
+        this.eventKey = eventKey;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType == null ? null : eventType.trim();
+    }
+
+    public byte[] getPayload() {
+        return payload != null ? payload.clone() : null;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload != null ? payload.clone() : null;
+    }
+
+    public Date getCreateTime() {
+        return createTime != null ? new Date(createTime.getTime()) : null;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime != null ? new Date(createTime.getTime()) : null;
+    }
+
+    public Date getPublishedTime() {
+        return publishedTime != null ? new Date(publishedTime.getTime()) : null;
+    }
+
+    public void setPublishedTime(Date publishedTime) {
+        this.publishedTime = publishedTime != null ? new Date(publishedTime.getTime()) : null;
+    }
+}
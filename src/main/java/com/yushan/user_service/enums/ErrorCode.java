@@ -12,7 +12,8 @@ public enum ErrorCode {
     VALIDATION_ERROR(400, "Validation Error"),
 
     // Server errors (5xx)
-    INTERNAL_SERVER_ERROR(500, "Internal Server Error");
+    INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
+    SERVICE_UNAVAILABLE(503, "Service Unavailable");
 
     private final int code;
     private final String message;
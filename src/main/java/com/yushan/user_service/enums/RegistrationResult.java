@@ -0,0 +1,10 @@
+package com.yushan.user_service.enums;
+
+/**
+ * Outcome of the single-statement registration write.
+ * Mapped by name from the result of the registration query.
+ */
+public enum RegistrationResult {
+    REGISTERED,
+    EMAIL_TAKEN
+}
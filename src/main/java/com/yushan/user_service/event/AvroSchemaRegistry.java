@@ -0,0 +1,78 @@
+package com.yushan.user_service.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.message.SchemaStore;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Avro Schema Registry
+ *
+ * Local stand-in for a schema registry. Loads every schema under classpath:avro/. Writers
+ * use the highest "version" of each record name; readers look writer schemas up by their
+ * 64-bit parsing fingerprint, which single-object encoded records carry in their header,
+ * so records written with an older version of a schema still decode.
+ */
+@Slf4j
+@Component
+public class AvroSchemaRegistry implements SchemaStore {
+
+    private static final String SCHEMA_LOCATION = "classpath*:avro/*.avsc";
+
+    private final Map<String, Schema> latestByName = new HashMap<>();
+
+    private final Map<Long, Schema> byFingerprint = new HashMap<>();
+
+    public AvroSchemaRegistry() {
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(SCHEMA_LOCATION)) {
+                try (InputStream in = resource.getInputStream()) {
+                    register(new Schema.Parser().parse(in));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load Avro schemas from " + SCHEMA_LOCATION, e);
+        }
+        log.info("Loaded {} Avro schema versions for {}", byFingerprint.size(), latestByName.keySet());
+    }
+
+    /**
+     * Get the schema new records are written with
+     *
+     * @param fullName Record full name
+     * @return latest version of the schema
+     * @throws IllegalArgumentException if no schema has that name
+     */
+    public Schema latest(String fullName) {
+        Schema schema = latestByName.get(fullName);
+        if (schema == null) {
+            throw new IllegalArgumentException("No Avro schema registered for " + fullName);
+        }
+        return schema;
+    }
+
+    @Override
+    public Schema findByFingerprint(long fingerprint) {
+        return byFingerprint.get(fingerprint);
+    }
+
+    private void register(Schema schema) {
+        byFingerprint.put(SchemaNormalization.parsingFingerprint64(schema), schema);
+        latestByName.merge(schema.getFullName(), schema,
+                (current, candidate) -> version(candidate) > version(current) ? candidate : current);
+    }
+
+    private static int version(Schema schema) {
+        Object version = schema.getObjectProp("version");
+        return version instanceof Number number ? number.intValue() : 0;
+    }
+}
@@ -0,0 +1,222 @@
+package com.yushan.user_service.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yushan.user_service.event.dto.UserActivityEvent;
+import com.yushan.user_service.event.dto.UserLoggedInEvent;
+import com.yushan.user_service.event.dto.UserRegisteredEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Event Codec
+ *
+ * Turns events into Kafka record values. Topics listed in kafka.publisher.avro-topics are
+ * written with Avro single-object encoding: a two-byte marker, the 8-byte fingerprint of
+ * the writer schema and the binary record, with schemas from {@link AvroSchemaRegistry}.
+ * All other topics keep the JSON values and __TypeId__ header of Spring's JsonSerializer.
+ * Consumers can tell the formats apart by the marker, which never starts a JSON document.
+ */
+@Component
+public class EventCodec {
+
+    public static final String ACTIVITY_SCHEMA = "com.yushan.user_service.event.avro.UserActivityEvent";
+
+    public static final String ACCOUNT_SCHEMA = "com.yushan.user_service.event.avro.UserAccountEvent";
+
+    private static final byte[] AVRO_MARKER = {(byte) 0xC3, (byte) 0x01};
+
+    private final ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+
+    private final Set<String> avroTopics;
+
+    private final Schema activitySchema;
+
+    private final Schema accountSchema;
+
+    private final BinaryMessageEncoder<GenericRecord> activityEncoder;
+
+    private final BinaryMessageEncoder<GenericRecord> accountEncoder;
+
+    private final BinaryMessageDecoder<GenericRecord> activityDecoder;
+
+    private final BinaryMessageDecoder<GenericRecord> accountDecoder;
+
+    public EventCodec(AvroSchemaRegistry schemaRegistry,
+                      @Value("${kafka.publisher.avro-topics:}") Set<String> avroTopics) {
+        this.avroTopics = Set.copyOf(avroTopics);
+        this.activitySchema = schemaRegistry.latest(ACTIVITY_SCHEMA);
+        this.accountSchema = schemaRegistry.latest(ACCOUNT_SCHEMA);
+        this.activityEncoder = new BinaryMessageEncoder<>(GenericData.get(), activitySchema);
+        this.accountEncoder = new BinaryMessageEncoder<>(GenericData.get(), accountSchema);
+        this.activityDecoder = new BinaryMessageDecoder<>(GenericData.get(), activitySchema, schemaRegistry);
+        this.accountDecoder = new BinaryMessageDecoder<>(GenericData.get(), accountSchema, schemaRegistry);
+    }
+
+    /**
+     * Check whether a topic is written with Avro
+     *
+     * @param topic Topic name
+     * @return true if the topic uses Avro, false for JSON
+     */
+    public boolean isAvro(String topic) {
+        return avroTopics.contains(topic);
+    }
+
+    /**
+     * Check whether a record value is Avro single-object encoded
+     *
+     * @param value Record value
+     * @return true if the value starts with the Avro marker
+     */
+    public static boolean isAvro(byte[] value) {
+        return value != null && value.length > 2 && value[0] == AVRO_MARKER[0] && value[1] == AVRO_MARKER[1];
+    }
+
+    /**
+     * Encode an event in the format of its topic
+     *
+     * @param topic Target topic
+     * @param key Record key, may be null
+     * @param payload Event
+     * @return the record to send
+     * @throws IllegalArgumentException if the topic uses Avro and the event has no schema
+     */
+    public OutgoingEvent encode(String topic, String key, Object payload) {
+        if (!isAvro(topic)) {
+            try {
+                return new OutgoingEvent(topic, key, payload.getClass().getName(), objectMapper.writeValueAsBytes(payload));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Failed to serialize " + payload.getClass().getSimpleName(), e);
+            }
+        }
+        return new OutgoingEvent(topic, key, null, encodeAvro(payload));
+    }
+
+    /**
+     * Encode an event with Avro
+     *
+     * @param payload UserActivityEvent, UserRegisteredEvent or UserLoggedInEvent
+     * @return single-object encoded bytes
+     */
+    public byte[] encodeAvro(Object payload) {
+        try {
+            if (payload instanceof UserActivityEvent event) {
+                return toBytes(activityEncoder.encode(toRecord(event)));
+            }
+            if (payload instanceof UserRegisteredEvent event) {
+                return toBytes(accountEncoder.encode(toAccountRecord("UserRegisteredEvent", event.uuid(), event.username(),
+                        event.email(), event.createTime(), event.updateTime(), event.lastLoginTime(), event.lastActiveTime())));
+            }
+            if (payload instanceof UserLoggedInEvent event) {
+                return toBytes(accountEncoder.encode(toAccountRecord("UserLoggedInEvent", event.uuid(), event.username(),
+                        event.email(), event.createTime(), event.updateTime(), event.lastLoginTime(), event.lasActiveTime())));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        throw new IllegalArgumentException("No Avro schema for " + payload.getClass().getSimpleName());
+    }
+
+    /**
+     * Decode an Avro activity event written with any registered version of its schema
+     *
+     * @param value Single-object encoded bytes
+     * @return the event
+     * @throws IOException if the value is malformed
+     * @throws org.apache.avro.message.MissingSchemaException if its writer schema is unknown
+     */
+    public UserActivityEvent decodeActivity(byte[] value) throws IOException {
+        GenericRecord record = activityDecoder.decode(value);
+        long millis = (Long) record.get("timestamp");
+        return new UserActivityEvent(
+                toUuid((GenericData.Fixed) record.get("userId")),
+                toStringOrNull(record.get("serviceName")),
+                toStringOrNull(record.get("endpoint")),
+                toStringOrNull(record.get("method")),
+                LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC));
+    }
+
+    /**
+     * Decode an Avro user account event
+     *
+     * @param value Single-object encoded bytes
+     * @return the record, read with the latest UserAccountEvent schema
+     * @throws IOException if the value is malformed
+     * @throws org.apache.avro.message.MissingSchemaException if its writer schema is unknown
+     */
+    public GenericRecord decodeAccountEvent(byte[] value) throws IOException {
+        return accountDecoder.decode(value);
+    }
+
+    private GenericRecord toRecord(UserActivityEvent event) {
+        GenericRecord record = new GenericData.Record(activitySchema);
+        record.put("userId", toFixed(activitySchema.getField("userId").schema(), event.userId()));
+        record.put("serviceName", event.serviceName());
+        record.put("endpoint", event.endpoint());
+        record.put("method", event.method());
+        // local-timestamp-millis: wall-clock time, no zone, same as the JSON LocalDateTime
+        record.put("timestamp", event.timestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+        return record;
+    }
+
+    private GenericRecord toAccountRecord(String eventType, UUID uuid, String username, String email,
+                                          Date createTime, Date updateTime, Date lastLoginTime, Date lastActiveTime) {
+        GenericRecord record = new GenericData.Record(accountSchema);
+        record.put("eventType", eventType);
+        record.put("uuid", toFixed(accountSchema.getField("uuid").schema(), uuid));
+        record.put("username", username);
+        record.put("email", email);
+        record.put("createTime", toMillis(createTime));
+        record.put("updateTime", toMillis(updateTime));
+        record.put("lastLoginTime", toMillis(lastLoginTime));
+        record.put("lastActiveTime", toMillis(lastActiveTime));
+        return record;
+    }
+
+    private static GenericData.Fixed toFixed(Schema schema, UUID uuid) {
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        bytes.putLong(uuid.getMostSignificantBits());
+        bytes.putLong(uuid.getLeastSignificantBits());
+        return new GenericData.Fixed(schema, bytes.array());
+    }
+
+    private static UUID toUuid(GenericData.Fixed fixed) {
+        ByteBuffer bytes = ByteBuffer.wrap(fixed.bytes());
+        return new UUID(bytes.getLong(), bytes.getLong());
+    }
+
+    private static Long toMillis(Date date) {
+        return date != null ? date.getTime() : null;
+    }
+
+    private static String toStringOrNull(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        // the encoder hands out a copy of its buffer, use that array directly when it fits
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,340 @@
+package com.yushan.user_service.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event Publisher
+ *
+ * Decouples request threads from Kafka. publish() serializes the event and puts it in a
+ * bounded in-memory buffer; a background thread sends it with the producer profile
+ * {@link KafkaTemplateRouter} picks for the topic. When the buffer is full, or
+ * the broker is unreachable, events are spilled to a memory-mapped {@link SpillJournal}
+ * on local disk and replayed, oldest first, once sends succeed again. While the broker is
+ * unreachable new events are appended behind the journaled ones; once a replayed batch is
+ * acknowledged, new events are sent directly again while the journal drains, so the
+ * backlog cannot outgrow the journal. Journaled events may therefore reach Kafka after
+ * events published later.
+ *
+ * A request thread that finds the buffer full appends to the journal itself, but an
+ * append only copies into mapped memory; the background thread writes the journal to
+ * disk every {@code kafka.publisher.journal.force-interval-ms}, so no request waits for
+ * the disk.
+ *
+ * Values are encoded by {@link EventCodec} in the format configured for their topic.
+ * Events are only dropped, and counted, when both the buffer and the journal are full.
+ */
+@Slf4j
+@Component
+public class EventPublisher {
+
+    private static final int REPLAY_BATCH_SIZE = 100;
+
+    private final KafkaTemplateRouter templates;
+
+    private final EventCodec eventCodec;
+
+    private final BlockingQueue<OutgoingEvent> buffer;
+
+    private final Path journalPath;
+
+    private final int journalBytes;
+
+    private final long journalForceIntervalMs;
+
+    private final long sendTimeoutMs;
+
+    private final long retryIntervalMs;
+
+    private final Counter sentCounter;
+
+    private final Counter spilledCounter;
+
+    private final Counter replayedCounter;
+
+    private final Counter droppedCounter;
+
+    private volatile SpillJournal journal;
+
+    private volatile boolean brokerAvailable = true;
+
+    private volatile boolean running;
+
+    private volatile long nextAttemptAt;
+
+    private long nextForceAt;
+
+    private Thread sender;
+
+    public EventPublisher(KafkaTemplateRouter templates,
+                          EventCodec eventCodec,
+                          MeterRegistry meterRegistry,
+                          @Value("${kafka.publisher.buffer-capacity:10000}") int bufferCapacity,
+                          @Value("${kafka.publisher.journal.path:data/kafka-spill.journal}") String journalPath,
+                          @Value("${kafka.publisher.journal.max-bytes:67108864}") int journalBytes,
+                          @Value("${kafka.publisher.journal.force-interval-ms:1000}") long journalForceIntervalMs,
+                          @Value("${kafka.publisher.send-timeout-ms:10000}") long sendTimeoutMs,
+                          @Value("${kafka.publisher.retry-interval-ms:5000}") long retryIntervalMs) {
+        this.templates = templates;
+        this.eventCodec = eventCodec;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.journalPath = Path.of(journalPath);
+        this.journalBytes = journalBytes;
+        this.journalForceIntervalMs = journalForceIntervalMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.retryIntervalMs = retryIntervalMs;
+        this.sentCounter = Counter.builder("kafka.publisher.events").tag("result", "sent").register(meterRegistry);
+        this.spilledCounter = Counter.builder("kafka.publisher.events").tag("result", "spilled").register(meterRegistry);
+        this.replayedCounter = Counter.builder("kafka.publisher.events").tag("result", "replayed").register(meterRegistry);
+        this.droppedCounter = Counter.builder("kafka.publisher.events").tag("result", "dropped").register(meterRegistry);
+        meterRegistry.gauge("kafka.publisher.buffer.size", buffer, BlockingQueue::size);
+        meterRegistry.gauge("kafka.publisher.journal.pending.bytes", this,
+                publisher -> publisher.journal != null ? publisher.journal.pendingBytes() : 0);
+    }
+
+    @PostConstruct
+    public void start() {
+        openJournal();
+        running = true;
+        sender = new Thread(this::run, "event-publisher");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Queue an event for sending; never blocks on the broker
+     *
+     * @param topic Target topic
+     * @param key Record key, may be null
+     * @param payload Event, encoded in the topic's format
+     */
+    public void publish(String topic, String key, Object payload) {
+        OutgoingEvent event;
+        try {
+            event = eventCodec.encode(topic, key, payload);
+        } catch (Exception e) {
+            droppedCounter.increment();
+            log.error("Failed to serialize {} for topic {}", payload.getClass().getSimpleName(), topic, e);
+            return;
+        }
+        if (!buffer.offer(event)) {
+            spill(event);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (sender != null) {
+            sender.interrupt();
+            try {
+                sender.join(sendTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // whatever is still buffered survives the restart in the journal
+        List<OutgoingEvent> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        remaining.forEach(this::spill);
+        SpillJournal current = journal;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.warn("Failed to close event journal {}", journalPath, e);
+            }
+        }
+    }
+
+    void openJournal() {
+        try {
+            journal = new SpillJournal(journalPath, journalBytes);
+        } catch (IOException e) {
+            log.error("Cannot open event journal {}, events will be dropped when the buffer is full", journalPath, e);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                step();
+                forceJournalIfDue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Event publisher loop failed", e);
+            }
+        }
+    }
+
+    void forceJournalIfDue() {
+        SpillJournal current = journal;
+        long now = System.currentTimeMillis();
+        if (current != null && now >= nextForceAt) {
+            nextForceAt = now + journalForceIntervalMs;
+            current.force();
+        }
+    }
+
+    void step() throws InterruptedException {
+        SpillJournal current = journal;
+
+        if (!brokerAvailable) {
+            // broker down: new events queue up behind the journaled ones
+            if (current != null) {
+                List<OutgoingEvent> buffered = new ArrayList<>();
+                buffer.drainTo(buffered);
+                buffered.forEach(this::spill);
+            }
+            boolean journalPending = current != null && !current.isEmpty();
+            if (System.currentTimeMillis() >= nextAttemptAt && (journalPending || current == null)) {
+                if (current != null) {
+                    replay(current);
+                } else {
+                    // no journal to fall back on, probe with the oldest buffered event
+                    OutgoingEvent event = buffer.peek();
+                    if (event == null || sendNow(event)) {
+                        buffer.poll();
+                        brokerAvailable = true;
+                    } else {
+                        markUnavailable();
+                    }
+                }
+            } else {
+                if (current != null && current.isEmpty()) {
+                    brokerAvailable = true;
+                }
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            return;
+        }
+
+        if (current != null && !current.isEmpty()) {
+            // broker back: drain the journal a batch per step, new events go straight out
+            replay(current);
+            List<OutgoingEvent> buffered = new ArrayList<>();
+            buffer.drainTo(buffered);
+            if (brokerAvailable) {
+                buffered.forEach(this::sendAsync);
+            } else {
+                buffered.forEach(this::spill);
+            }
+            return;
+        }
+
+        OutgoingEvent event = buffer.poll(100, TimeUnit.MILLISECONDS);
+        if (event != null) {
+            sendAsync(event);
+        }
+    }
+
+    private void replay(SpillJournal current) {
+        List<OutgoingEvent> events = current.peek(REPLAY_BATCH_SIZE);
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        try {
+            for (OutgoingEvent event : events) {
+                sends.add(send(event));
+            }
+        } catch (Exception e) {
+            log.warn("Kafka unavailable, {} bytes of events stay journaled: {}", current.pendingBytes(), e.getMessage());
+        }
+        int delivered = 0;
+        for (CompletableFuture<?> send : sends) {
+            try {
+                send.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                delivered++;
+            } catch (Exception e) {
+                break;
+            }
+        }
+        current.advance(delivered);
+        replayedCounter.increment(delivered);
+        if (delivered < events.size()) {
+            markUnavailable();
+        } else {
+            if (!brokerAvailable) {
+                log.info("Kafka reachable again, replaying journaled events");
+            }
+            brokerAvailable = true;
+        }
+    }
+
+    private void sendAsync(OutgoingEvent event) {
+        try {
+            send(event).whenComplete((result, e) -> {
+                if (e == null) {
+                    sentCounter.increment();
+                } else {
+                    log.warn("Failed to send event to {}, journaling it: {}", event.topic(), e.getMessage());
+                    spill(event);
+                    markUnavailable();
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Kafka unavailable, journaling event for {}: {}", event.topic(), e.getMessage());
+            spill(event);
+            markUnavailable();
+        }
+    }
+
+    private boolean sendNow(OutgoingEvent event) {
+        try {
+            send(event).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            sentCounter.increment();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void spill(OutgoingEvent event) {
+        SpillJournal current = journal;
+        if (current != null && current.append(event)) {
+            spilledCounter.increment();
+            return;
+        }
+        droppedCounter.increment();
+        log.error("Event buffer and journal are full, dropping {} for topic {}", event.typeId(), event.topic());
+    }
+
+    private void markUnavailable() {
+        brokerAvailable = false;
+        nextAttemptAt = System.currentTimeMillis() + retryIntervalMs;
+    }
+
+    private CompletableFuture<SendResult<String, byte[]>> send(OutgoingEvent event) {
+        return templates.forTopic(event.topic()).send(toRecord(event));
+    }
+
+    private ProducerRecord<String, byte[]> toRecord(OutgoingEvent event) {
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(event.topic(), event.key(), event.value());
+        if (event.typeId() != null) {
+            record.headers().add(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME,
+                    event.typeId().getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
+    }
+}
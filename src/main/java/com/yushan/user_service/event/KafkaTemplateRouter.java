@@ -0,0 +1,42 @@
+package com.yushan.user_service.event;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Kafka Template Router
+ *
+ * Picks the producer profile for a topic. Topics listed in kafka.producer.activity.topics
+ * go through the high-throughput, lossy activity producer; everything else, user.events
+ * included, goes through the durable producer, which is the safe default for new topics.
+ */
+@Component
+public class KafkaTemplateRouter {
+
+    private final KafkaTemplate<String, byte[]> activityTemplate;
+
+    private final KafkaTemplate<String, byte[]> durableTemplate;
+
+    private final Set<String> activityTopics;
+
+    public KafkaTemplateRouter(KafkaTemplate<String, byte[]> activityKafkaTemplate,
+                               KafkaTemplate<String, byte[]> userEventsKafkaTemplate,
+                               @Value("${kafka.producer.activity.topics:active}") Set<String> activityTopics) {
+        this.activityTemplate = activityKafkaTemplate;
+        this.durableTemplate = userEventsKafkaTemplate;
+        this.activityTopics = Set.copyOf(activityTopics);
+    }
+
+    /**
+     * Get the template for a topic
+     *
+     * @param topic Topic name
+     * @return the template of the topic's producer profile
+     */
+    public KafkaTemplate<String, byte[]> forTopic(String topic) {
+        return activityTopics.contains(topic) ? activityTemplate : durableTemplate;
+    }
+}
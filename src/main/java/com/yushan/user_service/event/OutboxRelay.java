@@ -0,0 +1,208 @@
+package com.yushan.user_service.event;
+
+import com.yushan.user_service.dao.OutboxMapper;
+import com.yushan.user_service.entity.OutboxEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbox Relay
+ *
+ * Publishes events written by {@link OutboxWriter}. Each poll locks the oldest unpublished
+ * rows with FOR UPDATE SKIP LOCKED, sends them to Kafka, waits for the acks and marks the
+ * acknowledged rows published in the same transaction. Relays on other instances skip the
+ * locked rows and claim the next batch, so a row is only ever being published by one
+ * relay. Delivery is at-least-once: if the commit fails after the acks, the batch is sent
+ * again by the next poll. Published rows are pruned once older than the retention.
+ *
+ * The relay polls on its own thread rather than the shared scheduler: while Kafka is down
+ * a poll can block for the send timeout of every batch, and the other scheduled jobs,
+ * such as the outbox prune, must keep running meanwhile.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxMapper outboxMapper;
+
+    private final KafkaTemplateRouter templates;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final long pollIntervalMs;
+
+    private final int batchSize;
+
+    private final long sendTimeoutMs;
+
+    private final Duration retention;
+
+    private final Counter publishedCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter prunedCounter;
+
+    private final Timer publishLag;
+
+    private final ScheduledExecutorService scheduler;
+
+    public OutboxRelay(OutboxMapper outboxMapper,
+                       KafkaTemplateRouter templates,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${outbox.relay.poll-interval-ms:500}") long pollIntervalMs,
+                       @Value("${outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+                       @Value("${outbox.retention-minutes:60}") long retentionMinutes) {
+        this.outboxMapper = outboxMapper;
+        this.templates = templates;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.pollIntervalMs = pollIntervalMs;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.publishedCounter = Counter.builder("outbox.events").tag("result", "published").register(meterRegistry);
+        this.failedCounter = Counter.builder("outbox.events").tag("result", "failed").register(meterRegistry);
+        this.prunedCounter = Counter.builder("outbox.events").tag("result", "pruned").register(meterRegistry);
+        this.publishLag = Timer.builder("outbox.publish.lag").register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::relay, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Publish pending events, batch after batch, until the outbox is drained or a send fails
+     */
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> publishBatch());
+            } while (published != null && published == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox relay failed, retrying on the next poll", e);
+        }
+    }
+
+    /**
+     * Delete published events older than the retention
+     */
+    @Scheduled(fixedDelayString = "${outbox.prune-interval-ms:60000}")
+    public void prune() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Date cutoff = new Date(System.currentTimeMillis() - retention.toMillis());
+            int deleted;
+            do {
+                deleted = outboxMapper.deletePublishedBefore(cutoff, batchSize * 10);
+                prunedCounter.increment(deleted);
+            } while (deleted == batchSize * 10);
+        } catch (Exception e) {
+            log.error("Failed to prune published outbox events", e);
+        }
+    }
+
+    /**
+     * Publish one batch; must run inside a transaction so the row locks are held until
+     * the rows are marked published
+     *
+     * @return number of events published
+     */
+    int publishBatch() {
+        List<OutboxEvent> batch = outboxMapper.selectUnpublishedForUpdate(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        try {
+            for (OutboxEvent event : batch) {
+                sends.add(templates.forTopic(event.getTopic()).send(toRecord(event)));
+            }
+        } catch (Exception e) {
+            log.warn("Kafka unavailable, {} outbox events stay pending: {}", batch.size(), e.getMessage());
+        }
+
+        // only the acknowledged prefix is marked, the rest is retried in order
+        List<Long> publishedIds = new ArrayList<>(sends.size());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < sends.size(); i++) {
+            try {
+                sends.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("Failed to publish outbox event {} to {}: {}", batch.get(i).getId(), batch.get(i).getTopic(), e.getMessage());
+                break;
+            }
+            OutboxEvent event = batch.get(i);
+            publishedIds.add(event.getId());
+            if (event.getCreateTime() != null) {
+                publishLag.record(Duration.ofMillis(Math.max(0, now - event.getCreateTime().getTime())));
+            }
+        }
+
+        if (!publishedIds.isEmpty()) {
+            outboxMapper.markPublished(publishedIds, new Date(now));
+        }
+        publishedCounter.increment(publishedIds.size());
+        failedCounter.increment(batch.size() - publishedIds.size());
+        return publishedIds.size();
+    }
+
+    private ProducerRecord<String, byte[]> toRecord(OutboxEvent event) {
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(event.getTopic(), event.getEventKey(), event.getPayload());
+        // Avro values carry their schema fingerprint instead of a type header
+        if (event.getEventType() != null) {
+            record.headers().add(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME,
+                    event.getEventType().getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
+    }
+}
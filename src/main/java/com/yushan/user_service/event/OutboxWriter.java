@@ -0,0 +1,44 @@
+package com.yushan.user_service.event;
+
+import com.yushan.user_service.dao.OutboxMapper;
+import com.yushan.user_service.entity.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Outbox Writer
+ *
+ * Records a domain event in the outbox table as part of the caller's transaction, so the
+ * event exists if and only if the change that produced it commits. {@link OutboxRelay}
+ * publishes it afterwards. The payload is stored already encoded by {@link EventCodec}, as
+ * it goes on the wire, so consumers cannot tell which path a record took.
+ */
+@Component
+public class OutboxWriter {
+
+    @Autowired
+    private OutboxMapper outboxMapper;
+
+    @Autowired
+    private EventCodec eventCodec;
+
+    /**
+     * Add an event to the outbox; requires an active transaction
+     *
+     * @param topic Target topic
+     * @param key Record key, may be null
+     * @param payload Event, encoded in the topic's format
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String topic, String key, Object payload) {
+        OutgoingEvent encoded = eventCodec.encode(topic, key, payload);
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(topic);
+        event.setEventKey(key);
+        event.setEventType(encoded.typeId());
+        event.setPayload(encoded.value());
+        outboxMapper.insert(event);
+    }
+}
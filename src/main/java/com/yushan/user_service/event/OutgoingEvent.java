@@ -0,0 +1,12 @@
+package com.yushan.user_service.event;
+
+/**
+ * A serialized event waiting to be sent to Kafka
+ *
+ * @param topic Target topic
+ * @param key Record key, may be null
+ * @param typeId Value type, sent as the __TypeId__ header like JsonSerializer does
+ * @param value Serialized value
+ */
+public record OutgoingEvent(String topic, String key, String typeId, byte[] value) {
+}
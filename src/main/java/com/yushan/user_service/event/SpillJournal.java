@@ -0,0 +1,293 @@
+package com.yushan.user_service.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped ring journal of events that could not be sent
+ *
+ * Layout: an 8-byte header holding the read and write offsets, followed by records of
+ * [int length][int crc32][topic][key][typeId][value]. Appends write the record before
+ * moving the write offset, so a process crash mid-append leaves the previous state
+ * intact. Appends only copy into the mapped pages and never wait for the disk; the owner
+ * calls {@link #force()} periodically to write them out, so a host crash loses at most
+ * the appends since the last force, and a record torn by it fails its checksum and is
+ * discarded with everything after it. A record that does not fit
+ * before the end of the file wraps around to the start, behind a wrap marker, as soon as
+ * replayed records have freed the space there; the file has a fixed size and appends
+ * that do not fit anywhere are refused. The file is locked while open, so two processes
+ * never share a journal.
+ */
+@Slf4j
+public class SpillJournal implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /**
+     * Length of the marker that sends readers back to the start of the file
+     */
+    private static final int WRAP = -1;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int capacity;
+
+    private volatile boolean dirty;
+
+    private int readOffset;
+
+    private int writeOffset;
+
+    /**
+     * Open or create a journal
+     *
+     * @param path Journal file
+     * @param capacity File size in bytes
+     * @throws IOException if the file cannot be created, locked or mapped
+     */
+    public SpillJournal(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // held until the channel is closed
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                throw new IOException("Event journal " + path + " is in use by another process");
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException | OverlappingFileLockException e) {
+            channel.close();
+            throw e instanceof IOException io ? io : new IOException("Event journal " + path + " is already open", e);
+        }
+
+        int storedRead = buffer.getInt(0);
+        int storedWrite = buffer.getInt(4);
+        if (storedRead < HEADER_BYTES || storedRead > capacity || storedWrite < HEADER_BYTES || storedWrite > capacity) {
+            reset();
+        } else {
+            writeOffset = storedWrite;
+            readOffset = storedRead;
+            readOffset = unwrap(readOffset);
+            if (!isEmpty()) {
+                log.info("Event journal {} holds {} bytes of unsent events", path, pendingBytes());
+            }
+        }
+    }
+
+    /**
+     * Append an event
+     *
+     * @param event Event to store
+     * @return false if the journal is full
+     */
+    public synchronized boolean append(OutgoingEvent event) {
+        byte[] body = encode(event);
+        int recordBytes = RECORD_HEADER_BYTES + body.length;
+        int offset;
+        if (readOffset <= writeOffset && writeOffset + recordBytes <= capacity) {
+            offset = writeOffset;
+        } else if (readOffset <= writeOffset && HEADER_BYTES + recordBytes < readOffset) {
+            // the write offset never catches up with the read offset, equal offsets mean empty
+            if (capacity - writeOffset >= RECORD_HEADER_BYTES) {
+                buffer.putInt(writeOffset, WRAP);
+            }
+            offset = HEADER_BYTES;
+        } else if (readOffset > writeOffset && writeOffset + recordBytes < readOffset) {
+            offset = writeOffset;
+        } else {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        buffer.putInt(offset, body.length);
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.put(offset + RECORD_HEADER_BYTES, body);
+        writeOffset = offset + recordBytes;
+        buffer.putInt(4, writeOffset);
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Read the oldest events without removing them
+     *
+     * @param max Maximum number of events
+     * @return events in append order
+     */
+    public synchronized List<OutgoingEvent> peek(int max) {
+        List<OutgoingEvent> events = new ArrayList<>();
+        int offset = unwrap(readOffset);
+        while (events.size() < max && offset != writeOffset) {
+            int length = buffer.getInt(offset);
+            int end = offset <= writeOffset ? writeOffset : capacity;
+            if (length <= 0 || offset + RECORD_HEADER_BYTES + length > end) {
+                log.error("Event journal {} is corrupt at offset {}, discarding {} bytes", path, offset, bytesFrom(offset));
+                writeOffset = offset;
+                buffer.putInt(4, writeOffset);
+                break;
+            }
+            byte[] body = new byte[length];
+            buffer.get(offset + RECORD_HEADER_BYTES, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                log.error("Event journal {} has a checksum mismatch at offset {}, discarding {} bytes", path, offset, bytesFrom(offset));
+                writeOffset = offset;
+                buffer.putInt(4, writeOffset);
+                break;
+            }
+            events.add(decode(body));
+            offset = unwrap(offset + RECORD_HEADER_BYTES + length);
+        }
+        return events;
+    }
+
+    /**
+     * Remove the oldest events after they have been sent
+     *
+     * @param count Number of events returned by {@link #peek(int)} to remove
+     */
+    public synchronized void advance(int count) {
+        for (int i = 0; i < count && readOffset != writeOffset; i++) {
+            readOffset = unwrap(readOffset + RECORD_HEADER_BYTES + buffer.getInt(readOffset));
+        }
+        if (readOffset == writeOffset) {
+            reset();
+        } else {
+            buffer.putInt(0, readOffset);
+        }
+        dirty = true;
+    }
+
+    public synchronized boolean isEmpty() {
+        return readOffset == writeOffset;
+    }
+
+    /**
+     * Get the number of bytes waiting to be replayed
+     *
+     * @return pending bytes
+     */
+    public synchronized int pendingBytes() {
+        return bytesFrom(readOffset);
+    }
+
+    /**
+     * Write pages changed since the last call to disk. Does not take the journal lock,
+     * so appends continue while the disk catches up.
+     */
+    public void force() {
+        if (dirty) {
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private int bytesFrom(int offset) {
+        if (offset <= writeOffset) {
+            return writeOffset - offset;
+        }
+        return capacity - offset + writeOffset - HEADER_BYTES;
+    }
+
+    /**
+     * Follow the wrap marker, or the end of the file, back to the first record
+     *
+     * @param offset Offset just past a record
+     * @return offset of the next record
+     */
+    private int unwrap(int offset) {
+        // only the records before the wrap lie past the write offset
+        if (readOffset <= writeOffset || offset <= writeOffset) {
+            return offset;
+        }
+        if (capacity - offset < RECORD_HEADER_BYTES || buffer.getInt(offset) == WRAP) {
+            return HEADER_BYTES;
+        }
+        return offset;
+    }
+
+    private void reset() {
+        readOffset = HEADER_BYTES;
+        writeOffset = HEADER_BYTES;
+        buffer.putInt(0, readOffset);
+        buffer.putInt(4, writeOffset);
+    }
+
+    private static byte[] encode(OutgoingEvent event) {
+        byte[] topic = event.topic().getBytes(StandardCharsets.UTF_8);
+        byte[] key = event.key() != null ? event.key().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] typeId = event.typeId() != null ? event.typeId().getBytes(StandardCharsets.UTF_8) : null;
+        ByteBuffer body = ByteBuffer.allocate(16 + topic.length + length(key) + length(typeId) + event.value().length);
+        putBytes(body, topic);
+        putBytes(body, key);
+        putBytes(body, typeId);
+        putBytes(body, event.value());
+        return body.array();
+    }
+
+    private static OutgoingEvent decode(byte[] bytes) {
+        ByteBuffer body = ByteBuffer.wrap(bytes);
+        String topic = getString(body);
+        String key = getString(body);
+        String typeId = getString(body);
+        return new OutgoingEvent(topic, key, typeId, getBytes(body));
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static void putBytes(ByteBuffer body, byte[] bytes) {
+        // -1 length marks null
+        body.putInt(bytes != null ? bytes.length : -1);
+        if (bytes != null) {
+            body.put(bytes);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer body) {
+        byte[] bytes = getBytes(body);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+}
@@ -3,7 +3,6 @@ package com.yushan.user_service.event;
 import com.yushan.user_service.event.dto.UserActivityEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 @Slf4j
@@ -13,15 +12,15 @@ public class UserActivityEventProducer {
     private static final String TOPIC = "active";
 
     @Autowired
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private EventPublisher eventPublisher;
 
     public void sendUserActivityEvent(UserActivityEvent event) {
         try {
-            kafkaTemplate.send(TOPIC, event.userId().toString(), event);
-            log.info("Published user activity event for user: {}, service: {}, endpoint: {}",
+            eventPublisher.publish(TOPIC, event.userId().toString(), event);
+            log.debug("Queued user activity event for user: {}, service: {}, endpoint: {}",
                     event.userId(), event.serviceName(), event.endpoint());
         } catch (Exception e) {
             log.error("Failed to publish user activity event for user: {}", event.userId(), e);
         }
     }
-}
\ No newline at end of file
+}
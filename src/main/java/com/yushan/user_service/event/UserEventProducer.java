@@ -7,7 +7,6 @@ import com.yushan.user_service.event.dto.UserLoggedInEvent;
 import com.yushan.user_service.event.dto.UserRegisteredEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 @Slf4j
@@ -15,11 +14,19 @@ import org.springframework.stereotype.Service;
 public class UserEventProducer {
 
     private static final String TOPIC = "user.events";
-    @Autowired private KafkaTemplate<String, Object> kafkaTemplate;
+    @Autowired private EventPublisher eventPublisher;
+    @Autowired private OutboxWriter outboxWriter;
+    @Autowired private EventCodec eventCodec;
     @Autowired private ObjectMapper objectMapper;
 
+    /**
+     * Write the event to the outbox; must be called inside the registration transaction,
+     * and fails it if the event cannot be recorded
+     */
     public void sendUserRegisteredEvent(UserRegisteredEvent event) {
-        send(event.getClass().getSimpleName(), event);
+        String eventType = event.getClass().getSimpleName();
+        log.info("Writing event [type={}] to the outbox for topic {}", eventType, TOPIC);
+        outboxWriter.append(TOPIC, null, wrap(eventType, event));
     }
 
     public void sendUserLoggedInEvent(UserLoggedInEvent event) {
@@ -28,13 +35,19 @@ public class UserEventProducer {
 
     private void send(String eventType, Object payload) {
         try {
-            JsonNode payloadJson = objectMapper.valueToTree(payload);
-            EventEnvelope envelope = new EventEnvelope(eventType, payloadJson);
-
-            log.info("Sending event in envelope [type={}] to topic {}", eventType, TOPIC);
-            kafkaTemplate.send(TOPIC, envelope);
+            log.info("Queueing event [type={}] for topic {}", eventType, TOPIC);
+            eventPublisher.publish(TOPIC, null, wrap(eventType, payload));
         } catch (Exception e) {
             log.error("Error sending event envelope for type {}", eventType, e);
         }
     }
-}
\ No newline at end of file
+
+    private Object wrap(String eventType, Object payload) {
+        // the Avro schema carries the event type itself, only JSON needs the envelope
+        if (eventCodec.isAvro(TOPIC)) {
+            return payload;
+        }
+        JsonNode payloadJson = objectMapper.valueToTree(payload);
+        return new EventEnvelope(eventType, payloadJson);
+    }
+}
@@ -0,0 +1,9 @@
+package com.yushan.user_service.event.dto;
+
+import java.time.LocalDateTime;
+
+public record NovelStatusChangedEvent(
+        Integer novelId,
+        String status,
+        LocalDateTime timestamp
+) {}
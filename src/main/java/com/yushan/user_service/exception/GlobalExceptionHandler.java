@@ -2,6 +2,7 @@ package com.yushan.user_service.exception;
 
 import com.yushan.user_service.dto.ApiResponse;
 import com.yushan.user_service.enums.ErrorCode;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authorization.AuthorizationDeniedException;
@@ -65,6 +66,17 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiResponse<Object>> handleServiceUnavailableException(ServiceUnavailableException e, WebRequest request) {
+        ApiResponse<Object> errorResponse = ApiResponse.error(
+            ErrorCode.SERVICE_UNAVAILABLE, 
+            e.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .body(errorResponse);
+    }
+
     /**
      * handle method argument not valid exception
      */
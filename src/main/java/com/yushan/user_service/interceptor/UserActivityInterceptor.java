@@ -3,6 +3,7 @@ package com.yushan.user_service.interceptor;
 import com.yushan.user_service.event.UserActivityEventProducer;
 import com.yushan.user_service.event.dto.UserActivityEvent;
 import com.yushan.user_service.security.CustomUserDetailsService;
+import com.yushan.user_service.util.ActivityEventThrottle;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -22,12 +23,16 @@ public class UserActivityInterceptor implements HandlerInterceptor {
     @Autowired
     private UserActivityEventProducer userActivityEventProducer;
 
+    @Autowired
+    private ActivityEventThrottle activityEventThrottle;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         log.info("UserActivityInterceptor triggered for URL: {}", request.getRequestURL());
         try {
             UUID userId = getUserId();
-            if (userId != null) {
+            // at most one event per user per throttle window leaves this node
+            if (userId != null && activityEventThrottle.tryAcquire(userId)) {
                 UserActivityEvent event = new UserActivityEvent(userId, "user-service", request.getRequestURI(), request.getMethod(), LocalDateTime.now());
                 userActivityEventProducer.sendUserActivityEvent(event);
             }
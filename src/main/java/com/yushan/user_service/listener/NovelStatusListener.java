@@ -0,0 +1,71 @@
+package com.yushan.user_service.listener;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.yushan.user_service.event.dto.NovelStatusChangedEvent;
+import com.yushan.user_service.service.NovelStatusProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+public class NovelStatusListener {
+
+    @Autowired
+    private NovelStatusProjection novelStatusProjection;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${novel.status.listener.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    /**
+     * Consume a batch of novel status changes from the content service, write them to the
+     * projection in one statement and only then commit the offsets. A failed write
+     * redelivers the batch.
+     */
+    @KafkaListener(topics = "${novel.status.topic:novel.status}", groupId = "user-service",
+            containerFactory = "novelStatusBatchListenerContainerFactory",
+            autoStartup = "${novel.status.listener.auto-startup:true}")
+    public void handleNovelStatusBatch(@Payload List<byte[]> payloads, Acknowledgment acknowledgment) {
+        List<NovelStatusChangedEvent> events = parse(payloads);
+        if (!events.isEmpty()) {
+            try {
+                novelStatusProjection.apply(events);
+            } catch (Exception e) {
+                log.error("Failed to project {} novel status events, redelivering batch", events.size(), e);
+                acknowledgment.nack(0, Duration.ofMillis(retryBackoffMs));
+                return;
+            }
+        }
+        acknowledgment.acknowledge();
+    }
+
+    private List<NovelStatusChangedEvent> parse(List<byte[]> payloads) {
+        ObjectReader reader = objectMapper.readerFor(NovelStatusChangedEvent.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        List<NovelStatusChangedEvent> events = new ArrayList<>();
+        for (byte[] payload : payloads) {
+            try {
+                NovelStatusChangedEvent event = reader.readValue(payload);
+                if (event != null) {
+                    events.add(event);
+                }
+            } catch (Exception e) {
+                log.warn("Skipping undeserializable novel status event: {}", e.getMessage());
+            }
+        }
+        return events;
+    }
+}
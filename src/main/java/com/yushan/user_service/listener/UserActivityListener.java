@@ -1,15 +1,22 @@
 package com.yushan.user_service.listener;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.yushan.user_service.event.EventCodec;
+import com.yushan.user_service.event.dto.UserActivityEvent;
 import com.yushan.user_service.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -22,24 +29,50 @@ public class UserActivityListener {
     @Autowired
     private ObjectMapper objectMapper;
 
-    @KafkaListener(topics = "active", groupId = "user-service")
-    public void handleUserActivity(@Payload String payload) {
-        try {
-            JsonNode jsonNode = objectMapper.readTree(payload);
-            JsonNode userIdNode = jsonNode.get("userId");
-            JsonNode timestampNode = jsonNode.get("timestamp");
-            if (userIdNode != null && !userIdNode.isNull() && timestampNode != null && !timestampNode.isNull()) {
-                UUID uuid = UUID.fromString(userIdNode.asText());
-                LocalDateTime timestamp = objectMapper.treeToValue(timestampNode, LocalDateTime.class);
-
-                userService.updateLastActiveTime(uuid, timestamp);
-                log.info("Successfully handled last active event for user: {}", uuid);
-            } else {
-                log.warn("Received user activity event with missing or null fields. Payload: {}", payload);
+    @Autowired
+    private EventCodec eventCodec;
+
+    /**
+     * Consume a batch of activity events: keep the latest timestamp per user and hand
+     * them to the write-behind buffer. The offsets are committed once the buffer has
+     * flushed them; until then a crash or rebalance redelivers the batch.
+     */
+    @KafkaListener(topics = "active", groupId = "user-service",
+            containerFactory = "activityBatchListenerContainerFactory",
+            concurrency = "${user.activity.listener.concurrency:3}",
+            autoStartup = "${user.activity.listener.auto-startup:true}")
+    public void handleUserActivityBatch(@Payload List<byte[]> payloads, Acknowledgment acknowledgment) {
+        Map<UUID, LocalDateTime> latestByUser = compact(payloads);
+        if (latestByUser.isEmpty()) {
+            acknowledgment.acknowledge();
+            return;
+        }
+        // acknowledged from the flush thread, the container commits on the consumer thread
+        userService.updateLastActiveTimes(latestByUser, acknowledgment::acknowledge);
+        log.debug("Buffered {} activity events for {} users", payloads.size(), latestByUser.size());
+    }
+
+    private Map<UUID, LocalDateTime> compact(List<byte[]> payloads) {
+        // events come from several services, so tolerate fields we don't know about
+        ObjectReader reader = objectMapper.readerFor(UserActivityEvent.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        Map<UUID, LocalDateTime> latestByUser = new HashMap<>();
+        for (byte[] payload : payloads) {
+            UserActivityEvent event;
+            try {
+                // producers may write either format, Avro values start with the single-object marker
+                event = EventCodec.isAvro(payload) ? eventCodec.decodeActivity(payload) : reader.readValue(payload);
+            } catch (Exception e) {
+                log.warn("Skipping undeserializable user activity event: {}", e.getMessage());
+                continue;
+            }
+            if (event == null || event.userId() == null || event.timestamp() == null) {
+                log.warn("Skipping user activity event with missing userId or timestamp");
+                continue;
             }
-        } catch (Exception e) {
-            log.error("Failed to deserialize UserActivityEvent", e);
+            latestByUser.merge(event.userId(), event.timestamp(),
+                    (current, next) -> next.isAfter(current) ? next : current);
         }
+        return latestByUser;
     }
 }
-
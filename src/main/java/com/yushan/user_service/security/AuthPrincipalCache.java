@@ -0,0 +1,134 @@
+package com.yushan.user_service.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yushan.user_service.dao.UserMapper;
+import com.yushan.user_service.entity.User;
+import com.yushan.user_service.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Verified Principal Cache
+ *
+ * Keeps the authentication-relevant columns of a user (email, username, status,
+ * author/admin flags) in a bounded, TTL-based in-process cache keyed by user UUID,
+ * so that the JWT filter only hits Postgres on a cache miss or when the token
+ * carries a newer role/status than the cached copy.
+ */
+@Slf4j
+@Component
+public class AuthPrincipalCache {
+
+    private final UserMapper userMapper;
+
+    private final Cache<UUID, CachedPrincipal> cache;
+
+    public AuthPrincipalCache(UserMapper userMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${jwt.principal-cache.ttl-seconds:60}") long ttlSeconds,
+                              @Value("${jwt.principal-cache.max-size:100000}") long maxSize) {
+        this.userMapper = userMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "auth.principal");
+    }
+
+    /**
+     * Resolve the principal for a verified token
+     *
+     * @param userId User UUID from the token
+     * @param email Email from the token
+     * @param role Role claim from the token
+     * @param status Status claim from the token
+     * @param issuedAt Token issue time
+     * @return CustomUserDetails or null if the user no longer exists or the token doesn't match
+     */
+    public CustomUserDetailsService.CustomUserDetails resolve(UUID userId, String email, String role,
+                                                             Integer status, Date issuedAt) {
+        CachedPrincipal cached = cache.getIfPresent(userId);
+        if (cached == null || (!cached.matches(email, role, status) && isNewerThan(issuedAt, cached))) {
+            // miss, or the token was minted after we loaded the row and disagrees with it
+            cached = load(userId);
+            if (cached == null) {
+                return null;
+            }
+        }
+
+        if (!Objects.equals(cached.user().getEmail(), email)) {
+            // email changed since the token was issued
+            return null;
+        }
+        return cached.details();
+    }
+
+    /**
+     * Get the cached auth columns of a user, loading them on a miss
+     *
+     * @param userId User UUID
+     * @return User with auth columns only, or null if not found
+     */
+    public User getUser(UUID userId) {
+        CachedPrincipal cached = cache.getIfPresent(userId);
+        if (cached == null) {
+            cached = load(userId);
+        }
+        return cached != null ? cached.user() : null;
+    }
+
+    /**
+     * Drop a user from the cache after a write to status, role or email
+     *
+     * @param userId User UUID
+     */
+    public void evict(UUID userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    /**
+     * Drop every cached principal
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private CachedPrincipal load(UUID userId) {
+        User user = userMapper.selectAuthPrincipalByUuid(userId);
+        if (user == null) {
+            cache.invalidate(userId);
+            return null;
+        }
+        CachedPrincipal loaded = new CachedPrincipal(user, new CustomUserDetailsService.CustomUserDetails(user),
+                JwtUtil.resolveRole(user), System.currentTimeMillis());
+        cache.put(userId, loaded);
+        return loaded;
+    }
+
+    private boolean isNewerThan(Date issuedAt, CachedPrincipal cached) {
+        // iat has second precision, so allow for the truncated part
+        return issuedAt == null || issuedAt.getTime() + 1000 > cached.loadedAt();
+    }
+
+    private record CachedPrincipal(User user, CustomUserDetailsService.CustomUserDetails details,
+                                   String role, long loadedAt) {
+
+        boolean matches(String email, String role, Integer status) {
+            return Objects.equals(user.getEmail(), email)
+                    && Objects.equals(this.role, role)
+                    && Objects.equals(user.getStatus(), status);
+        }
+    }
+}
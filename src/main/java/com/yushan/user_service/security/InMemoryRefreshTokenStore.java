@@ -0,0 +1,107 @@
+package com.yushan.user_service.security;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory refresh token family store
+ *
+ * Single-node stand-in for {@link RedisRefreshTokenStore}, used by tests and local
+ * runs without Redis (jwt.refresh-store.type=memory). Expired families and legacy
+ * claims are purged periodically, as Redis expires its keys.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh-store.type", havingValue = "memory")
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    private final ConcurrentHashMap<String, Family> families = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<UUID, Set<String>> familiesByUser = new ConcurrentHashMap<>();
+
+    // userId:jti of claimed legacy tokens -> expiry
+    private final ConcurrentHashMap<String, Long> legacyClaims = new ConcurrentHashMap<>();
+
+    @Override
+    public void create(String familyId, UUID userId, String jti, long ttlMs) {
+        families.put(familyId, new Family(userId, jti, System.currentTimeMillis() + ttlMs));
+        familiesByUser.compute(userId, (id, ids) -> {
+            Set<String> familyIds = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            familyIds.add(familyId);
+            return familyIds;
+        });
+    }
+
+    @Override
+    public RotationResult rotate(String familyId, UUID userId, String presentedJti, String nextJti, long ttlMs) {
+        RotationResult[] result = {RotationResult.UNKNOWN};
+        families.computeIfPresent(familyId, (id, family) -> {
+            if (!family.userId().equals(userId)) {
+                return family;
+            }
+            if (family.expiresAt() < System.currentTimeMillis()) {
+                return null;
+            }
+            if (!family.jti().equals(presentedJti)) {
+                result[0] = RotationResult.REUSED;
+                removeFromUser(family.userId(), id);
+                return null;
+            }
+            result[0] = RotationResult.ROTATED;
+            return new Family(family.userId(), nextJti, System.currentTimeMillis() + ttlMs);
+        });
+        return result[0];
+    }
+
+    @Override
+    public boolean claimLegacy(UUID userId, String jti, long ttlMs) {
+        return legacyClaims.putIfAbsent(userId + ":" + jti, System.currentTimeMillis() + ttlMs) == null;
+    }
+
+    @Override
+    public void revokeFamily(String familyId, UUID userId) {
+        Family family = families.get(familyId);
+        if (family != null && family.userId().equals(userId) && families.remove(familyId, family)) {
+            removeFromUser(userId, familyId);
+        }
+    }
+
+    @Override
+    public void revokeAllForUser(UUID userId) {
+        Set<String> ids = familiesByUser.remove(userId);
+        if (ids != null) {
+            ids.forEach(families::remove);
+        }
+    }
+
+    /**
+     * Drop expired families and legacy claims
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-store.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        families.forEach((familyId, family) -> {
+            if (family.expiresAt() < now && families.remove(familyId, family)) {
+                removeFromUser(family.userId(), familyId);
+            }
+        });
+        // atomic per user, so a family added meanwhile is not dropped with its set
+        familiesByUser.keySet().forEach(userId ->
+                familiesByUser.computeIfPresent(userId, (id, ids) -> ids.isEmpty() ? null : ids));
+        legacyClaims.values().removeIf(expiresAt -> expiresAt < now);
+    }
+
+    private void removeFromUser(UUID userId, String familyId) {
+        Set<String> ids = familiesByUser.get(userId);
+        if (ids != null) {
+            ids.remove(familyId);
+        }
+    }
+
+    private record Family(UUID userId, String jti, long expiresAt) {
+    }
+}
@@ -2,12 +2,15 @@ package com.yushan.user_service.security;
 
 import com.yushan.user_service.dao.UserMapper;
 import com.yushan.user_service.entity.User;
+import com.yushan.user_service.service.TokenRevocationService;
+import com.yushan.user_service.util.JwtClaims;
 import com.yushan.user_service.util.JwtUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,16 +19,17 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Date;
+import java.util.UUID;
 
 /**
  * JWT Authentication Filter
  * 
  * This filter runs before every request and:
  * 1. Extracts JWT token from Authorization header
- * 2. Validates the token
- * 3. Extracts email from token
- * 4. Loads user from database
- * 5. Sets authentication in SecurityContext
+ * 2. Parses and validates the token once, rejecting revoked tokens
+ * 3. Resolves the user from the verified-principal cache (or database in legacy mode)
+ * 4. Sets authentication in SecurityContext
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -36,6 +40,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private AuthPrincipalCache authPrincipalCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Value("${jwt.principal-cache.enabled:true}")
+    private boolean principalCacheEnabled = true;
+
     /**
      * Filter method that processes each request
      * 
@@ -53,43 +66,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // 1. Extract token from Authorization header
             String token = extractTokenFromRequest(request);
             
-            if (token != null && jwtUtil.validateToken(token)) {
-                // 2. Extract email from token
-                String email = jwtUtil.extractEmail(token);
-                
-                // 3. Check if user is not already authenticated
-                if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    // 4. Load user from database
-                    User user = userMapper.selectByEmail(email);
-                    
-                    if (user != null && jwtUtil.validateToken(token, user)) {
-                        // 5. Create CustomUserDetails from User
-                        CustomUserDetailsService.CustomUserDetails userDetails = 
-                            new CustomUserDetailsService.CustomUserDetails(user);
-                        
-                        // 5.5. Check if user is enabled (not suspended/banned)
-                        if (!userDetails.isEnabled()) {
-                            // User is disabled, don't authenticate
-                            filterChain.doFilter(request, response);
-                            return;
-                        }
-                        
-                        // 6. Create authentication object
-                        UsernamePasswordAuthenticationToken authentication = 
-                            new UsernamePasswordAuthenticationToken(
-                                userDetails, 
-                                null, 
-                                userDetails.getAuthorities()
-                            );
-                        
-                        // 7. Set additional details
-                        authentication.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
+            // 2. Check if user is not already authenticated
+            if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                // 3. Resolve user details for the token
+                JwtClaims claims = jwtUtil.parseAndValidate(token);
+                CustomUserDetailsService.CustomUserDetails userDetails = null;
+                if (claims != null && claims.userId() != null && claims.email() != null
+                        && !tokenRevocationService.isRevoked(claims)) {
+                    userDetails = principalCacheEnabled
+                            ? resolveFromCache(claims)
+                            : resolveFromDatabase(claims);
+                }
+
+                // 4. Check if user is enabled (not suspended/banned)
+                if (userDetails != null && userDetails.isEnabled()) {
+                    // 5. Create authentication object
+                    UsernamePasswordAuthenticationToken authentication = 
+                        new UsernamePasswordAuthenticationToken(
+                            userDetails, 
+                            null, 
+                            userDetails.getAuthorities()
                         );
-                        
-                        // 8. Set authentication in SecurityContext
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
-                    }
+                    
+                    // 6. Set additional details
+                    authentication.setDetails(
+                        new WebAuthenticationDetailsSource().buildDetails(request)
+                    );
+                    
+                    // 7. Set authentication in SecurityContext
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
             }
         } catch (Exception e) {
@@ -101,6 +106,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Parse the token once and resolve the principal from the in-process cache.
+     * Postgres is only queried on a miss or when the token's role/status is newer
+     * than the cached row.
+     * 
+     * @param claims Verified token claims
+     * @return CustomUserDetails or null if the user is missing or the token doesn't match
+     */
+    private CustomUserDetailsService.CustomUserDetails resolveFromCache(JwtClaims claims) {
+        return authPrincipalCache.resolve(
+                UUID.fromString(claims.userId()),
+                claims.email(),
+                claims.role(),
+                claims.status(),
+                claims.issuedAt() != null ? Date.from(claims.issuedAt()) : null
+        );
+    }
+
+    /**
+     * Legacy path: load the full user row by the token's email
+     * 
+     * @param claims Verified token claims
+     * @return CustomUserDetails or null if the user is missing
+     */
+    private CustomUserDetailsService.CustomUserDetails resolveFromDatabase(JwtClaims claims) {
+        User user = userMapper.selectByEmail(claims.email());
+        if (user == null) {
+            return null;
+        }
+        return new CustomUserDetailsService.CustomUserDetails(user);
+    }
+
     /**
      * Extract JWT token from Authorization header
      * 
@@ -135,6 +172,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                path.startsWith("/api/auth/refresh") ||
                path.startsWith("/api/public/") ||
                path.startsWith("/actuator/") ||
+               path.startsWith("/.well-known/") ||
                path.equals("/error") ||
                // Skip OPTIONS requests (CORS preflight)
                "OPTIONS".equals(method);
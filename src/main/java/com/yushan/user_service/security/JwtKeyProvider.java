@@ -0,0 +1,292 @@
+package com.yushan.user_service.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JWT Key Provider
+ *
+ * Holds the keys used to sign and verify JWTs, selected by {@code jwt.algorithm}:
+ * - HS256: the shared {@code jwt.secret} (legacy mode, no public keys)
+ * - ES256 / EdDSA: the active key pair identified by {@code jwt.signing.key-id}, plus
+ *   the public halves of retired keys listed in {@code jwt.signing.previous-public-keys}
+ *   as {@code kid:base64X509} pairs, so tokens signed before a rotation stay valid
+ *
+ * Asymmetric tokens carry a {@code kid} header, and the public keys are published as a
+ * JWK set which is serialized once here and served from memory.
+ *
+ * After switching to ES256 / EdDSA, HMAC tokens issued before the switch are only accepted
+ * until {@code jwt.legacy-hmac.accept-until} (ISO-8601 instant), which should be the switch
+ * time plus the refresh token lifetime. Unset, they are rejected, so the shared secret no
+ * longer mints valid tokens.
+ */
+@Slf4j
+@Component
+public class JwtKeyProvider {
+
+    private final String algorithm;
+
+    private final SecretKey secretKey;
+
+    private final PrivateKey privateKey;
+
+    private final SignatureAlgorithm signatureAlgorithm;
+
+    private final String activeKeyId;
+
+    private final Map<String, PublicKey> publicKeys;
+
+    private final String jwksJson;
+
+    private final String jwksEtag;
+
+    private final Instant legacyHmacAcceptUntil;
+
+    public JwtKeyProvider(@Value("${jwt.algorithm:HS256}") String algorithm,
+                          @Value("${jwt.secret:}") String secret,
+                          @Value("${jwt.signing.key-id:}") String keyId,
+                          @Value("${jwt.signing.private-key:}") String privateKey,
+                          @Value("${jwt.signing.public-key:}") String publicKey,
+                          @Value("${jwt.signing.previous-public-keys:}") String previousPublicKeys,
+                          @Value("${jwt.legacy-hmac.accept-until:}") String legacyHmacAcceptUntil) {
+        this.algorithm = normalize(algorithm);
+        this.secretKey = StringUtils.hasText(secret)
+                ? Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8))
+                : null;
+
+        if ("HS256".equals(this.algorithm)) {
+            if (secretKey == null) {
+                throw new IllegalStateException("jwt.secret is required when jwt.algorithm is HS256");
+            }
+            this.privateKey = null;
+            this.signatureAlgorithm = null;
+            this.activeKeyId = null;
+            this.publicKeys = Collections.emptyMap();
+        } else {
+            this.signatureAlgorithm = "ES256".equals(this.algorithm) ? Jwts.SIG.ES256 : Jwts.SIG.EdDSA;
+
+            Map<String, PublicKey> keys = new LinkedHashMap<>();
+            if (StringUtils.hasText(privateKey) && StringUtils.hasText(publicKey)) {
+                this.activeKeyId = StringUtils.hasText(keyId) ? keyId : "default";
+                this.privateKey = decodePrivateKey(privateKey);
+                keys.put(activeKeyId, decodePublicKey(publicKey));
+            } else {
+                KeyPair pair = generateKeyPair();
+                this.activeKeyId = "ephemeral-" + UUID.randomUUID();
+                this.privateKey = pair.getPrivate();
+                keys.put(activeKeyId, pair.getPublic());
+                log.warn("No jwt.signing keys configured, generated ephemeral {} key {}. "
+                        + "Tokens will not survive a restart or verify on other instances.",
+                        this.algorithm, activeKeyId);
+            }
+            keys.putAll(parsePreviousKeys(previousPublicKeys));
+            this.publicKeys = Collections.unmodifiableMap(keys);
+        }
+
+        this.legacyHmacAcceptUntil = parseAcceptUntil(legacyHmacAcceptUntil);
+        this.jwksJson = buildJwksJson();
+        this.jwksEtag = "\"" + DigestUtils.md5DigestAsHex(jwksJson.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Sign a token with the active key, adding the kid header in asymmetric mode
+     *
+     * @param builder Builder with claims already set
+     * @return the same builder
+     */
+    public JwtBuilder sign(JwtBuilder builder) {
+        if (signatureAlgorithm == null) {
+            return builder.signWith(secretKey);
+        }
+        return builder.header().keyId(activeKeyId).and()
+                .signWith(privateKey, signatureAlgorithm);
+    }
+
+    /**
+     * Build a thread-safe parser that verifies with the matching key
+     *
+     * @return JwtParser
+     */
+    public JwtParser buildParser() {
+        if (signatureAlgorithm == null) {
+            return Jwts.parser().verifyWith(secretKey).build();
+        }
+        return Jwts.parser().keyLocator(new LocatorAdapter<Key>() {
+            @Override
+            protected Key locate(ProtectedHeader header) {
+                String kid = header.getKeyId();
+                if (kid == null) {
+                    // HMAC tokens issued before the switch to asymmetric signing, for a limited time
+                    return header.getAlgorithm() != null && header.getAlgorithm().startsWith("HS")
+                            && acceptsLegacyHmac()
+                            ? secretKey
+                            : null;
+                }
+                return publicKeys.get(kid);
+            }
+        }).build();
+    }
+
+    /**
+     * Get the JWK set of all trusted public keys (empty in HS256 mode)
+     *
+     * @return JWK set JSON
+     */
+    public String getJwksJson() {
+        return jwksJson;
+    }
+
+    /**
+     * Get the strong ETag of the JWK set
+     *
+     * @return quoted ETag value
+     */
+    public String getJwksEtag() {
+        return jwksEtag;
+    }
+
+    /**
+     * Get the configured signing algorithm
+     *
+     * @return HS256, ES256 or EdDSA
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Get the kid of the active signing key
+     *
+     * @return kid, or null in HS256 mode
+     */
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    private boolean acceptsLegacyHmac() {
+        return secretKey != null && legacyHmacAcceptUntil != null && Instant.now().isBefore(legacyHmacAcceptUntil);
+    }
+
+    private static Instant parseAcceptUntil(String acceptUntil) {
+        if (!StringUtils.hasText(acceptUntil)) {
+            return null;
+        }
+        try {
+            return Instant.parse(acceptUntil.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalStateException("jwt.legacy-hmac.accept-until must be an ISO-8601 instant", e);
+        }
+    }
+
+    private String buildJwksJson() {
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        publicKeys.forEach((kid, key) -> {
+            Map<String, Object> jwk = new LinkedHashMap<>(Jwks.builder().key(key).build());
+            jwk.put("kid", kid);
+            jwk.put("alg", signatureAlgorithm.getId());
+            jwk.put("use", "sig");
+            jwks.add(jwk);
+        });
+        try {
+            return new ObjectMapper().writeValueAsString(Map.of("keys", jwks));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize JWK set", e);
+        }
+    }
+
+    private Map<String, PublicKey> parsePreviousKeys(String previousPublicKeys) {
+        Map<String, PublicKey> keys = new LinkedHashMap<>();
+        if (!StringUtils.hasText(previousPublicKeys)) {
+            return keys;
+        }
+        for (String entry : previousPublicKeys.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException("jwt.signing.previous-public-keys entries must be kid:base64X509");
+            }
+            keys.put(entry.substring(0, separator).trim(), decodePublicKey(entry.substring(separator + 1).trim()));
+        }
+        return keys;
+    }
+
+    private PrivateKey decodePrivateKey(String base64) {
+        try {
+            return keyFactory().generatePrivate(new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(base64)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid jwt.signing.private-key for " + algorithm, e);
+        }
+    }
+
+    private PublicKey decodePublicKey(String base64) {
+        try {
+            return keyFactory().generatePublic(new X509EncodedKeySpec(Base64.getMimeDecoder().decode(base64)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid jwt.signing public key for " + algorithm, e);
+        }
+    }
+
+    private KeyFactory keyFactory() throws GeneralSecurityException {
+        return KeyFactory.getInstance("ES256".equals(algorithm) ? "EC" : "Ed25519");
+    }
+
+    private KeyPair generateKeyPair() {
+        try {
+            if ("ES256".equals(algorithm)) {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                return generator.generateKeyPair();
+            }
+            return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to generate " + algorithm + " key pair", e);
+        }
+    }
+
+    private static String normalize(String algorithm) {
+        if (!StringUtils.hasText(algorithm) || "HS256".equalsIgnoreCase(algorithm)) {
+            return "HS256";
+        }
+        if ("ES256".equalsIgnoreCase(algorithm)) {
+            return "ES256";
+        }
+        if ("EdDSA".equalsIgnoreCase(algorithm) || "Ed25519".equalsIgnoreCase(algorithm)) {
+            return "EdDSA";
+        }
+        throw new IllegalStateException("Unsupported jwt.algorithm: " + algorithm);
+    }
+}
@@ -0,0 +1,176 @@
+package com.yushan.user_service.security;
+
+import com.yushan.user_service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Password Hasher
+ *
+ * Runs BCrypt on a dedicated pool sized to the CPU count, so hashing spikes can't
+ * starve request threads. The queue is bounded: when it is full, callers get a
+ * ServiceUnavailableException (HTTP 503 with Retry-After) instead of waiting.
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    private static final String BUSY_MESSAGE = "Server is busy, please retry shortly";
+
+    private final ThreadPoolExecutor executor;
+
+    private final int cost;
+
+    private final long timeoutMs;
+
+    private final long retryAfterSeconds;
+
+    private final Timer hashTimer;
+
+    private final Timer verifyTimer;
+
+    private final Timer queueWaitTimer;
+
+    private final Counter rejectedCounter;
+
+    public PasswordHasher(MeterRegistry meterRegistry,
+                          @Value("${password.hash.threads:0}") int threads,
+                          @Value("${password.hash.queue-capacity:64}") int queueCapacity,
+                          @Value("${password.bcrypt.cost:10}") int cost,
+                          @Value("${password.hash.timeout-ms:5000}") long timeoutMs,
+                          @Value("${password.hash.retry-after-seconds:1}") long retryAfterSeconds) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.cost = cost;
+        this.timeoutMs = timeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.hashTimer = Timer.builder("auth.password.hash.duration").tag("operation", "hash").register(meterRegistry);
+        this.verifyTimer = Timer.builder("auth.password.hash.duration").tag("operation", "verify").register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("auth.password.hash.queue.wait").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.password.hash.rejected").register(meterRegistry);
+        Gauge.builder("auth.password.hash.queue.size", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    /**
+     * Hash a password with the configured cost
+     *
+     * @param rawPassword Plain text password
+     * @return BCrypt hash
+     */
+    public String hash(String rawPassword) {
+        return await(submit(hashTimer, () -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(cost))));
+    }
+
+    /**
+     * Check a password against a stored hash
+     *
+     * @param rawPassword Plain text password
+     * @param hashedPassword Stored BCrypt hash
+     * @return true if the password matches
+     */
+    public boolean matches(String rawPassword, String hashedPassword) {
+        if (hashedPassword == null) {
+            return false;
+        }
+        return await(submit(verifyTimer, () -> BCrypt.checkpw(rawPassword, hashedPassword)));
+    }
+
+    /**
+     * Hash a password in the background, e.g. to upgrade a stored hash after login
+     *
+     * @param rawPassword Plain text password
+     * @return future hash, completed exceptionally if the pool is saturated
+     */
+    public CompletableFuture<String> hashAsync(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(timed(hashTimer, System.nanoTime(),
+                    () -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(cost))), executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Check whether a stored hash was made with a different cost than configured
+     *
+     * @param hashedPassword Stored BCrypt hash ($2a$NN$...)
+     * @return true if the hash should be upgraded
+     */
+    public boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(3) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6)) != cost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> Future<T> submit(Timer timer, Supplier<T> work) {
+        try {
+            return executor.submit(timed(timer, System.nanoTime(), work)::get);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Password hashing pool saturated ({} queued), rejecting request", executor.getQueue().size());
+            throw new ServiceUnavailableException(BUSY_MESSAGE, retryAfterSeconds, e);
+        }
+    }
+
+    private <T> Supplier<T> timed(Timer timer, long submittedAt, Supplier<T> work) {
+        return () -> {
+            queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            return timer.record(work);
+        };
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceUnavailableException(BUSY_MESSAGE, retryAfterSeconds, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(BUSY_MESSAGE, retryAfterSeconds, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.yushan.user_service.security;
+
+import com.yushan.user_service.util.RedisUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis-backed refresh token family store
+ *
+ * Each family is a hash {@code rt:{<userId>}:family:<fid>} holding userId and the
+ * current jti, and each user has a set {@code rt:{<userId>}:families} of family IDs.
+ * The user ID is the hash tag, so all keys of a user live in one Redis Cluster slot,
+ * and every script is handed all the keys it touches through KEYS. Every operation is
+ * one Lua script or SET NX, so it runs atomically in a single round trip. Refresh tokens
+ * from before token families are claimed with a {@code rt:{<userId>}:legacy:<jti>} key.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh-store.type", havingValue = "redis", matchIfMissing = true)
+public class RedisRefreshTokenStore implements RefreshTokenStore {
+
+    private static final String KEY_PREFIX = "rt:{";
+    private static final String FAMILY_KEY_INFIX = "}:family:";
+    private static final String USER_KEY_SUFFIX = "}:families";
+    private static final String LEGACY_KEY_INFIX = "}:legacy:";
+
+    private static final RedisScript<Long> CREATE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HSET', KEYS[1], 'userId', ARGV[1], 'jti', ARGV[2]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[3]) "
+                    + "redis.call('SADD', KEYS[2], ARGV[4]) "
+                    + "redis.call('PEXPIRE', KEYS[2], ARGV[3]) "
+                    + "return 1", Long.class);
+
+    // 1 = rotated, 0 = reused (family deleted), -1 = unknown family
+    private static final RedisScript<Long> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], 'jti') "
+                    + "if not current then return -1 end "
+                    + "if current ~= ARGV[1] then "
+                    + "  redis.call('DEL', KEYS[1]) "
+                    + "  redis.call('SREM', KEYS[2], ARGV[3]) "
+                    + "  return 0 "
+                    + "end "
+                    + "redis.call('HSET', KEYS[1], 'jti', ARGV[2]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[4]) "
+                    + "redis.call('PEXPIRE', KEYS[2], ARGV[4]) "
+                    + "return 1", Long.class);
+
+    private static final RedisScript<Long> REVOKE_FAMILY_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('SREM', KEYS[2], ARGV[1]) "
+                    + "return 1", Long.class);
+
+    // KEYS[1] is the user set, the other keys are the families listed in ARGV; returns the families left
+    private static final RedisScript<Long> REVOKE_USER_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #KEYS do redis.call('DEL', KEYS[i]) end "
+                    + "redis.call('SREM', KEYS[1], unpack(ARGV)) "
+                    + "return redis.call('SCARD', KEYS[1])", Long.class);
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Override
+    public void create(String familyId, UUID userId, String jti, long ttlMs) {
+        redisUtil.execute(CREATE_SCRIPT, List.of(familyKey(userId, familyId), userKey(userId)),
+                userId.toString(), jti, String.valueOf(ttlMs), familyId);
+    }
+
+    @Override
+    public RotationResult rotate(String familyId, UUID userId, String presentedJti, String nextJti, long ttlMs) {
+        Long result = redisUtil.execute(ROTATE_SCRIPT, List.of(familyKey(userId, familyId), userKey(userId)),
+                presentedJti, nextJti, familyId, String.valueOf(ttlMs));
+        if (result == null || result < 0) {
+            return RotationResult.UNKNOWN;
+        }
+        return result == 1 ? RotationResult.ROTATED : RotationResult.REUSED;
+    }
+
+    @Override
+    public boolean claimLegacy(UUID userId, String jti, long ttlMs) {
+        return redisUtil.setIfAbsent(KEY_PREFIX + userId + LEGACY_KEY_INFIX + jti, "1", ttlMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void revokeFamily(String familyId, UUID userId) {
+        redisUtil.execute(REVOKE_FAMILY_SCRIPT, List.of(familyKey(userId, familyId), userKey(userId)), familyId);
+    }
+
+    @Override
+    public void revokeAllForUser(UUID userId) {
+        String userKey = userKey(userId);
+        Set<String> familyIds = redisUtil.sMembers(userKey);
+        // a family started while the members were read is left for the next round
+        while (familyIds != null && !familyIds.isEmpty()) {
+            List<String> keys = new ArrayList<>(familyIds.size() + 1);
+            keys.add(userKey);
+            familyIds.forEach(familyId -> keys.add(familyKey(userId, familyId)));
+            Long remaining = redisUtil.execute(REVOKE_USER_SCRIPT, keys, familyIds.toArray());
+            if (remaining == null || remaining == 0) {
+                return;
+            }
+            familyIds = redisUtil.sMembers(userKey);
+        }
+    }
+
+    private static String familyKey(UUID userId, String familyId) {
+        return KEY_PREFIX + userId + FAMILY_KEY_INFIX + familyId;
+    }
+
+    private static String userKey(UUID userId) {
+        return KEY_PREFIX + userId + USER_KEY_SUFFIX;
+    }
+}
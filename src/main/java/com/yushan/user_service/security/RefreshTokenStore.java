@@ -0,0 +1,69 @@
+package com.yushan.user_service.security;
+
+import java.util.UUID;
+
+/**
+ * Refresh Token Family Store
+ *
+ * Every login starts a family; each refresh rotates the family to a new token ID.
+ * Presenting any token ID other than the current one means the token was replayed,
+ * so the whole family is revoked. Families are stored under their user, so every
+ * operation names the user too. All operations are O(1) lookups by family ID
+ * (revokeAllForUser is O(families of the user)).
+ */
+public interface RefreshTokenStore {
+
+    /**
+     * Start a family for a fresh login
+     *
+     * @param familyId Family ID carried in the fid claim
+     * @param userId User UUID
+     * @param jti ID of the first refresh token
+     * @param ttlMs Lifetime of the refresh token
+     */
+    void create(String familyId, UUID userId, String jti, long ttlMs);
+
+    /**
+     * Atomically swap the family's current token ID
+     *
+     * @param familyId Family ID
+     * @param userId User UUID of the refresh token being used
+     * @param presentedJti ID of the refresh token being used
+     * @param nextJti ID of the refresh token about to be issued
+     * @param ttlMs Lifetime of the new refresh token
+     * @return ROTATED, REUSED (family revoked) or UNKNOWN (no such family)
+     */
+    RotationResult rotate(String familyId, UUID userId, String presentedJti, String nextJti, long ttlMs);
+
+    /**
+     * Atomically claim a refresh token issued before token families existed; each such
+     * token can be claimed once
+     *
+     * @param userId User UUID of the refresh token
+     * @param jti ID of the refresh token
+     * @param ttlMs Remaining lifetime of the refresh token, the claim is kept as long
+     * @return true for the first claim, false if the token has been used before
+     */
+    boolean claimLegacy(UUID userId, String jti, long ttlMs);
+
+    /**
+     * Revoke one family (logout on one device)
+     *
+     * @param familyId Family ID
+     * @param userId User UUID of the family
+     */
+    void revokeFamily(String familyId, UUID userId);
+
+    /**
+     * Revoke every family of a user (sign out all devices)
+     *
+     * @param userId User UUID
+     */
+    void revokeAllForUser(UUID userId);
+
+    enum RotationResult {
+        ROTATED,
+        REUSED,
+        UNKNOWN
+    }
+}
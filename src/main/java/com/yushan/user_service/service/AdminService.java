@@ -25,6 +25,12 @@ public class AdminService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     /**
      * Promote user to admin by email
      */
@@ -48,6 +54,7 @@ public class AdminService {
         user.setIsAdmin(true);
         user.setUpdateTime(new Date());
         userMapper.updateByPrimaryKeySelective(user);
+        userProfileCache.invalidate(user.getUuid());
 
         // Return updated user profile
         return userService.getUserProfile(user.getUuid());
@@ -78,6 +85,11 @@ public class AdminService {
         userToUpdate.setUpdateTime(new Date());
 
         userMapper.updateByPrimaryKeySelective(userToUpdate);
+        if (newStatus == UserStatus.SUSPENDED || newStatus == UserStatus.BANNED) {
+            // kill outstanding tokens on every node, not just this one's principal cache
+            tokenRevocationService.revokeAllForUser(userUuid);
+        }
+        userProfileCache.invalidate(userUuid);
     }
 
     private UserProfileResponseDTO mapToProfileResponse(User user) {
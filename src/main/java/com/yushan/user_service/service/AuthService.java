@@ -7,39 +7,68 @@ import com.yushan.user_service.dto.UserAuthResponseDTO;
 import com.yushan.user_service.entity.Library;
 import com.yushan.user_service.entity.User;
 import com.yushan.user_service.enums.Gender;
+import com.yushan.user_service.enums.RegistrationResult;
 import com.yushan.user_service.enums.UserStatus;
 import com.yushan.user_service.event.UserEventProducer;
 import com.yushan.user_service.event.dto.UserLoggedInEvent;
 import com.yushan.user_service.event.dto.UserRegisteredEvent;
 import com.yushan.user_service.exception.ValidationException;
+import com.yushan.user_service.security.PasswordHasher;
+import com.yushan.user_service.security.RefreshTokenStore;
+import com.yushan.user_service.util.JwtClaims;
 import com.yushan.user_service.util.JwtUtil;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Objects;
 import java.util.UUID;
 
+@Slf4j
 @Service
 public class AuthService {
 
     @Autowired
     private UserMapper userMapper;
 
-    @Autowired
-    private LibraryMapper libraryMapper;
-
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private UserEventProducer userEventProducer;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenStore refreshTokenStore;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private LoginSideEffectPipeline loginSideEffectPipeline;
+
+    @Autowired
+    private LibraryMapper libraryMapper;
+
+    @Value("${auth.registration.single-statement:true}")
+    private boolean singleStatementRegistration;
+
     @Value("${jwt.access-token.expiration}")
     private long accessTokenExpiration;
 
+    @Value("${jwt.refresh-token.expiration}")
+    private long refreshTokenExpiration;
+
     /**
      * register a new user
      * @param registrationDTO
@@ -47,11 +76,6 @@ public class AuthService {
      */
     @Transactional(rollbackFor = Exception.class)
     public User register(UserRegistrationRequestDTO registrationDTO) {
-        // check if email existed
-        if (userMapper.selectByEmail(registrationDTO.getEmail()) != null) {
-            throw new ValidationException("Email was registered");
-        }
-
         User user = new User();
         user.setUuid(UUID.randomUUID());
         user.setEmail(registrationDTO.getEmail());
@@ -79,6 +103,27 @@ public class AuthService {
         user.setIsAuthor(false);
         user.setIsAdmin(false);
 
+        if (!singleStatementRegistration) {
+            return insertWithSeparateStatements(user);
+        }
+
+        // insert user and library in one statement, the unique email index decides conflicts
+        if (userMapper.insertWithLibrary(user, UUID.randomUUID()) == RegistrationResult.EMAIL_TAKEN) {
+            throw new ValidationException("Email was registered");
+        }
+        return user;
+    }
+
+    /**
+     * register with check, insert and library creation as separate statements,
+     * for databases without data-modifying CTEs
+     * @param user
+     * @return
+     */
+    private User insertWithSeparateStatements(User user) {
+        if (userMapper.selectByEmail(user.getEmail()) != null) {
+            throw new ValidationException("Email was registered");
+        }
         userMapper.insert(user);
 
         // create user library
@@ -109,11 +154,12 @@ public class AuthService {
                 user.getLastLogin(),
                 user.getLastActive()
         );
+        // goes to the outbox in this transaction, the relay publishes it after commit
         userEventProducer.sendUserRegisteredEvent(event);
 
         // Generate JWT tokens for auto-login after registration
         String accessToken = jwtUtil.generateAccessToken(user);
-        String refreshToken = jwtUtil.generateRefreshToken(user);
+        String refreshToken = issueRefreshToken(user);
 
         UserAuthResponseDTO responseDTO = createUserResponse(user);
         responseDTO.setAccessToken(accessToken);
@@ -131,15 +177,10 @@ public class AuthService {
      */
     public User login(String email, String password) {
         User user = userMapper.selectByEmail(email);
-        if (user != null && BCrypt.checkpw(password, user.getHashPassword())) {
+        if (user != null && passwordHasher.matches(password, user.getHashPassword())) {
             // Check if user is suspended or banned
-            UserStatus status = UserStatus.fromCode(user.getStatus());
-            if (status == UserStatus.SUSPENDED) {
-                throw new ValidationException("Account is suspended. Please contact support.");
-            }
-            if (status == UserStatus.BANNED) {
-                throw new ValidationException("Account is banned. Please contact support.");
-            }
+            checkAccountStatus(user);
+            upgradePasswordHashIfNeeded(user, password);
             return user;
         }
         else {
@@ -158,7 +199,7 @@ public class AuthService {
 
         // Generate JWT tokens
         String accessToken = jwtUtil.generateAccessToken(user);
-        String refreshToken = jwtUtil.generateRefreshToken(user);
+        String refreshToken = issueRefreshToken(user);
 
         UserLoggedInEvent event = new UserLoggedInEvent(
                 user.getUuid(),
@@ -169,9 +210,10 @@ public class AuthService {
                 user.getLastLogin(),
                 user.getLastActive()
         );
-        userEventProducer.sendUserLoggedInEvent(event);
 
+        // last login write and event publishing happen in the background
         Date now = new Date();
+        loginSideEffectPipeline.submit(event, now);
         user.setLastLogin(now);
         user.setLastActive(now);
 
@@ -181,8 +223,6 @@ public class AuthService {
         responseDTO.setRefreshToken(refreshToken);
         responseDTO.setTokenType("Bearer");
         responseDTO.setExpiresIn(accessTokenExpiration);
-
-        userMapper.updateByPrimaryKeySelective(user);
         return responseDTO;
     }
 
@@ -192,32 +232,74 @@ public class AuthService {
      * @return
      */
     public UserAuthResponseDTO refreshToken(String refreshToken) {
-        // Validate refresh token
-        if (!jwtUtil.validateToken(refreshToken)) {
+        // Validate refresh token (signature and expiry checked in a single parse)
+        JwtClaims claims = jwtUtil.parseAndValidate(refreshToken);
+        if (claims == null) {
             throw new ValidationException("Invalid refresh token");
         }
 
         // Check if it's actually a refresh token
-        if (!jwtUtil.isRefreshToken(refreshToken)) {
+        if (!claims.isRefreshToken()) {
             throw new ValidationException("Token is not a refresh token");
         }
 
-        // Extract user info from refresh token
-        String email = jwtUtil.extractEmail(refreshToken);
-        String userId = jwtUtil.extractUserId(refreshToken);
+        UUID userId = parseUserId(claims);
+        if (userId == null) {
+            throw new ValidationException("Invalid refresh token");
+        }
 
-        // Load user from database
-        User user = userMapper.selectByEmail(email);
+        // Rotate the token family: one use per refresh token, replay kills the family
+        String familyId = claims.familyId();
+        String nextJti = UUID.randomUUID().toString();
+        if (familyId == null) {
+            // issued before token families existed: claim it atomically, once, and move it into a new family
+            if (claims.jti() == null || tokenRevocationService.isRevoked(claims)
+                    || !refreshTokenStore.claimLegacy(userId, claims.jti(), remainingLifetimeMs(claims))) {
+                throw new ValidationException("Invalid refresh token");
+            }
+            familyId = UUID.randomUUID().toString();
+            refreshTokenStore.create(familyId, userId, nextJti, refreshTokenExpiration);
+        } else {
+            RefreshTokenStore.RotationResult result =
+                    refreshTokenStore.rotate(familyId, userId, claims.jti(), nextJti, refreshTokenExpiration);
+            if (result == RefreshTokenStore.RotationResult.REUSED) {
+                log.warn("Refresh token reuse detected for user {}, revoked token family {}", userId, familyId);
+                throw new ValidationException("Refresh token has already been used");
+            }
+            if (result == RefreshTokenStore.RotationResult.UNKNOWN) {
+                throw new ValidationException("Invalid refresh token");
+            }
+        }
 
-        if (user == null || !user.getUuid().toString().equals(userId)) {
+        // Email, status and roles come from the users table, never from a possibly stale cached profile
+        User principal = userMapper.selectAuthPrincipalByUuid(userId);
+        if (principal == null || !principal.getEmail().equals(claims.email())) {
+            refreshTokenStore.revokeFamily(familyId, userId);
             throw new ValidationException("User not found or token mismatch");
         }
+        try {
+            checkAccountStatus(principal);
+        } catch (ValidationException e) {
+            refreshTokenStore.revokeFamily(familyId, userId);
+            throw e;
+        }
+
+        // The response carries the full profile from the cache, reloaded if it disagrees with the row
+        User user = userProfileCache.get(userId);
+        if (user == null || !sameAuthFields(user, principal)) {
+            userProfileCache.invalidate(userId);
+            user = userProfileCache.get(userId);
+            if (user == null) {
+                refreshTokenStore.revokeFamily(familyId, userId);
+                throw new ValidationException("User not found or token mismatch");
+            }
+        }
 
         // Generate new access token
         String newAccessToken = jwtUtil.generateAccessToken(user);
 
-        // Optionally generate new refresh token (token rotation)
-        String newRefreshToken = jwtUtil.generateRefreshToken(user);
+        // Generate the next refresh token of the family
+        String newRefreshToken = jwtUtil.generateRefreshToken(user, familyId, nextJti);
 
         UserAuthResponseDTO responseDTO = createUserResponse(user);
         responseDTO.setAccessToken(newAccessToken);
@@ -227,13 +309,116 @@ public class AuthService {
         return responseDTO;
     }
 
+    private static void checkAccountStatus(User user) {
+        UserStatus status = UserStatus.fromCode(user.getStatus());
+        if (status == UserStatus.SUSPENDED) {
+            throw new ValidationException("Account is suspended. Please contact support.");
+        }
+        if (status == UserStatus.BANNED) {
+            throw new ValidationException("Account is banned. Please contact support.");
+        }
+    }
+
+    private static boolean sameAuthFields(User cached, User principal) {
+        return Objects.equals(cached.getEmail(), principal.getEmail())
+                && Objects.equals(cached.getStatus(), principal.getStatus())
+                && Objects.equals(cached.getIsAuthor(), principal.getIsAuthor())
+                && Objects.equals(cached.getIsAdmin(), principal.getIsAdmin());
+    }
+
+    /**
+     * logout: revoke the presented access token and, if given, the refresh token
+     * @param accessToken
+     * @param refreshToken
+     */
+    public void logout(String accessToken, String refreshToken) {
+        JwtClaims accessClaims = jwtUtil.parseAndValidate(accessToken);
+        if (accessClaims != null) {
+            tokenRevocationService.revoke(accessClaims);
+        }
+
+        JwtClaims refreshClaims = jwtUtil.parseAndValidate(refreshToken);
+        if (refreshClaims != null && refreshClaims.isRefreshToken()) {
+            tokenRevocationService.revoke(refreshClaims);
+            UUID userId = parseUserId(refreshClaims);
+            if (refreshClaims.familyId() != null && userId != null) {
+                refreshTokenStore.revokeFamily(refreshClaims.familyId(), userId);
+            }
+        }
+    }
+
+    /**
+     * sign out all devices: revoke every token and refresh token family of a user
+     * @param userId
+     */
+    public void logoutAll(UUID userId) {
+        tokenRevocationService.revokeAllForUser(userId);
+    }
+
+    /**
+     * start a refresh token family for a fresh login
+     * @param user
+     * @return
+     */
+    private String issueRefreshToken(User user) {
+        String familyId = UUID.randomUUID().toString();
+        String jti = UUID.randomUUID().toString();
+        refreshTokenStore.create(familyId, user.getUuid(), jti, refreshTokenExpiration);
+        return jwtUtil.generateRefreshToken(user, familyId, jti);
+    }
+
+    /**
+     * read the user UUID carried in a token
+     * @param claims
+     * @return user UUID, or null if the token carries none
+     */
+    private UUID parseUserId(JwtClaims claims) {
+        try {
+            return UUID.fromString(claims.userId());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    /**
+     * remaining lifetime of a token, at least 1 ms
+     * @param claims
+     * @return milliseconds until the token expires
+     */
+    private long remainingLifetimeMs(JwtClaims claims) {
+        if (claims.expiresAt() == null) {
+            return refreshTokenExpiration;
+        }
+        return Math.max(1L, Duration.between(Instant.now(), claims.expiresAt()).toMillis());
+    }
+
     /**
      * hash password
      * @param password
      * @return
      */
     private String hashPassword(String password) {
-        return BCrypt.hashpw(password, BCrypt.gensalt());
+        return passwordHasher.hash(password);
+    }
+
+    /**
+     * re-hash the password in the background if it was stored with an outdated cost
+     * @param user
+     * @param password
+     */
+    private void upgradePasswordHashIfNeeded(User user, String password) {
+        if (!passwordHasher.needsRehash(user.getHashPassword())) {
+            return;
+        }
+        UUID userId = user.getUuid();
+        String oldHash = user.getHashPassword();
+        passwordHasher.hashAsync(password)
+                .thenAccept(hash -> userMapper.updatePasswordHash(userId, oldHash, hash))
+                .exceptionally(e -> {
+                    // retried on the next login
+                    log.debug("Skipped password re-hash for user {}: {}", userId, e.getMessage());
+                    return null;
+                });
     }
 
     /**
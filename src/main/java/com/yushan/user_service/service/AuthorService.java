@@ -20,6 +20,9 @@ public class AuthorService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserProfileCache userProfileCache;
+
     /**
      * Upgrade user to author with verification code
      */
@@ -48,6 +51,7 @@ public class AuthorService {
         user.setIsAuthor(true);
         user.setUpdateTime(new Date());
         userMapper.updateByPrimaryKeySelective(user);
+        userProfileCache.invalidate(user.getUuid());
         
         // Return updated user profile
         return userService.getUserProfile(user.getUuid());
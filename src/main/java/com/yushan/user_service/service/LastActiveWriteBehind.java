@@ -0,0 +1,216 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.dao.UserMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last Active Write-Behind
+ *
+ * Buffers the latest activity time per user in memory and writes the dirty entries
+ * to Postgres periodically as one UPDATE ... FROM (VALUES ...) per batch, instead of
+ * a read and full-row update per activity event. The buffer holds at most one entry
+ * per user and is bounded; activity for new users beyond the bound is dropped and
+ * counted. Entries from a failed flush are merged back and retried on the next run.
+ *
+ * A user is written at most once per {@code user.last-active.min-write-interval-ms}
+ * (5 minutes, as the Redis skip key this replaces); newer activity in between stays
+ * buffered until the interval has passed. Callers can pass a callback, such as a Kafka
+ * acknowledgment, which runs after the first successful flush that follows the record.
+ * Entries held back by the write interval do not delay it: losing them in a crash costs
+ * no more than the interval, like the skipped updates before.
+ *
+ * The flush runs on its own thread, not the shared scheduler.
+ */
+@Slf4j
+@Service
+public class LastActiveWriteBehind {
+
+    private final UserMapper userMapper;
+
+    private final int maxPending;
+
+    private final int maxBatchSize;
+
+    private final long flushIntervalMs;
+
+    private final long minWriteIntervalMs;
+
+    private final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+
+    private final Queue<Runnable> flushCallbacks = new ConcurrentLinkedQueue<>();
+
+    // callbacks of records whose flush failed, run after the next successful one; flush thread only
+    private final List<Runnable> retryCallbacks = new ArrayList<>();
+
+    // last write per user within the write interval; flush thread only
+    private final Map<UUID, Long> lastWritten = new HashMap<>();
+
+    private final DistributionSummary flushSize;
+
+    private final Timer flushLag;
+
+    private final Counter droppedCounter;
+
+    private final Counter failedCounter;
+
+    private final ScheduledExecutorService scheduler;
+
+    public LastActiveWriteBehind(UserMapper userMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${user.last-active.max-pending:200000}") int maxPending,
+                                 @Value("${user.last-active.max-batch-size:1000}") int maxBatchSize,
+                                 @Value("${user.last-active.flush-interval-ms:5000}") long flushIntervalMs,
+                                 @Value("${user.last-active.min-write-interval-ms:300000}") long minWriteIntervalMs) {
+        this.userMapper = userMapper;
+        this.maxPending = maxPending;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.minWriteIntervalMs = minWriteIntervalMs;
+        this.flushSize = DistributionSummary.builder("user.last_active.flush.size").register(meterRegistry);
+        this.flushLag = Timer.builder("user.last_active.flush.lag").register(meterRegistry);
+        this.droppedCounter = Counter.builder("user.last_active.dropped").register(meterRegistry);
+        this.failedCounter = Counter.builder("user.last_active.flush.failed").register(meterRegistry);
+        meterRegistry.gauge("user.last_active.pending", pending, Map::size);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "last-active-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        flush(true);
+    }
+
+    /**
+     * Record a compacted batch of activity, keeping only the latest time per user until
+     * it is written
+     *
+     * @param activity Latest activity time per user
+     * @param onFlushed Run once a flush after this record has succeeded, may be null
+     */
+    public void record(Map<UUID, Instant> activity, Runnable onFlushed) {
+        long now = System.currentTimeMillis();
+        activity.forEach((userId, activeAt) -> merge(userId, new Pending(activeAt.toEpochMilli(), now)));
+        if (onFlushed != null) {
+            flushCallbacks.add(onFlushed);
+        }
+    }
+
+    /**
+     * Write the dirty entries of users outside their write interval to the database
+     */
+    public void flush() {
+        flush(false);
+    }
+
+    private synchronized void flush(boolean all) {
+        // callbacks taken first belong to records already merged into the buffer
+        List<Runnable> callbacks = new ArrayList<>(retryCallbacks);
+        retryCallbacks.clear();
+        for (Runnable callback = flushCallbacks.poll(); callback != null; callback = flushCallbacks.poll()) {
+            callbacks.add(callback);
+        }
+
+        long now = System.currentTimeMillis();
+        lastWritten.values().removeIf(writtenAt -> now - writtenAt >= minWriteIntervalMs);
+
+        boolean succeeded = true;
+        Map<UUID, Pending> batch = new TreeMap<>(UserMapper.ROW_LOCK_ORDER);
+        for (UUID userId : new ArrayList<>(pending.keySet())) {
+            if (!all && lastWritten.containsKey(userId)) {
+                continue;
+            }
+            Pending entry = pending.remove(userId);
+            if (entry != null) {
+                batch.put(userId, entry);
+            }
+            if (batch.size() >= maxBatchSize) {
+                succeeded &= writeBatch(batch, now);
+                batch = new TreeMap<>(UserMapper.ROW_LOCK_ORDER);
+            }
+        }
+        if (!batch.isEmpty()) {
+            succeeded &= writeBatch(batch, now);
+        }
+
+        if (succeeded) {
+            callbacks.forEach(LastActiveWriteBehind::runCallback);
+        } else {
+            retryCallbacks.addAll(callbacks);
+        }
+    }
+
+    private boolean writeBatch(Map<UUID, Pending> batch, long now) {
+        Map<UUID, Date> updates = new TreeMap<>(UserMapper.ROW_LOCK_ORDER);
+        long oldestDirty = Long.MAX_VALUE;
+        for (Map.Entry<UUID, Pending> entry : batch.entrySet()) {
+            updates.put(entry.getKey(), new Date(entry.getValue().activeAt()));
+            oldestDirty = Math.min(oldestDirty, entry.getValue().dirtySince());
+        }
+        try {
+            userMapper.updateLastActiveBatch(updates);
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("Failed to flush last active time for {} users, retrying on next flush", updates.size(), e);
+            batch.forEach(this::merge);
+            return false;
+        }
+        updates.keySet().forEach(userId -> lastWritten.put(userId, now));
+        flushSize.record(updates.size());
+        flushLag.record(System.currentTimeMillis() - oldestDirty, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private void merge(UUID userId, Pending next) {
+        if (pending.size() >= maxPending && !pending.containsKey(userId)) {
+            droppedCounter.increment();
+            return;
+        }
+        pending.merge(userId, next, (current, incoming) -> new Pending(
+                Math.max(current.activeAt(), incoming.activeAt()),
+                Math.min(current.dirtySince(), incoming.dirtySince())));
+    }
+
+    private static void runCallback(Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            log.warn("Last active flush callback failed: {}", e.getMessage());
+        }
+    }
+
+    private record Pending(long activeAt, long dirtySince) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Library Cursor
+ *
+ * Position in a library listing: the sort value and id of the last entry returned. The
+ * next page starts right after it, whatever its offset. Clients get the cursor as an
+ * opaque URL-safe token; the sort column and order are part of it, so a cursor cannot
+ * be replayed against a different ordering.
+ *
+ * @param sort Sort column
+ * @param order Sort order, ASC or DESC
+ * @param sortValue Sort column value of the last entry, full precision; null if it has none
+ * @param id Id of the last entry, breaks ties between equal sort values
+ */
+public record LibraryCursor(String sort, String order, Instant sortValue, Integer id) {
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * Encode this cursor as an opaque token
+     *
+     * @return URL-safe token
+     */
+    public String encode() {
+        String raw = String.join(SEPARATOR, sort, order, sortValue != null ? sortValue.toString() : "", id.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token made by {@link #encode()}
+     *
+     * @param token Token from a client
+     * @return the cursor
+     * @throws ValidationException if the token is not a library cursor
+     */
+    public static LibraryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length != 4) {
+                throw new ValidationException("Invalid library cursor");
+            }
+            Instant sortValue = parts[2].isEmpty() ? null : Instant.parse(parts[2]);
+            return new LibraryCursor(parts[0], parts[1], sortValue, Integer.valueOf(parts[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("Invalid library cursor");
+        }
+    }
+}
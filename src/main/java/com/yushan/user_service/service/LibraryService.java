@@ -1,10 +1,14 @@
 package com.yushan.user_service.service;
 
+import com.yushan.user_service.client.CachingContentServiceClient;
+import com.yushan.user_service.client.ContentFanOut;
 import com.yushan.user_service.client.ContentServiceClient;
 import com.yushan.user_service.client.dto.ChapterInfoDTO;
 import com.yushan.user_service.client.dto.NovelInfoDTO;
 import com.yushan.user_service.dao.LibraryMapper;
 import com.yushan.user_service.dao.NovelLibraryMapper;
+import com.yushan.user_service.dto.ApiResponse;
+import com.yushan.user_service.dto.CursorPageResponseDTO;
 import com.yushan.user_service.dto.LibraryResponseDTO;
 import com.yushan.user_service.dto.PageResponseDTO;
 import com.yushan.user_service.entity.Library;
@@ -13,10 +17,13 @@ import com.yushan.user_service.enums.NovelStatus;
 import com.yushan.user_service.exception.ResourceNotFoundException;
 import com.yushan.user_service.exception.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.sql.Timestamp;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -24,6 +31,7 @@ import java.util.stream.Collectors;
 public class LibraryService {
 
     @Autowired
+    @Qualifier(CachingContentServiceClient.BEAN_NAME)
     private ContentServiceClient contentServiceClient;
 
     @Autowired
@@ -32,6 +40,20 @@ public class LibraryService {
     @Autowired
     private LibraryMapper libraryMapper;
 
+    @Autowired
+    private NovelStatusProjection novelStatusProjection;
+
+    @Autowired
+    private ContentFanOut contentFanOut;
+
+    // library novels without a projected status are left out of filtered pages: turn on
+    // once the novel status backfill has walked every library novel
+    @Value("${library.novel-status-projection.enabled:false}")
+    private boolean novelStatusProjectionEnabled;
+
+    @Value("${library.single-statement-writes:true}")
+    private boolean singleStatementWrites;
+
     /**
      * add novel to library
      * @param userId
@@ -39,7 +61,31 @@ public class LibraryService {
      * @return
      */
     public void addNovelToLibrary(UUID userId, Integer novelId, Integer progress) {
-        checkValidation(novelId, progress);
+        NovelInfoDTO novel = checkValidation(novelId, progress).novel().getData();
+        if (singleStatementWrites) {
+            // resolve the library and insert in one statement, the unique (library, novel) index decides conflicts
+            Integer inserted = novelLibraryMapper.insertByUserId(userId, novelId, progress);
+            if (inserted == null) {
+                throw new ResourceNotFoundException("User with ID " + userId + " does not have a library");
+            }
+            if (inserted == 0) {
+                throw new ValidationException("novel has existed in library");
+            }
+        } else {
+            insertWithSeparateStatements(userId, novelId, progress);
+        }
+        // listed right away, the projection may not have seen this novel yet
+        novelStatusProjection.recordIfAbsent(novel);
+    }
+
+    /**
+     * add novel with check, library lookup and insert as separate statements,
+     * for databases without data-modifying CTEs
+     * @param userId
+     * @param novelId
+     * @param progress
+     */
+    private void insertWithSeparateStatements(UUID userId, Integer novelId, Integer progress) {
         // check if already in library
         if (novelFromLibrary(userId, novelId) != null) {
             throw new ValidationException("novel has existed in library");
@@ -53,6 +99,7 @@ public class LibraryService {
             throw new ResourceNotFoundException("User with ID " + userId + " does not have a library");
         }
         novelLibrary.setLibraryId(library.getId());
+        novelLibrary.setUserId(userId);
 
         novelLibrary.setProgress(progress);
 
@@ -103,35 +150,128 @@ public class LibraryService {
      */
     @Transactional(readOnly = true)
     public PageResponseDTO<LibraryResponseDTO> getUserLibrary(UUID userId, int page, int size, String sort, String order) {
-        // get all novel ids in user's library
-        List<Integer> allNovelIds = novelLibraryMapper.selectNovelIdsByUserId(userId);
-        if (CollectionUtils.isEmpty(allNovelIds)) {
-            return new PageResponseDTO<>(Collections.emptyList(), 0, size, 0);
+        int offset = page * size;
+        String safeSort = "updateTime".equalsIgnoreCase(sort) ? "update_time" : "create_time";
+        String safeOrder = "asc".equalsIgnoreCase(order) ? "ASC" : "DESC";
+
+        long totalElements;
+        List<NovelLibrary> novelLibraries;
+        if (novelStatusProjectionEnabled) {
+            // published novels are filtered by joining the local novel_status projection
+            totalElements = novelLibraryMapper.countByUserIdAndStatus(userId, NovelStatus.PUBLISHED.getValue());
+            if (totalElements == 0) {
+                return new PageResponseDTO<>(Collections.emptyList(), 0L, page, size);
+            }
+            novelLibraries = novelLibraryMapper.selectByUserIdAndStatusWithPagination(userId, NovelStatus.PUBLISHED.getValue(), offset, size, safeSort, safeOrder);
+        } else {
+            List<Integer> publishedNovelIds = publishedNovelIds(userId);
+            if (CollectionUtils.isEmpty(publishedNovelIds)) {
+                return new PageResponseDTO<>(Collections.emptyList(), 0, size, 0);
+            }
+
+            totalElements = novelLibraryMapper.countByUserId(userId, publishedNovelIds);
+            if (totalElements == 0) {
+                return new PageResponseDTO<>(Collections.emptyList(), 0L, page, size);
+            }
+            novelLibraries = novelLibraryMapper.selectByUserIdWithPagination(userId, publishedNovelIds, offset, size, safeSort, safeOrder);
         }
 
-        // filter only published novels
-        List<NovelInfoDTO> allNovelInfo = contentServiceClient.getNovelsByIds(allNovelIds).getData();
-        List<Integer> publishedNovelIds = allNovelInfo.stream()
-                .filter(novel -> NovelStatus.PUBLISHED.name().equalsIgnoreCase(novel.status()))
-                .map(NovelInfoDTO::id)
-                .collect(Collectors.toList());
-        if (CollectionUtils.isEmpty(publishedNovelIds)) {
-            return new PageResponseDTO<>(Collections.emptyList(), 0, size, 0);
+        if (novelLibraries.isEmpty()) {
+            return new PageResponseDTO<>(Collections.emptyList(), totalElements, page, size);
         }
+        return new PageResponseDTO<>(toResponseDTOs(novelLibraries), totalElements, page, size);
+    }
 
-        long totalElements = novelLibraryMapper.countByUserId(userId, publishedNovelIds);
-        if (totalElements == 0) {
-            return new PageResponseDTO<>(Collections.emptyList(), 0L, page, size);
+    /**
+     * get user's library by keyset pagination, each page costs the same however deep it is
+     * @param userId
+     * @param cursor nextCursor of the previous page, empty for the first page
+     * @param size
+     * @param sort
+     * @param order
+     * @param includeTotal whether to count the whole library
+     * @return
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponseDTO<LibraryResponseDTO> getUserLibraryByCursor(UUID userId, String cursor, int size,
+                                                                            String sort, String order, boolean includeTotal) {
+        if (size <= 0) {
+            throw new ValidationException("size must be greater than 0");
         }
-        int offset = page * size;
         String safeSort = "updateTime".equalsIgnoreCase(sort) ? "update_time" : "create_time";
         String safeOrder = "asc".equalsIgnoreCase(order) ? "ASC" : "DESC";
-        List<NovelLibrary> novelLibraries = novelLibraryMapper.selectByUserIdWithPagination(userId, publishedNovelIds, offset, size, safeSort, safeOrder);
+        LibraryCursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            after = LibraryCursor.decode(cursor);
+            if (!after.sort().equals(safeSort) || !after.order().equals(safeOrder)) {
+                throw new ValidationException("cursor was issued for a different sort order");
+            }
+        }
+        Timestamp afterValue = after == null || after.sortValue() == null ? null : Timestamp.from(after.sortValue());
+        Integer afterId = after == null ? null : after.id();
+
+        // one extra row tells whether there is a next page without counting
+        Long totalElements = null;
+        List<NovelLibrary> novelLibraries;
+        if (novelStatusProjectionEnabled) {
+            int status = NovelStatus.PUBLISHED.getValue();
+            if (includeTotal) {
+                totalElements = novelLibraryMapper.countByUserIdAndStatus(userId, status);
+            }
+            novelLibraries = novelLibraryMapper.selectByUserIdAndStatusAfter(userId, status, afterValue, afterId, size + 1, safeSort, safeOrder);
+        } else {
+            List<Integer> publishedNovelIds = publishedNovelIds(userId);
+            if (CollectionUtils.isEmpty(publishedNovelIds)) {
+                return new CursorPageResponseDTO<>(Collections.emptyList(), size, null, includeTotal ? 0L : null);
+            }
+            if (includeTotal) {
+                totalElements = novelLibraryMapper.countByUserId(userId, publishedNovelIds);
+            }
+            novelLibraries = novelLibraryMapper.selectByUserIdAfter(userId, publishedNovelIds, afterValue, afterId, size + 1, safeSort, safeOrder);
+        }
 
+        String nextCursor = null;
+        if (novelLibraries.size() > size) {
+            novelLibraries = novelLibraries.subList(0, size);
+            nextCursor = cursorAfter(novelLibraries.get(size - 1), safeSort, safeOrder).encode();
+        }
         if (novelLibraries.isEmpty()) {
-            return new PageResponseDTO<>(Collections.emptyList(), totalElements, page, size);
+            return new CursorPageResponseDTO<>(Collections.emptyList(), size, null, totalElements);
         }
+        return new CursorPageResponseDTO<>(toResponseDTOs(novelLibraries), size, nextCursor, totalElements);
+    }
+
+    /**
+     * cursor pointing right after an entry, from the untruncated sort value the page query
+     * returned with it; the entity's Date fields only keep milliseconds. Entries without a
+     * sort value give a cursor without one
+     */
+    private LibraryCursor cursorAfter(NovelLibrary last, String sort, String order) {
+        return new LibraryCursor(sort, order, last.getSortValue(), last.getId());
+    }
+
+    /**
+     * ids of the published novels in a user's library, asking the content service for their status
+     */
+    private List<Integer> publishedNovelIds(UUID userId) {
+        // get all novel ids in user's library
+        List<Integer> allNovelIds = novelLibraryMapper.selectNovelIdsByUserId(userId);
+        if (CollectionUtils.isEmpty(allNovelIds)) {
+            return Collections.emptyList();
+        }
+
+        // filter only published novels
+        List<NovelInfoDTO> allNovelInfo = contentServiceClient.getNovelsByIds(allNovelIds).getData();
+        return allNovelInfo.stream()
+                .filter(novel -> NovelStatus.PUBLISHED.name().equalsIgnoreCase(novel.status()))
+                .map(NovelInfoDTO::id)
+                .collect(Collectors.toList());
+    }
 
+    /**
+     * add novel and chapter metadata to library entries
+     */
+    private List<LibraryResponseDTO> toResponseDTOs(List<NovelLibrary> novelLibraries) {
         List<Integer> novelIds = novelLibraries.stream()
                 .map(NovelLibrary::getNovelId)
                 .distinct()
@@ -140,26 +280,25 @@ public class LibraryService {
                 .map(NovelLibrary::getProgress)
                 .filter(Objects::nonNull).distinct().collect(Collectors.toList());
 
-        Map<Integer, NovelInfoDTO> novelMap = contentServiceClient.getNovelsByIds(novelIds).getData().stream()
+        // novels and chapters are independent, fetch them side by side
+        ContentFanOut.Both<ApiResponse<List<NovelInfoDTO>>, ApiResponse<List<ChapterInfoDTO>>> content = contentFanOut.both(
+                () -> contentServiceClient.getNovelsByIds(novelIds),
+                () -> chapterIds.isEmpty() ? null : contentServiceClient.getChaptersByIds(chapterIds));
+        ApiResponse<List<NovelInfoDTO>> novelResponse = content.first();
+        ApiResponse<List<ChapterInfoDTO>> chapterResponse = content.second();
+        Map<Integer, NovelInfoDTO> novelMap = novelResponse.getData().stream()
                 .collect(Collectors.toMap(NovelInfoDTO::id, novel -> novel));
+        Map<Integer, ChapterInfoDTO> chapterMap = chapterResponse == null ? Collections.emptyMap()
+                : chapterResponse.getData().stream().collect(Collectors.toMap(ChapterInfoDTO::id, chapter -> chapter));
+        boolean stale = CachingContentServiceClient.isStale(novelResponse) || CachingContentServiceClient.isStale(chapterResponse);
 
-        Map<Integer, ChapterInfoDTO> chapterMap;
-        if (chapterIds.isEmpty()) {
-            chapterMap = Collections.emptyMap();
-        } else {
-            chapterMap = contentServiceClient.getChaptersByIds(chapterIds).getData().stream()
-                    .collect(Collectors.toMap(ChapterInfoDTO::id, chapter -> chapter));
-        }
-
-        List<LibraryResponseDTO> dtos = novelLibraries.stream()
+        return novelLibraries.stream()
                 .map(novelLibrary -> {
                     NovelInfoDTO novel = novelMap.get(novelLibrary.getNovelId());
                     ChapterInfoDTO chapter = chapterMap.get(novelLibrary.getProgress());
-                    return convertToDTO(novelLibrary, novel, chapter);
+                    return convertToDTO(novelLibrary, novel, chapter, stale);
                 })
                 .collect(Collectors.toList());
-
-        return new PageResponseDTO<>(dtos, totalElements, page, size);
     }
 
     /**
@@ -173,22 +312,37 @@ public class LibraryService {
         if (progress == null) {
             throw new ValidationException("progress cannot be null while updating");
         }
-        checkValidation(novelId, progress);
+        ContentLookup content = checkValidation(novelId, progress);
+        NovelLibrary novelLibrary = singleStatementWrites
+                ? novelLibraryMapper.updateProgressByUserIdAndNovelId(userId, novelId, progress)
+                : updateWithSeparateStatements(userId, novelId, progress);
         // check if not in library
-        NovelLibrary novelLibrary = novelFromLibrary(userId, novelId);
         if (novelLibrary == null) {
             throw new ValidationException("novel don't exist in library");
         }
 
-        novelLibrary.setProgress(progress);
+        // the lookups made to validate the update already hold the response metadata
+        return convertToDTO(novelLibrary, content.novel().getData(), content.chapter(), content.stale());
+    }
 
-        novelLibraryMapper.updateByPrimaryKeySelective(novelLibrary);
+    /**
+     * update progress with lookup and update as separate statements,
+     * for databases without UPDATE ... RETURNING
+     * @param userId
+     * @param novelId
+     * @param progress
+     * @return the updated entry, or null if the novel is not in the library
+     */
+    private NovelLibrary updateWithSeparateStatements(UUID userId, Integer novelId, Integer progress) {
+        NovelLibrary novelLibrary = novelFromLibrary(userId, novelId);
+        if (novelLibrary == null) {
+            return null;
+        }
 
-        NovelInfoDTO novel = contentServiceClient.getNovelById(novelId).getData();
-        List<ChapterInfoDTO> chapters = contentServiceClient.getChaptersByIds(Collections.singletonList(progress)).getData();
-        ChapterInfoDTO chapter = CollectionUtils.isEmpty(chapters) ? null : chapters.get(0);
+        novelLibrary.setProgress(progress);
 
-        return convertToDTO(novelLibrary, novel, chapter);
+        novelLibraryMapper.updateByPrimaryKeySelective(novelLibrary);
+        return novelLibrary;
     }
 
     /**
@@ -203,13 +357,8 @@ public class LibraryService {
         if (novelLibrary == null) {
             throw new ValidationException("novel don't exist in library");
         }
-        NovelInfoDTO novel = contentServiceClient.getNovelById(novelId).getData();
-        ChapterInfoDTO chapter = null;
-        if (novelLibrary.getProgress() != null) {
-            List<ChapterInfoDTO> chapters = contentServiceClient.getChaptersByIds(Collections.singletonList(novelLibrary.getProgress())).getData();
-            chapter = CollectionUtils.isEmpty(chapters) ? null : chapters.get(0);
-        }
-        return convertToDTO(novelLibrary, novel, chapter);
+        ContentLookup content = lookupContent(novelId, novelLibrary.getProgress());
+        return convertToDTO(novelLibrary, content.novel().getData(), content.chapter(), content.stale());
     }
 
     /**
@@ -257,25 +406,43 @@ public class LibraryService {
                 ));
     }
 
-    private void checkValidation(Integer novelId, Integer progress) {
+    private ContentLookup checkValidation(Integer novelId, Integer progress) {
+        ContentLookup content = lookupContent(novelId, progress);
         // check if novel exists
-        if (contentServiceClient.getNovelById(novelId).getData() == null) {
+        if (content.novel().getData() == null) {
             throw new ResourceNotFoundException("novel not found: " + novelId);
         }
         if (progress != null) {
-            List<ChapterInfoDTO> chapters = contentServiceClient.getChaptersByIds(Collections.singletonList(progress)).getData();
-            if (CollectionUtils.isEmpty(chapters)) {
+            ChapterInfoDTO chapter = content.chapter();
+            if (chapter == null) {
                 throw new ResourceNotFoundException("Chapter not found with id: " + progress);
             }
-            ChapterInfoDTO chapter = chapters.get(0);
             if (!chapter.novelId().equals(novelId)) {
                 throw new ValidationException("Chapter doesn't belong to novel id: " + novelId);
             }
         }
+        return content;
     }
 
-    private LibraryResponseDTO convertToDTO(NovelLibrary novelLibrary, NovelInfoDTO novel, ChapterInfoDTO chapter) {
+    /**
+     * fetch a novel and, if given, a chapter in parallel
+     * @param novelId
+     * @param chapterId may be null
+     * @return ContentLookup
+     */
+    private ContentLookup lookupContent(Integer novelId, Integer chapterId) {
+        if (chapterId == null) {
+            return new ContentLookup(contentServiceClient.getNovelById(novelId), null);
+        }
+        ContentFanOut.Both<ApiResponse<NovelInfoDTO>, ApiResponse<List<ChapterInfoDTO>>> content = contentFanOut.both(
+                () -> contentServiceClient.getNovelById(novelId),
+                () -> contentServiceClient.getChaptersByIds(Collections.singletonList(chapterId)));
+        return new ContentLookup(content.first(), content.second());
+    }
+
+    private LibraryResponseDTO convertToDTO(NovelLibrary novelLibrary, NovelInfoDTO novel, ChapterInfoDTO chapter, boolean stale) {
         LibraryResponseDTO dto = new LibraryResponseDTO();
+        dto.setStale(stale);
         dto.setId(novelLibrary.getId());
         dto.setNovelId(novelLibrary.getNovelId());
         dto.setProgress(novelLibrary.getProgress());
@@ -293,4 +460,21 @@ public class LibraryService {
         }
         return dto;
     }
+
+    /**
+     * Content-service answers for one library entry; chapters is null when no chapter was asked for
+     */
+    private record ContentLookup(ApiResponse<NovelInfoDTO> novel, ApiResponse<List<ChapterInfoDTO>> chapters) {
+
+        ChapterInfoDTO chapter() {
+            if (chapters == null || CollectionUtils.isEmpty(chapters.getData())) {
+                return null;
+            }
+            return chapters.getData().get(0);
+        }
+
+        boolean stale() {
+            return CachingContentServiceClient.isStale(novel) || CachingContentServiceClient.isStale(chapters);
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.dao.UserMapper;
+import com.yushan.user_service.event.UserEventProducer;
+import com.yushan.user_service.event.dto.UserLoggedInEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login Side Effect Pipeline
+ *
+ * Takes the last-login write and the UserLoggedInEvent off the login request path.
+ * Logins are queued in memory and flushed every few hundred milliseconds: timestamps
+ * are coalesced per user into a single multi-row UPDATE, then the events are published.
+ * The queue is bounded; when it is full, further logins are dropped from the pipeline
+ * and counted, since neither side effect is needed for the login itself.
+ *
+ * The flush runs on its own thread, so a slow database or broker cannot hold up the
+ * other scheduled jobs. Users are written in {@link UserMapper#ROW_LOCK_ORDER}, as the
+ * last-active flush does, so the two never lock overlapping rows in opposite order.
+ */
+@Slf4j
+@Service
+public class LoginSideEffectPipeline {
+
+    private final UserMapper userMapper;
+
+    private final UserEventProducer userEventProducer;
+
+    private final long flushIntervalMs;
+
+    private final int maxBatchSize;
+
+    // latest login time per user, coalesced between flushes
+    private final Map<UUID, Date> pendingLogins = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<UserLoggedInEvent> pendingEvents;
+
+    private final Counter droppedCounter;
+
+    private final Counter flushedCounter;
+
+    private final ScheduledExecutorService scheduler;
+
+    public LoginSideEffectPipeline(UserMapper userMapper,
+                                   UserEventProducer userEventProducer,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${auth.login-pipeline.capacity:10000}") int capacity,
+                                   @Value("${auth.login-pipeline.flush-interval-ms:200}") long flushIntervalMs,
+                                   @Value("${auth.login-pipeline.max-batch-size:500}") int maxBatchSize) {
+        this.userMapper = userMapper;
+        this.userEventProducer = userEventProducer;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxBatchSize = maxBatchSize;
+        this.pendingEvents = new ArrayBlockingQueue<>(capacity);
+        this.droppedCounter = Counter.builder("auth.login.side_effects.dropped").register(meterRegistry);
+        this.flushedCounter = Counter.builder("auth.login.side_effects.flushed").register(meterRegistry);
+        meterRegistry.gauge("auth.login.side_effects.pending", pendingEvents, BlockingQueue::size);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "login-side-effects");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue the side effects of a successful login
+     *
+     * @param event Login event, carrying the user's state before this login
+     * @param loginTime Time of the login
+     */
+    public void submit(UserLoggedInEvent event, Date loginTime) {
+        if (!pendingEvents.offer(event)) {
+            droppedCounter.increment();
+            log.warn("Login side effect queue is full, dropping login of user {}", event.uuid());
+            return;
+        }
+        pendingLogins.merge(event.uuid(), loginTime, (current, next) -> next.after(current) ? next : current);
+    }
+
+    /**
+     * Write coalesced login timestamps and publish the queued events
+     */
+    public void flush() {
+        try {
+            writeLoginTimes();
+            publishEvents();
+        } catch (Exception e) {
+            // keep the scheduled flush alive
+            log.error("Login side effect flush failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    private void writeLoginTimes() {
+        if (pendingLogins.isEmpty()) {
+            return;
+        }
+        Map<UUID, Date> batch = new TreeMap<>(UserMapper.ROW_LOCK_ORDER);
+        for (UUID userId : new ArrayList<>(pendingLogins.keySet())) {
+            Date loginTime = pendingLogins.remove(userId);
+            if (loginTime != null) {
+                batch.put(userId, loginTime);
+            }
+            if (batch.size() >= maxBatchSize) {
+                writeBatch(batch);
+                batch = new TreeMap<>(UserMapper.ROW_LOCK_ORDER);
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(Map<UUID, Date> batch) {
+        try {
+            if (batch.size() == 1) {
+                Map.Entry<UUID, Date> login = batch.entrySet().iterator().next();
+                userMapper.touchLogin(login.getKey(), login.getValue());
+            } else {
+                userMapper.touchLogins(batch);
+            }
+            flushedCounter.increment(batch.size());
+        } catch (Exception e) {
+            log.error("Failed to write last login for {} users", batch.size(), e);
+        }
+    }
+
+    private void publishEvents() {
+        List<UserLoggedInEvent> events = new ArrayList<>();
+        pendingEvents.drainTo(events);
+        for (UserLoggedInEvent event : events) {
+            userEventProducer.sendUserLoggedInEvent(event);
+        }
+    }
+}
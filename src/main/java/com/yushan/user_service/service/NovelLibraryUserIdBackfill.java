@@ -0,0 +1,127 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.dao.NovelLibraryMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Novel Library User Id Backfill
+ *
+ * Copies user_id from library onto the novel_library rows written before the column
+ * existed. Runs online in small batches, one batch per run with a pause between runs, so
+ * each batch holds row locks briefly and the table stays writable; batch size and pause
+ * bound the load. New and moved rows get their user_id from the service and the
+ * database trigger, so the backfill stops for good once a batch finds no rows left.
+ *
+ * Progress is kept in the novel_library_user_id_backfill row, which each batch locks with
+ * SKIP LOCKED: one instance runs a batch at a time, the others skip the run, and a
+ * restart resumes where the last batch ended. Runs on its own thread.
+ *
+ * Reads by user_id (library.user-id-reads.enabled) are only switched on at startup, see
+ * DatabaseConfig: turn the flag on and restart once the completion is logged.
+ */
+@Slf4j
+@Service
+public class NovelLibraryUserIdBackfill {
+
+    private final NovelLibraryMapper novelLibraryMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final long intervalMs;
+
+    private final Counter batchCounter;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean complete;
+
+    public NovelLibraryUserIdBackfill(NovelLibraryMapper novelLibraryMapper,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${library.user-id-backfill.enabled:true}") boolean enabled,
+                                      @Value("${library.user-id-backfill.batch-size:1000}") int batchSize,
+                                      @Value("${library.user-id-backfill.interval-ms:200}") long intervalMs) {
+        this.novelLibraryMapper = novelLibraryMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+        this.batchCounter = Counter.builder("library.user-id.backfill.batches").register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-user-id-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::backfill, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Backfill the next batch of rows, unless another instance is running one
+     */
+    public void backfill() {
+        if (!enabled || complete) {
+            return;
+        }
+        try {
+            Boolean done = transactionTemplate.execute(status -> backfillBatch());
+            if (Boolean.TRUE.equals(done)) {
+                complete = true;
+                scheduler.shutdown();
+                log.info("novel_library.user_id is backfilled, library.user-id-reads.enabled takes effect from the next restart");
+            }
+        } catch (Exception e) {
+            log.error("novel_library.user_id backfill batch failed, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Check whether every row has been visited
+     *
+     * @return true once this instance has seen the backfill complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private boolean backfillBatch() {
+        Integer lastId = novelLibraryMapper.lockUserIdBackfillCursor();
+        if (lastId == null) {
+            // another instance holds the cursor for its batch
+            return false;
+        }
+        Integer batchEnd = novelLibraryMapper.backfillUserIds(lastId, batchSize);
+        if (batchEnd == null) {
+            return true;
+        }
+        novelLibraryMapper.updateUserIdBackfillCursor(batchEnd);
+        batchCounter.increment();
+        return false;
+    }
+}
@@ -0,0 +1,215 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.client.CachingContentServiceClient;
+import com.yushan.user_service.client.ContentServiceClient;
+import com.yushan.user_service.client.dto.NovelInfoDTO;
+import com.yushan.user_service.dao.NovelStatusMapper;
+import com.yushan.user_service.dto.ApiResponse;
+import com.yushan.user_service.entity.NovelStatusEntry;
+import com.yushan.user_service.enums.NovelStatus;
+import com.yushan.user_service.event.dto.NovelStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Novel Status Projection
+ *
+ * Keeps the local novel_status table in step with the content service so library pages
+ * can filter published novels in SQL. Status change events from the content service
+ * are the main feed; an older event never replaces a newer status. Novels added to a
+ * library are recorded from the metadata fetched to validate the add, and a background
+ * backfill covers novels that were in libraries before the projection existed. Rows
+ * recorded from fetched metadata never replace rows written from events, and are stamped
+ * with the epoch so any later event replaces them: the metadata may be cached or stale.
+ *
+ * The backfill walks the distinct library novel ids in order over the novel_id index, one
+ * batch per run, on its own thread since it calls the content service. Novels the content
+ * service does not return are left unprojected rather than guessed, and are retried by the
+ * next walk after a restart.
+ */
+@Slf4j
+@Service
+public class NovelStatusProjection {
+
+    /**
+     * Update time of rows recorded from fetched metadata, older than any event
+     */
+    private static final long FETCHED_UPDATE_TIME = 0L;
+
+    private final NovelStatusMapper novelStatusMapper;
+
+    private final ContentServiceClient contentServiceClient;
+
+    private final boolean backfillEnabled;
+
+    private final int backfillBatchSize;
+
+    private final long backfillIntervalMs;
+
+    private final Counter appliedCounter;
+
+    private final Counter skippedCounter;
+
+    private final Counter backfilledCounter;
+
+    private final ScheduledExecutorService scheduler;
+
+    // last novel id the backfill walk has passed; backfill thread only
+    private int lastNovelId;
+
+    private volatile boolean backfillComplete;
+
+    public NovelStatusProjection(NovelStatusMapper novelStatusMapper,
+                                 @Qualifier(CachingContentServiceClient.BEAN_NAME) ContentServiceClient contentServiceClient,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${novel.status.backfill.enabled:true}") boolean backfillEnabled,
+                                 @Value("${novel.status.backfill.batch-size:500}") int backfillBatchSize,
+                                 @Value("${novel.status.backfill.interval-ms:10000}") long backfillIntervalMs) {
+        this.novelStatusMapper = novelStatusMapper;
+        this.contentServiceClient = contentServiceClient;
+        this.backfillEnabled = backfillEnabled;
+        this.backfillBatchSize = backfillBatchSize;
+        this.backfillIntervalMs = backfillIntervalMs;
+        this.appliedCounter = Counter.builder("novel.status.events").tag("result", "applied").register(meterRegistry);
+        this.skippedCounter = Counter.builder("novel.status.events").tag("result", "skipped").register(meterRegistry);
+        this.backfilledCounter = Counter.builder("novel.status.backfilled").register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "novel-status-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (backfillEnabled) {
+            scheduler.scheduleWithFixedDelay(this::backfill, backfillIntervalMs, backfillIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Apply status change events, keeping the latest event per novel
+     *
+     * @param events Events in any order
+     */
+    public void apply(Collection<NovelStatusChangedEvent> events) {
+        Map<Integer, NovelStatusEntry> latest = new HashMap<>();
+        for (NovelStatusChangedEvent event : events) {
+            NovelStatus status = statusOf(event.status());
+            if (event.novelId() == null || status == null || event.timestamp() == null) {
+                log.warn("Skipping novel status event with missing or unknown fields: {}", event);
+                skippedCounter.increment();
+                continue;
+            }
+            NovelStatusEntry entry = new NovelStatusEntry(event.novelId(), status.getValue(), Timestamp.valueOf(event.timestamp()));
+            latest.merge(event.novelId(), entry,
+                    (current, next) -> next.getUpdateTime().before(current.getUpdateTime()) ? current : next);
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+        novelStatusMapper.upsertNewer(new ArrayList<>(latest.values()));
+        appliedCounter.increment(latest.size());
+    }
+
+    /**
+     * Record the status of a novel fetched from the content service, unless one is known
+     *
+     * @param novel Novel metadata
+     */
+    public void recordIfAbsent(NovelInfoDTO novel) {
+        NovelStatus status = statusOf(novel.status());
+        if (status == null) {
+            log.warn("Not recording novel {} with unknown status {}", novel.id(), novel.status());
+            return;
+        }
+        novelStatusMapper.insertIfAbsent(List.of(
+                new NovelStatusEntry(novel.id(), status.getValue(), new Date(FETCHED_UPDATE_TIME))));
+    }
+
+    /**
+     * Project the library novels without a status in the next batch of the walk; stops
+     * for good at the end, later adds are recorded by {@link #recordIfAbsent}
+     */
+    public void backfill() {
+        if (!backfillEnabled || backfillComplete) {
+            return;
+        }
+        try {
+            List<Integer> novelIds = novelStatusMapper.selectLibraryNovelIdsAfter(lastNovelId, backfillBatchSize);
+            if (novelIds.isEmpty()) {
+                backfillComplete = true;
+                scheduler.shutdown();
+                log.info("Novel status backfill walked every library novel, library.novel-status-projection.enabled can be turned on");
+                return;
+            }
+            Set<Integer> unprojected = new LinkedHashSet<>(novelIds);
+            novelStatusMapper.selectProjectedNovelIds(novelIds).forEach(unprojected::remove);
+            if (!unprojected.isEmpty() && !project(new ArrayList<>(unprojected))) {
+                return;
+            }
+            lastNovelId = novelIds.get(novelIds.size() - 1);
+        } catch (Exception e) {
+            log.error("Novel status backfill failed after novel {}, retrying on the next run", lastNovelId, e);
+        }
+    }
+
+    private boolean project(List<Integer> novelIds) {
+        ApiResponse<List<NovelInfoDTO>> response = contentServiceClient.getNovelsByIds(novelIds);
+        if (CachingContentServiceClient.isStale(response)
+                || ContentServiceClient.ContentServiceFallback.MESSAGE.equals(response.getMessage())) {
+            log.warn("Content service unavailable, novel status backfill retries later");
+            return false;
+        }
+        Date fetched = new Date(FETCHED_UPDATE_TIME);
+        List<NovelStatusEntry> entries = new ArrayList<>();
+        Set<Integer> requested = new LinkedHashSet<>(novelIds);
+        for (NovelInfoDTO novel : response.getData()) {
+            NovelStatus status = statusOf(novel.status());
+            if (status != null && requested.remove(novel.id())) {
+                entries.add(new NovelStatusEntry(novel.id(), status.getValue(), fetched));
+            }
+        }
+        if (!entries.isEmpty()) {
+            novelStatusMapper.insertIfAbsent(entries);
+            backfilledCounter.increment(entries.size());
+        }
+        if (!requested.isEmpty()) {
+            // not returned, or with a status this service does not know: an event or the next walk settles them
+            log.debug("Novel status backfill left {} novels unprojected: {}", requested.size(), requested);
+        }
+        return true;
+    }
+
+    private static NovelStatus statusOf(String name) {
+        try {
+            return NovelStatus.fromName(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
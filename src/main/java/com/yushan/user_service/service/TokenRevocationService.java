@@ -0,0 +1,237 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.security.RefreshTokenStore;
+import com.yushan.user_service.util.BloomFilter;
+import com.yushan.user_service.util.JwtClaims;
+import com.yushan.user_service.util.RedisUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token Revocation Service
+ *
+ * Revokes access and refresh tokens by jti, or every token of a user issued before
+ * a cutoff ("ban now"). Revocations are stored in Redis with a TTL equal to the
+ * remaining token lifetime and mirrored into a per-node Bloom filter, which is
+ * rebuilt from Redis periodically and kept current across nodes via pub/sub.
+ *
+ * The request path only calls Redis when the filter reports a possible hit, and
+ * fails open if Redis is unavailable.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService implements MessageListener {
+
+    public static final String CHANNEL = "auth:revocations";
+
+    private static final String JTI_KEY_PREFIX = "revoked:jti:";
+    private static final String USER_KEY_PREFIX = "revoked:user:";
+    private static final String JTI_ENTRY_PREFIX = "jti:";
+    private static final String USER_ENTRY_PREFIX = "user:";
+
+    private final RedisUtil redisUtil;
+
+    private final AuthPrincipalCache authPrincipalCache;
+
+    private final RefreshTokenStore refreshTokenStore;
+
+    private final boolean enabled;
+
+    private final long expectedInsertions;
+
+    private final double falsePositiveRate;
+
+    private final long userRevocationTtlMs;
+
+    private final Counter filterNegatives;
+
+    private final Counter filterPositives;
+
+    private final Counter revokedHits;
+
+    private volatile BloomFilter filter;
+
+    // filter being rebuilt, which must also see revocations that arrive meanwhile
+    private volatile BloomFilter rebuilding;
+
+    public TokenRevocationService(RedisUtil redisUtil,
+                                  AuthPrincipalCache authPrincipalCache,
+                                  RefreshTokenStore refreshTokenStore,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${jwt.revocation.enabled:true}") boolean enabled,
+                                  @Value("${jwt.revocation.expected-insertions:1000000}") long expectedInsertions,
+                                  @Value("${jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                                  @Value("${jwt.refresh-token.expiration:604800000}") long userRevocationTtlMs) {
+        this.redisUtil = redisUtil;
+        this.authPrincipalCache = authPrincipalCache;
+        this.refreshTokenStore = refreshTokenStore;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.userRevocationTtlMs = userRevocationTtlMs;
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        this.filterNegatives = Counter.builder("auth.revocation.checks").tag("result", "filter_negative").register(meterRegistry);
+        this.filterPositives = Counter.builder("auth.revocation.checks").tag("result", "filter_positive").register(meterRegistry);
+        this.revokedHits = Counter.builder("auth.revocation.checks").tag("result", "revoked").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Check whether a verified token has been revoked
+     *
+     * @param claims Verified token claims
+     * @return true if the token's jti or its user has been revoked
+     */
+    public boolean isRevoked(JwtClaims claims) {
+        if (!enabled) {
+            return false;
+        }
+        boolean jtiCandidate = claims.jti() != null && filter.mightContain(JTI_ENTRY_PREFIX + claims.jti());
+        boolean userCandidate = claims.userId() != null && filter.mightContain(USER_ENTRY_PREFIX + claims.userId());
+        if (!jtiCandidate && !userCandidate) {
+            filterNegatives.increment();
+            return false;
+        }
+
+        filterPositives.increment();
+        try {
+            boolean revoked = (jtiCandidate && redisUtil.hasKey(JTI_KEY_PREFIX + claims.jti()))
+                    || (userCandidate && isRevokedByUserCutoff(claims));
+            if (revoked) {
+                revokedHits.increment();
+            }
+            return revoked;
+        } catch (Exception e) {
+            log.warn("Revocation lookup failed, allowing token: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Revoke a single token until it expires
+     *
+     * @param claims Verified token claims
+     */
+    public void revoke(JwtClaims claims) {
+        if (!enabled || claims == null || claims.jti() == null || claims.expiresAt() == null) {
+            return;
+        }
+        long ttlMs = claims.expiresAt().toEpochMilli() - System.currentTimeMillis();
+        if (ttlMs <= 0) {
+            return;
+        }
+        redisUtil.set(JTI_KEY_PREFIX + claims.jti(), "1", ttlMs, TimeUnit.MILLISECONDS);
+        String entry = JTI_ENTRY_PREFIX + claims.jti();
+        addToFilter(entry);
+        broadcast(entry);
+    }
+
+    /**
+     * Revoke every token issued to a user up to now, including refresh token families
+     *
+     * @param userId User UUID
+     */
+    public void revokeAllForUser(UUID userId) {
+        authPrincipalCache.evict(userId);
+        refreshTokenStore.revokeAllForUser(userId);
+        if (!enabled) {
+            return;
+        }
+        redisUtil.set(USER_KEY_PREFIX + userId, String.valueOf(System.currentTimeMillis()),
+                userRevocationTtlMs, TimeUnit.MILLISECONDS);
+        String entry = USER_ENTRY_PREFIX + userId;
+        addToFilter(entry);
+        broadcast(entry);
+    }
+
+    /**
+     * Rebuild the filter from Redis, dropping entries whose keys have expired
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-ms:600000}",
+            initialDelayString = "${jwt.revocation.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        BloomFilter next = new BloomFilter(expectedInsertions, falsePositiveRate);
+        rebuilding = next;
+        try {
+            Set<String> keys = redisUtil.scan("revoked:*", 1000);
+            for (String key : keys) {
+                if (key.startsWith(JTI_KEY_PREFIX)) {
+                    next.put(JTI_ENTRY_PREFIX + key.substring(JTI_KEY_PREFIX.length()));
+                } else if (key.startsWith(USER_KEY_PREFIX)) {
+                    next.put(USER_ENTRY_PREFIX + key.substring(USER_KEY_PREFIX.length()));
+                }
+            }
+            filter = next;
+            log.info("Rebuilt token revocation filter with {} entries", keys.size());
+        } catch (Exception e) {
+            log.warn("Failed to rebuild token revocation filter, keeping current one: {}", e.getMessage());
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    /**
+     * Apply a revocation published by another node
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String entry = new String(message.getBody(), StandardCharsets.UTF_8);
+        addToFilter(entry);
+        if (entry.startsWith(USER_ENTRY_PREFIX)) {
+            try {
+                authPrincipalCache.evict(UUID.fromString(entry.substring(USER_ENTRY_PREFIX.length())));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring malformed revocation message: {}", entry);
+            }
+        }
+    }
+
+    private boolean isRevokedByUserCutoff(JwtClaims claims) {
+        String cutoff = redisUtil.get(USER_KEY_PREFIX + claims.userId());
+        if (cutoff == null) {
+            return false;
+        }
+        Instant issuedAt = claims.issuedAt();
+        // iat has second precision, so anything issued in the cutoff's second is revoked too
+        return issuedAt == null || issuedAt.toEpochMilli() <= Long.parseLong(cutoff);
+    }
+
+    private void addToFilter(String entry) {
+        filter.put(entry);
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(entry);
+        }
+    }
+
+    private void broadcast(String entry) {
+        try {
+            redisUtil.publish(CHANNEL, entry);
+        } catch (Exception e) {
+            log.warn("Failed to publish revocation, other nodes will pick it up on rebuild: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.yushan.user_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yushan.user_service.dao.UserMapper;
+import com.yushan.user_service.entity.User;
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.util.RedisUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User Profile Cache
+ *
+ * Two-tier read-through cache of user rows for profile reads: a bounded Caffeine L1 with
+ * a short TTL per node, in front of a Redis L2 shared by all nodes. Password hashes are
+ * never cached. Writers call {@link #invalidate(UUID)}, which drops the user from both
+ * tiers and from the {@link AuthPrincipalCache}, and broadcasts the UUID over Redis
+ * pub/sub so every other node drops its L1 and principal entries too.
+ *
+ * A reader that loaded the row before a write could otherwise put the old copy back
+ * after the invalidation, where it would stay for the full TTL. Invalidation therefore
+ * leaves a short-lived tombstone in Redis, and L2 fills only set absent keys, so they
+ * cannot replace it; each node also remembers its recent invalidations and skips L1
+ * fills from loads that started before one.
+ *
+ * last_login and last_active are written in the background in batches and are not
+ * invalidation triggers; in cached profiles they lag by at most the L2 TTL. Redis
+ * failures fall through to Postgres.
+ */
+@Slf4j
+@Service
+public class UserProfileCache implements MessageListener {
+
+    public static final String CHANNEL = "cache:user-profile";
+
+    private static final String KEY_PREFIX = "user:profile:";
+
+    private static final String L1_NAME = "user.profile.l1";
+
+    private static final String L2_NAME = "user.profile.l2";
+
+    private static final String TOMBSTONE = "-";
+
+    private final UserMapper userMapper;
+
+    private final RedisUtil redisUtil;
+
+    private final AuthPrincipalCache authPrincipalCache;
+
+    private final ObjectMapper objectMapper;
+
+    private final Cache<UUID, User> local;
+
+    private final boolean l2Enabled;
+
+    private final long l2TtlSeconds;
+
+    private final long tombstoneTtlSeconds;
+
+    // nanoTime of the latest invalidation per user, kept as long as the L2 tombstone
+    private final Cache<UUID, Long> recentInvalidations;
+
+    private final Counter l2Hits;
+
+    private final Counter l2Misses;
+
+    private final Counter l2Evictions;
+
+    public UserProfileCache(UserMapper userMapper,
+                            RedisUtil redisUtil,
+                            AuthPrincipalCache authPrincipalCache,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${user.profile-cache.l1.ttl-seconds:30}") long l1TtlSeconds,
+                            @Value("${user.profile-cache.l1.max-size:50000}") long l1MaxSize,
+                            @Value("${user.profile-cache.l2.enabled:true}") boolean l2Enabled,
+                            @Value("${user.profile-cache.l2.ttl-seconds:300}") long l2TtlSeconds,
+                            @Value("${user.profile-cache.l2.tombstone-ttl-seconds:10}") long tombstoneTtlSeconds) {
+        this.userMapper = userMapper;
+        this.redisUtil = redisUtil;
+        this.authPrincipalCache = authPrincipalCache;
+        this.objectMapper = objectMapper;
+        this.l2Enabled = l2Enabled;
+        this.l2TtlSeconds = l2TtlSeconds;
+        this.tombstoneTtlSeconds = tombstoneTtlSeconds;
+        this.recentInvalidations = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(tombstoneTtlSeconds))
+                .build();
+        this.local = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(Duration.ofSeconds(l1TtlSeconds))
+                .recordStats()
+                .build();
+        // same meter names as the Caffeine binder, so both tiers sit side by side
+        CaffeineCacheMetrics.monitor(meterRegistry, local, L1_NAME);
+        this.l2Hits = Counter.builder("cache.gets").tag("cache", L2_NAME).tag("result", "hit").register(meterRegistry);
+        this.l2Misses = Counter.builder("cache.gets").tag("cache", L2_NAME).tag("result", "miss").register(meterRegistry);
+        this.l2Evictions = Counter.builder("cache.evictions").tag("cache", L2_NAME).register(meterRegistry);
+    }
+
+    /**
+     * Get a user, loading it from Redis or Postgres on a miss
+     *
+     * @param userId User UUID
+     * @return User without password hash, or null if not found
+     */
+    public User get(UUID userId) {
+        User cached = local.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        return getAll(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Get several users, reading each tier once for all the keys it misses
+     *
+     * @param userIds User UUIDs
+     * @return users found, without password hash, in the order of userIds
+     */
+    public Map<UUID, User> getAll(Collection<UUID> userIds) {
+        long loadStarted = System.nanoTime();
+        Map<UUID, User> found = new HashMap<>(local.getAllPresent(userIds));
+        List<UUID> missing = new ArrayList<>(new LinkedHashSet<>(userIds));
+        missing.removeAll(found.keySet());
+
+        if (!missing.isEmpty() && l2Enabled) {
+            Map<UUID, User> fromRedis = readL2(missing);
+            local.putAll(notInvalidatedSince(fromRedis, loadStarted));
+            found.putAll(fromRedis);
+            missing.removeAll(fromRedis.keySet());
+        }
+
+        if (!missing.isEmpty()) {
+            List<User> loaded = missing.size() == 1
+                    ? nullableList(userMapper.selectByPrimaryKey(missing.get(0)))
+                    : userMapper.selectByUuids(missing);
+            Map<UUID, User> fromDb = new HashMap<>();
+            for (User user : loaded) {
+                fromDb.put(user.getUuid(), withoutPassword(user));
+            }
+            Map<UUID, User> cacheable = notInvalidatedSince(fromDb, loadStarted);
+            local.putAll(cacheable);
+            writeL2(cacheable);
+            found.putAll(fromDb);
+        }
+
+        Map<UUID, User> ordered = new LinkedHashMap<>();
+        for (UUID userId : userIds) {
+            User user = found.get(userId);
+            if (user != null) {
+                ordered.put(userId, user);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Drop a user from both tiers and the principal cache on every node; call after
+     * any write to the user's row
+     *
+     * @param userId User UUID
+     */
+    public void invalidate(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        recentInvalidations.put(userId, System.nanoTime());
+        local.invalidate(userId);
+        authPrincipalCache.evict(userId);
+        if (!l2Enabled) {
+            return;
+        }
+        try {
+            redisUtil.set(KEY_PREFIX + userId, TOMBSTONE, tombstoneTtlSeconds, TimeUnit.SECONDS);
+            l2Evictions.increment();
+            redisUtil.publish(CHANNEL, userId.toString());
+        } catch (Exception e) {
+            log.warn("Failed to invalidate cached profile of user {} in Redis, other nodes keep it until L1 expiry: {}",
+                    userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop a user invalidated by another node
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            UUID userId = UUID.fromString(body);
+            recentInvalidations.put(userId, System.nanoTime());
+            local.invalidate(userId);
+            authPrincipalCache.evict(userId);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed profile invalidation message: {}", body);
+        }
+    }
+
+    private Map<UUID, User> readL2(List<UUID> userIds) {
+        Map<UUID, User> hits = new HashMap<>();
+        try {
+            List<String> values = redisUtil.multiGet(userIds.stream().map(id -> KEY_PREFIX + id).toList());
+            for (int i = 0; i < userIds.size(); i++) {
+                String json = values != null ? values.get(i) : null;
+                if (json != null && !TOMBSTONE.equals(json)) {
+                    hits.put(userIds.get(i), objectMapper.readValue(json, User.class));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Profile cache L2 read failed, loading from database: {}", e.getMessage());
+        }
+        l2Hits.increment(hits.size());
+        l2Misses.increment(userIds.size() - hits.size());
+        return hits;
+    }
+
+    private void writeL2(Map<UUID, User> users) {
+        if (!l2Enabled || users.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, String> values = new HashMap<>();
+            for (Map.Entry<UUID, User> entry : users.entrySet()) {
+                values.put(KEY_PREFIX + entry.getKey(), objectMapper.writeValueAsString(entry.getValue()));
+            }
+            // never overwrites a tombstone, nor a copy another reader stored meanwhile
+            redisUtil.multiSetIfAbsent(values, l2TtlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("Profile cache L2 write failed: {}", e.getMessage());
+        }
+    }
+
+    private Map<UUID, User> notInvalidatedSince(Map<UUID, User> users, long loadStarted) {
+        Map<UUID, User> cacheable = new HashMap<>(users);
+        cacheable.keySet().removeIf(userId -> {
+            Long invalidatedAt = recentInvalidations.getIfPresent(userId);
+            return invalidatedAt != null && invalidatedAt - loadStarted >= 0;
+        });
+        return cacheable;
+    }
+
+    private static User withoutPassword(User user) {
+        return new User(user.getUuid(), user.getEmail(), user.getUsername(), null, user.getAvatarUrl(),
+                user.getProfileDetail(), user.getBirthday(), user.getGender(), user.getStatus(), user.getIsAuthor(),
+                user.getIsAdmin(), user.getCreateTime(), user.getUpdateTime(), user.getLastLogin(), user.getLastActive());
+    }
+
+    private static List<User> nullableList(User user) {
+        return user != null ? List.of(user) : List.of();
+    }
+}
@@ -8,18 +8,18 @@ import com.yushan.user_service.entity.User;
 import com.yushan.user_service.enums.Gender;
 import com.yushan.user_service.enums.UserStatus;
 import com.yushan.user_service.exception.ResourceNotFoundException;
-import com.yushan.user_service.util.RedisUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -32,13 +32,16 @@ public class UserService {
     private MailService mailService;
 
     @Autowired
-    private RedisUtil redisUtil;
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private LastActiveWriteBehind lastActiveWriteBehind;
 
     /**
-     * Load a user's profile by UUID and map to response DTO
+     * Load a user's profile by UUID (through the profile cache) and map to response DTO
      */
     public UserProfileResponseDTO getUserProfile(UUID userId) {
-        User user = userMapper.selectByPrimaryKey(userId);
+        User user = userProfileCache.get(userId);
         if (user == null) {
             throw new ResourceNotFoundException("User not found");
         }
@@ -105,6 +108,7 @@ public class UserService {
         toUpdate.setUpdateTime(new Date());
 
         userMapper.updateByPrimaryKeySelective(toUpdate);
+        userProfileCache.invalidate(userId);
 
         // reload to get latest values
         User updated = userMapper.selectByPrimaryKey(userId);
@@ -153,30 +157,21 @@ public class UserService {
     }
 
     public List<UserProfileResponseDTO> getUsersByIds(List<UUID> userIds) {
-        List<User> users = userMapper.selectByUuids(userIds);
-        return users.stream().map(this::mapToProfileResponse).toList();
+        return userProfileCache.getAll(userIds).values().stream().map(this::mapToProfileResponse).toList();
     }
 
-    @Async
-    public void updateLastActiveTime(UUID userId, LocalDateTime lastActive) {
-        if (userId == null) return;
-
-        String cacheKey = "active" + userId;
-
-        if (redisUtil.hasKey(cacheKey)) {
-            log.info("Skipping update for user {} as it was recently updated", userId);
-            return;
-        }
-
-        User user = userMapper.selectByPrimaryKey(userId);
-        if (user != null && lastActive != null) {
-            user.setLastActive(Date.from(lastActive.atZone(ZoneId.systemDefault()).toInstant()));
-            int result = userMapper.updateByPrimaryKey(user);
-            if (result > 0) {
-                log.info("Successfully updated last active time for user: {}", userId);
-            }
-            redisUtil.set(cacheKey, "1", 5, TimeUnit.MINUTES);
-        }
+    /**
+     * Record a compacted batch of activity times (latest per user); the write-behind
+     * buffer writes them in batches
+     *
+     * @param lastActiveByUser Latest activity time per user
+     * @param onFlushed Run once the batch has been flushed, e.g. to commit Kafka offsets
+     */
+    public void updateLastActiveTimes(Map<UUID, LocalDateTime> lastActiveByUser, Runnable onFlushed) {
+        Map<UUID, Instant> activity = new HashMap<>();
+        lastActiveByUser.forEach((userId, lastActive) ->
+                activity.put(userId, lastActive.atZone(ZoneId.systemDefault()).toInstant()));
+        lastActiveWriteBehind.record(activity, onFlushed);
     }
 
     /**
@@ -0,0 +1,121 @@
+package com.yushan.user_service.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local throttle for user activity events
+ *
+ * Remembers when an activity event was last emitted per user and suppresses further
+ * events inside the window. State is a fixed-size table of packed longs (32-bit user
+ * fingerprint | 32-bit emit second) in an AtomicLongArray, split into 4-way buckets and
+ * updated with CAS, so the request path never locks or allocates. Entries expire by
+ * time and are overwritten when a bucket is full, which at worst lets an extra event
+ * through; suppression is only ever wrong on a 32-bit fingerprint collision.
+ */
+@Component
+public class ActivityEventThrottle {
+
+    private static final int WAYS = 4;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final AtomicLongArray slots;
+
+    private final int bucketMask;
+
+    private final long windowSeconds;
+
+    private final LongSupplier clockMillis;
+
+    private final long baseSecond;
+
+    private final Counter emittedCounter;
+
+    private final Counter suppressedCounter;
+
+    @Autowired
+    public ActivityEventThrottle(MeterRegistry meterRegistry,
+                                 @Value("${user.activity.throttle.window-seconds:60}") long windowSeconds,
+                                 @Value("${user.activity.throttle.capacity:65536}") int capacity) {
+        this(meterRegistry, windowSeconds, capacity, System::currentTimeMillis);
+    }
+
+    ActivityEventThrottle(MeterRegistry meterRegistry, long windowSeconds, int capacity, LongSupplier clockMillis) {
+        int buckets = Integer.highestOneBit(Math.max(1, capacity / WAYS));
+        this.slots = new AtomicLongArray(buckets * WAYS);
+        this.bucketMask = buckets - 1;
+        this.windowSeconds = windowSeconds;
+        this.clockMillis = clockMillis;
+        // emit seconds are stored relative to startup, 1-based so that 0 marks an empty slot
+        this.baseSecond = clockMillis.getAsLong() / 1000 - 1;
+        this.emittedCounter = Counter.builder("user.activity.events").tag("result", "emitted").register(meterRegistry);
+        this.suppressedCounter = Counter.builder("user.activity.events").tag("result", "suppressed").register(meterRegistry);
+    }
+
+    /**
+     * Decide whether an activity event should be emitted for a user, recording the
+     * emission if so
+     *
+     * @param userId User UUID
+     * @return true if no event was emitted for the user within the window
+     */
+    public boolean tryAcquire(UUID userId) {
+        if (windowSeconds <= 0) {
+            emittedCounter.increment();
+            return true;
+        }
+        long hash = hash(userId);
+        long fingerprint = (hash >>> 32) & 0xFFFFFFFFL;
+        int bucket = ((int) hash & bucketMask) * WAYS;
+        long now = clockMillis.getAsLong() / 1000 - baseSecond;
+        long entry = (fingerprint << 32) | (now & 0xFFFFFFFFL);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            int victim = bucket;
+            long victimValue = Long.MAX_VALUE;
+            for (int i = bucket; i < bucket + WAYS; i++) {
+                long current = slots.get(i);
+                if (current != 0 && (current >>> 32) == fingerprint) {
+                    if (now - (current & 0xFFFFFFFFL) < windowSeconds) {
+                        suppressedCounter.increment();
+                        return false;
+                    }
+                    victim = i;
+                    victimValue = current;
+                    break;
+                }
+                // prefer an empty slot, then the one emitted longest ago
+                if ((current & 0xFFFFFFFFL) < (victimValue & 0xFFFFFFFFL) || victimValue == Long.MAX_VALUE) {
+                    victim = i;
+                    victimValue = current;
+                }
+            }
+            if (slots.compareAndSet(victim, victimValue, entry)) {
+                emittedCounter.increment();
+                return true;
+            }
+        }
+        // heavy contention on the bucket, letting the event through is always safe
+        emittedCounter.increment();
+        return true;
+    }
+
+    private static long hash(UUID userId) {
+        // murmur3 finalizer over both halves
+        long h = userId.getMostSignificantBits() ^ Long.rotateLeft(userId.getLeastSignificantBits(), 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,52 @@
+package com.yushan.user_service.util;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of the claims of a verified JWT
+ *
+ * Produced by {@link JwtUtil#parseAndValidate(String)} so that callers
+ * read every claim they need from a single parse.
+ */
+public record JwtClaims(
+        String userId,
+        String email,
+        String role,
+        Integer status,
+        String tokenType,
+        String jti,
+        Instant issuedAt,
+        Instant expiresAt,
+        String familyId
+) {
+
+    /**
+     * Build the view from parsed claims
+     *
+     * @param claims Claims returned by the parser
+     * @return JwtClaims
+     */
+    public static JwtClaims from(Claims claims) {
+        return new JwtClaims(
+                claims.get("userId", String.class),
+                claims.get("email", String.class),
+                claims.get("role", String.class),
+                claims.get("status", Integer.class),
+                claims.get("tokenType", String.class),
+                claims.getId(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                claims.get("fid", String.class)
+        );
+    }
+
+    public boolean isAccessToken() {
+        return "access".equals(tokenType);
+    }
+
+    public boolean isRefreshToken() {
+        return "refresh".equals(tokenType);
+    }
+}
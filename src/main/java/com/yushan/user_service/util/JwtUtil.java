@@ -1,14 +1,16 @@
 package com.yushan.user_service.util;
 
 import com.yushan.user_service.entity.User;
+import com.yushan.user_service.security.JwtKeyProvider;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.Function;
 
@@ -20,12 +22,16 @@ import java.util.function.Function;
  * - Extract information from tokens
  * - Validate tokens
  * - Check token expiration
+ *
+ * Keys come from {@link JwtKeyProvider} (HMAC or ES256/EdDSA depending on
+ * jwt.algorithm). The parser is built once at startup and is safe to share
+ * between request threads.
  */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    @Autowired
+    private JwtKeyProvider jwtKeyProvider;
 
     @Value("${jwt.access-token.expiration}")
     private long accessTokenExpiration;
@@ -36,17 +42,14 @@ public class JwtUtil {
     @Value("${jwt.issuer}")
     private String issuer;
 
-    @Value("${jwt.algorithm}")
-    private String algorithm;
+    private JwtParser jwtParser;
 
     /**
-     * Get the secret key for JWT signing
-     * 
-     * @return SecretKey object for JWT operations
+     * Build the reusable parser
      */
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    @PostConstruct
+    public void init() {
+        this.jwtParser = jwtKeyProvider.buildParser();
     }
 
     /**
@@ -62,14 +65,7 @@ public class JwtUtil {
         claims.put("tokenType", "access");
         claims.put("jti", UUID.randomUUID().toString()); // Unique token ID
         claims.put("username", user.getUsername());
-        if (user.getIsAdmin()) {
-            claims.put("role", "ADMIN");
-        } else if (user.getIsAuthor()) {
-            claims.put("role", "AUTHOR");
-        } else {
-            claims.put("role", "USER");
-        }
-
+        claims.put("role", resolveRole(user));
         claims.put("status", user.getStatus());
         
         return createToken(claims, user.getEmail(), accessTokenExpiration);
@@ -82,15 +78,45 @@ public class JwtUtil {
      * @return JWT refresh token as String
      */
     public String generateRefreshToken(User user) {
+        return generateRefreshToken(user, null, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Generate refresh token that belongs to a refresh token family
+     * 
+     * @param user User object containing user information
+     * @param familyId Family ID shared by every rotation of this login, or null
+     * @param jti Unique token ID, recorded by the family store
+     * @return JWT refresh token as String
+     */
+    public String generateRefreshToken(User user, String familyId, String jti) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", user.getUuid().toString());
         claims.put("email", user.getEmail());
         claims.put("tokenType", "refresh");
-        claims.put("jti", UUID.randomUUID().toString()); // Unique token ID
+        claims.put("jti", jti); // Unique token ID
+        if (familyId != null) {
+            claims.put("fid", familyId);
+        }
         
         return createToken(claims, user.getEmail(), refreshTokenExpiration);
     }
 
+    /**
+     * Resolve the role claim for a user
+     * 
+     * @param user User object containing user information
+     * @return ADMIN, AUTHOR or USER
+     */
+    public static String resolveRole(User user) {
+        if (Boolean.TRUE.equals(user.getIsAdmin())) {
+            return "ADMIN";
+        } else if (Boolean.TRUE.equals(user.getIsAuthor())) {
+            return "AUTHOR";
+        }
+        return "USER";
+    }
+
     /**
      * Create JWT token with claims and expiration
      * 
@@ -103,13 +129,12 @@ public class JwtUtil {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
 
-        return Jwts.builder()
+        return jwtKeyProvider.sign(Jwts.builder()
                 .claims(claims)
                 .subject(subject)
                 .issuer(issuer)
                 .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .expiration(expiryDate))
                 .compact();
     }
 
@@ -172,11 +197,24 @@ public class JwtUtil {
      * @return Claims object containing all token claims
      */
     public Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return jwtParser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * Verify a token and read all of its claims in one pass
+     * 
+     * @param token JWT token
+     * @return Immutable claims view, or null if the token is malformed, tampered with or expired
+     */
+    public JwtClaims parseAndValidate(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            return JwtClaims.from(extractAllClaims(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
@@ -245,4 +283,13 @@ public class JwtUtil {
     public long getAccessTokenExpiration() {
         return accessTokenExpiration;
     }
+
+    /**
+     * Get refresh token expiration time in milliseconds
+     * 
+     * @return Refresh token expiration time
+     */
+    public long getRefreshTokenExpiration() {
+        return refreshTokenExpiration;
+    }
 }
@@ -4,11 +4,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -33,6 +41,16 @@ public class RedisUtil {
         stringRedisTemplate.opsForValue().set(key, value, timeout, unit);
     }
 
+    /**
+     * set string & timeout only if the key does not exist (SET NX)
+     *
+     * @return true if the key was set
+     */
+    public boolean setIfAbsent(String key, String value, long timeout, TimeUnit unit) {
+        Boolean result = stringRedisTemplate.opsForValue().setIfAbsent(key, value, timeout, unit);
+        return result != null && result;
+    }
+
     /**
      * set string &　never timeout
      */
@@ -153,6 +171,50 @@ public class RedisUtil {
         return zSetOperations.score(key, member);
     }
 
+    /**
+     * get all members of a set
+     */
+    public Set<String> sMembers(String key) {
+        return stringRedisTemplate.opsForSet().members(key);
+    }
+
+    /**
+     * get several keys in one round trip (MGET), missing keys come back as null
+     */
+    public List<String> multiGet(Collection<String> keys) {
+        return stringRedisTemplate.opsForValue().multiGet(keys);
+    }
+
+    /**
+     * set several keys with the same timeout in one pipelined round trip
+     */
+    public void multiSet(Map<String, String> values, long timeout, TimeUnit unit) {
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                values.forEach((key, value) -> ops.opsForValue().set(key, value, timeout, unit));
+                return null;
+            }
+        });
+    }
+
+    /**
+     * set several keys that do not exist yet (SET NX) with the same timeout in one pipelined round trip
+     */
+    public void multiSetIfAbsent(Map<String, String> values, long timeout, TimeUnit unit) {
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                values.forEach((key, value) -> ops.opsForValue().setIfAbsent(key, value, timeout, unit));
+                return null;
+            }
+        });
+    }
+
     /**
      * batch delete
      */
@@ -163,4 +225,30 @@ public class RedisUtil {
     public Set<String> keys(String pattern) {
         return stringRedisTemplate.keys(pattern);
     }
+
+    /**
+     * iterate keys matching a pattern with SCAN (non-blocking, unlike KEYS)
+     */
+    public Set<String> scan(String pattern, long batchSize) {
+        Set<String> result = new HashSet<>();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            cursor.forEachRemaining(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * run a Lua script atomically in a single round trip
+     */
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        return stringRedisTemplate.execute(script, keys, args);
+    }
+
+    /**
+     * publish a message to a pub/sub channel
+     */
+    public void publish(String channel, String message) {
+        stringRedisTemplate.convertAndSend(channel, message);
+    }
 }
\ No newline at end of file
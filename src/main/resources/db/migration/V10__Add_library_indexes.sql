@@ -0,0 +1,50 @@
+-- Indexes for library lookups, built without blocking writes. CONCURRENTLY cannot run in a
+-- transaction, see V10__Add_library_indexes.sql.conf.
+--
+-- Safe to re-run after a failure: a failed concurrent build leaves an INVALID index that
+-- IF NOT EXISTS would skip, so those are dropped first. Nodes still on the old
+-- check-then-insert path can add duplicates after V9 has run; they are checked for again
+-- right before the unique indexes are built, failing early with no index left behind.
+-- Finish rolling out the single-statement writes, or CALL dedupe_library_entries() (V9),
+-- then repair and re-run the migration.
+
+DO $$
+DECLARE
+    leftover REGCLASS;
+BEGIN
+    FOR leftover IN
+        SELECT i.indexrelid::regclass
+        FROM pg_index i
+        WHERE NOT i.indisvalid
+          AND i.indexrelid IN (to_regclass('uq_library_user_id'), to_regclass('uq_novel_library_library_novel'),
+                               to_regclass('idx_novel_library_create_time'), to_regclass('idx_novel_library_update_time'))
+    LOOP
+        EXECUTE format('DROP INDEX %s', leftover);
+    END LOOP;
+END;
+$$;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM library GROUP BY user_id HAVING COUNT(*) > 1) THEN
+        RAISE EXCEPTION 'library has several rows for one user_id, CALL dedupe_library_entries() before this migration';
+    END IF;
+    IF EXISTS (SELECT 1 FROM novel_library GROUP BY library_id, novel_id HAVING COUNT(*) > 1) THEN
+        RAISE EXCEPTION 'novel_library lists a novel twice in one library, CALL dedupe_library_entries() before this migration';
+    END IF;
+END;
+$$;
+
+-- One library per user, found by user id on every library request
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_library_user_id ON library (user_id);
+
+-- A novel is listed once per library; also serves lookups of one novel in a library
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_novel_library_library_novel ON novel_library (library_id, novel_id);
+
+-- Library pages sorted by create or update time, in keyset order with id as tie-break;
+-- novel_id and progress are included so novel id and progress listings are index-only scans
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_novel_library_create_time
+    ON novel_library (library_id, create_time, id) INCLUDE (novel_id, progress);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_novel_library_update_time
+    ON novel_library (library_id, update_time, id) INCLUDE (novel_id, progress);
@@ -0,0 +1,20 @@
+-- Store the owner of each library entry on novel_library, so library queries filter by
+-- user without joining library. Adding a nullable column is a metadata-only change.
+ALTER TABLE novel_library ADD COLUMN IF NOT EXISTS user_id UUID;
+
+-- Dual write: the service writes user_id itself, this trigger fills it for writers that
+-- do not (instances still running the previous release) and when an entry moves library.
+-- Existing rows are backfilled in throttled batches by NovelLibraryUserIdBackfill.
+CREATE OR REPLACE FUNCTION novel_library_set_user_id() RETURNS trigger AS $$
+BEGIN
+    IF NEW.user_id IS NULL OR (TG_OP = 'UPDATE' AND NEW.library_id IS DISTINCT FROM OLD.library_id) THEN
+        SELECT user_id INTO NEW.user_id FROM library WHERE id = NEW.library_id;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_novel_library_user_id ON novel_library;
+CREATE TRIGGER trg_novel_library_user_id
+    BEFORE INSERT OR UPDATE OF library_id ON novel_library
+    FOR EACH ROW EXECUTE FUNCTION novel_library_set_user_id();
@@ -0,0 +1,17 @@
+-- Indexes for library queries by novel_library.user_id, built without blocking writes
+-- (see V12__Add_novel_library_user_id_indexes.sql.conf and the note in V10 on failed builds).
+-- Reads switch to them with library.user-id-reads.enabled once the backfill is done.
+
+-- Rows still to backfill; lets the backfill resume without scanning finished rows.
+-- Updated rows leave it, drop it once the backfill has completed
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_novel_library_user_id_missing ON novel_library (id) WHERE user_id IS NULL;
+
+-- A novel is listed once per user; also serves lookups of one novel of a user
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_novel_library_user_novel ON novel_library (user_id, novel_id);
+
+-- Library pages of a user in keyset order, as the library_id indexes of V10
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_novel_library_user_create_time
+    ON novel_library (user_id, create_time, id) INCLUDE (novel_id, progress);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_novel_library_user_update_time
+    ON novel_library (user_id, update_time, id) INCLUDE (novel_id, progress);
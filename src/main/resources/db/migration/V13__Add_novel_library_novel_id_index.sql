@@ -0,0 +1,5 @@
+-- Index for the novel status backfill, which walks the distinct novel ids of novel_library
+-- in order instead of scanning the table for unprojected ones. Built without blocking
+-- writes, see V13__Add_novel_library_novel_id_index.sql.conf and the note in V10 on
+-- failed builds.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_novel_library_novel_id ON novel_library (novel_id);
@@ -0,0 +1,9 @@
+-- Shared progress of the novel_library.user_id backfill. Instances take the row with
+-- FOR UPDATE SKIP LOCKED for the length of one batch, so a single instance runs each
+-- batch, and a restart resumes after the last id instead of starting over.
+CREATE TABLE IF NOT EXISTS novel_library_user_id_backfill (
+    id SMALLINT PRIMARY KEY,
+    last_id INTEGER NOT NULL
+);
+
+INSERT INTO novel_library_user_id_backfill (id, last_id) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
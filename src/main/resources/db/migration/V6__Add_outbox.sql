@@ -0,0 +1,17 @@
+-- Transactional outbox: domain events are written in the same transaction as the
+-- change that produced them and published to Kafka by OutboxRelay after commit.
+CREATE TABLE IF NOT EXISTS outbox (
+    id BIGSERIAL PRIMARY KEY,
+    topic VARCHAR(255) NOT NULL,
+    event_key VARCHAR(255),
+    event_type VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    published_time TIMESTAMP
+);
+
+-- The relay only ever scans unpublished rows in id order
+CREATE INDEX IF NOT EXISTS idx_outbox_unpublished ON outbox (id) WHERE published_time IS NULL;
+
+-- Pruning deletes published rows by age
+CREATE INDEX IF NOT EXISTS idx_outbox_published_time ON outbox (published_time) WHERE published_time IS NOT NULL;
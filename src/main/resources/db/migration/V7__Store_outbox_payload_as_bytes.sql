@@ -0,0 +1,4 @@
+-- Outbox payloads are stored exactly as they go on the wire, JSON or Avro.
+-- Avro records carry their schema fingerprint instead of a __TypeId__ header.
+ALTER TABLE outbox ALTER COLUMN payload TYPE BYTEA USING convert_to(payload, 'UTF8');
+ALTER TABLE outbox ALTER COLUMN event_type DROP NOT NULL;
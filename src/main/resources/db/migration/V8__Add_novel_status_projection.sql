@@ -0,0 +1,9 @@
+-- Local projection of novel status, fed by content-service change events, so library
+-- pages filter published novels with a join instead of an IN list of every novel id.
+-- status holds NovelStatus values; update_time is the event time and only newer events
+-- replace a row.
+CREATE TABLE IF NOT EXISTS novel_status (
+    novel_id INTEGER PRIMARY KEY,
+    status SMALLINT NOT NULL,
+    update_time TIMESTAMP NOT NULL
+);
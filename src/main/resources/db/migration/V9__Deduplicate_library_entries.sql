@@ -0,0 +1,101 @@
+-- Remove duplicates that would block the unique indexes of V10.
+--
+-- Runs outside a transaction (see V9__Deduplicate_library_entries.sql.conf) in short
+-- batches that commit one by one, so no lock is held on a whole table. Every removed row
+-- is copied to an audit table first. Each step skips work already done, so after a
+-- failure the procedure can be run again, by repairing and re-running the migration or
+-- with CALL dedupe_library_entries().
+
+CREATE TABLE IF NOT EXISTS library_dedupe_audit (
+    id INTEGER PRIMARY KEY,
+    uuid UUID NOT NULL,
+    user_id UUID NOT NULL,
+    create_time TIMESTAMP,
+    update_time TIMESTAMP,
+    kept_library_id INTEGER NOT NULL,
+    audit_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS novel_library_dedupe_audit (
+    id INTEGER PRIMARY KEY,
+    library_id INTEGER NOT NULL,
+    novel_id INTEGER NOT NULL,
+    progress INTEGER,
+    create_time TIMESTAMP,
+    update_time TIMESTAMP,
+    audit_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE OR REPLACE PROCEDURE dedupe_library_entries(batch_size INTEGER DEFAULT 5000)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    last_id INTEGER;
+    max_id INTEGER;
+BEGIN
+    -- A user keeps their oldest library; the others are recorded with the one they merge into
+    INSERT INTO library_dedupe_audit (id, uuid, user_id, create_time, update_time, kept_library_id)
+    SELECT l.id, l.uuid, l.user_id, l.create_time, l.update_time, keep.id
+    FROM library l
+    JOIN (SELECT user_id, MIN(id) AS id FROM library GROUP BY user_id) keep ON keep.user_id = l.user_id
+    WHERE l.id <> keep.id
+    ON CONFLICT (id) DO NOTHING;
+    COMMIT;
+
+    IF EXISTS (SELECT 1 FROM library l JOIN library_dedupe_audit a ON a.id = l.id) THEN
+        -- entries of the other libraries move over to the kept one, one id range at a time
+        last_id := 0;
+        SELECT COALESCE(MAX(id), 0) INTO max_id FROM novel_library;
+        WHILE last_id < max_id LOOP
+            UPDATE novel_library nl
+            SET library_id = a.kept_library_id
+            FROM library_dedupe_audit a
+            WHERE nl.library_id = a.id
+              AND nl.id > last_id
+              AND nl.id <= last_id + batch_size;
+            last_id := last_id + batch_size;
+            COMMIT;
+        END LOOP;
+
+        DELETE FROM library l
+        USING library_dedupe_audit a
+        WHERE l.id = a.id;
+        COMMIT;
+    END IF;
+
+    -- A novel is listed once per library, keeping the most recently updated progress
+    INSERT INTO novel_library_dedupe_audit (id, library_id, novel_id, progress, create_time, update_time)
+    SELECT ranked.id, ranked.library_id, ranked.novel_id, ranked.progress, ranked.create_time, ranked.update_time
+    FROM (
+        SELECT nl.id, nl.library_id, nl.novel_id, nl.progress, nl.create_time, nl.update_time,
+               ROW_NUMBER() OVER (PARTITION BY nl.library_id, nl.novel_id
+                                  ORDER BY nl.update_time DESC NULLS LAST, nl.id DESC) AS rn
+        FROM novel_library nl
+    ) ranked
+    WHERE ranked.rn > 1
+    ON CONFLICT (id) DO NOTHING;
+    COMMIT;
+
+    -- then deleted by primary key, one batch of audited ids at a time
+    last_id := 0;
+    LOOP
+        SELECT MAX(batch.id) INTO max_id
+        FROM (
+            SELECT a.id FROM novel_library_dedupe_audit a
+            WHERE a.id > last_id
+            ORDER BY a.id
+            LIMIT batch_size
+        ) batch;
+        EXIT WHEN max_id IS NULL;
+        DELETE FROM novel_library nl
+        USING novel_library_dedupe_audit a
+        WHERE nl.id = a.id
+          AND a.id > last_id
+          AND a.id <= max_id;
+        last_id := max_id;
+        COMMIT;
+    END LOOP;
+END;
+$$;
+
+CALL dedupe_library_entries();
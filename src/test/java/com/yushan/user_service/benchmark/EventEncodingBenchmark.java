@@ -0,0 +1,136 @@
+package com.yushan.user_service.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yushan.user_service.event.AvroSchemaRegistry;
+import com.yushan.user_service.event.EventCodec;
+import com.yushan.user_service.event.dto.EventEnvelope;
+import com.yushan.user_service.event.dto.UserActivityEvent;
+import com.yushan.user_service.event.dto.UserLoggedInEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event encoding benchmark
+ *
+ * Compares the JSON path (the user.events envelope built with valueToTree and then
+ * serialized again, and the activity event as JSON with LocalDateTime strings) with
+ * Avro single-object encoding of the same events, for encoding and, on the consumer
+ * side, decoding of activity events. main() prints the bytes per event first.
+ *
+ * Not part of the test suite; run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventEncodingBenchmark {
+
+    private static final String ACTIVE_TOPIC = "active";
+
+    private static final String USER_EVENTS_TOPIC = "user.events";
+
+    // mirrors the Spring Boot mapper UserEventProducer uses to build the envelope
+    private final ObjectMapper springObjectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final ObjectReader activityReader = springObjectMapper.readerFor(UserActivityEvent.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private EventCodec jsonCodec;
+
+    private EventCodec avroCodec;
+
+    private UserActivityEvent activityEvent;
+
+    private UserLoggedInEvent loggedInEvent;
+
+    private byte[] activityJson;
+
+    private byte[] activityAvro;
+
+    @Setup
+    public void setUp() {
+        AvroSchemaRegistry registry = new AvroSchemaRegistry();
+        jsonCodec = new EventCodec(registry, Set.of());
+        avroCodec = new EventCodec(registry, Set.of(ACTIVE_TOPIC, USER_EVENTS_TOPIC));
+
+        UUID userId = UUID.randomUUID();
+        Date now = new Date();
+        activityEvent = new UserActivityEvent(userId, "content-service", "/api/v1/chapters/1024", "GET", LocalDateTime.now());
+        loggedInEvent = new UserLoggedInEvent(userId, "reader", "reader@example.com", now, now, now, now);
+        activityJson = jsonActivity();
+        activityAvro = avroActivity();
+    }
+
+    @Benchmark
+    public byte[] jsonActivity() {
+        return jsonCodec.encode(ACTIVE_TOPIC, null, activityEvent).value();
+    }
+
+    @Benchmark
+    public byte[] avroActivity() {
+        return avroCodec.encode(ACTIVE_TOPIC, null, activityEvent).value();
+    }
+
+    /**
+     * JSON user.events path: valueToTree into the envelope, then serialize the tree
+     */
+    @Benchmark
+    public byte[] jsonEnvelope() {
+        EventEnvelope envelope = new EventEnvelope("UserLoggedInEvent", springObjectMapper.valueToTree(loggedInEvent));
+        return jsonCodec.encode(USER_EVENTS_TOPIC, null, envelope).value();
+    }
+
+    @Benchmark
+    public byte[] avroAccountEvent() {
+        return avroCodec.encode(USER_EVENTS_TOPIC, null, loggedInEvent).value();
+    }
+
+    @Benchmark
+    public UserActivityEvent decodeJsonActivity() throws IOException {
+        return activityReader.readValue(activityJson);
+    }
+
+    @Benchmark
+    public UserActivityEvent decodeAvroActivity() throws IOException {
+        return avroCodec.decodeActivity(activityAvro);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        EventEncodingBenchmark sizes = new EventEncodingBenchmark();
+        sizes.setUp();
+        System.out.printf("activity:    json %d bytes, avro %d bytes%n",
+                sizes.jsonActivity().length, sizes.avroActivity().length);
+        System.out.printf("user.events: json %d bytes, avro %d bytes%n",
+                sizes.jsonEnvelope().length, sizes.avroAccountEvent().length);
+
+        new Runner(new OptionsBuilder()
+                .include(EventEncodingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
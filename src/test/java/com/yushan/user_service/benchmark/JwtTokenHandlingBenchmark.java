@@ -0,0 +1,108 @@
+package com.yushan.user_service.benchmark;
+
+import com.yushan.user_service.entity.User;
+import com.yushan.user_service.security.JwtKeyProvider;
+import com.yushan.user_service.util.JwtClaims;
+import com.yushan.user_service.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT per-request handling benchmark
+ *
+ * Compares the old filter path, which re-derived the HMAC key and built a new parser
+ * for each of its claim lookups, with a single {@link JwtUtil#parseAndValidate(String)}
+ * against the precomputed key and shared parser.
+ *
+ * Not part of the test suite; run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenHandlingBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-for-jwt-handling-0123456789";
+
+    private JwtUtil jwtUtil;
+
+    private String accessToken;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtKeyProvider",
+                new JwtKeyProvider("HS256", SECRET, "", "", "", "", ""));
+        ReflectionTestUtils.setField(jwtUtil, "accessTokenExpiration", 3600000L);
+        ReflectionTestUtils.setField(jwtUtil, "refreshTokenExpiration", 86400000L);
+        ReflectionTestUtils.setField(jwtUtil, "issuer", "yushan-user-service");
+        jwtUtil.init();
+
+        User user = new User();
+        user.setUuid(UUID.randomUUID());
+        user.setEmail("reader@example.com");
+        user.setUsername("reader");
+        user.setStatus(0);
+        user.setIsAuthor(false);
+        user.setIsAdmin(false);
+        accessToken = jwtUtil.generateAccessToken(user);
+    }
+
+    /**
+     * Old filter path: validateToken, extractEmail and validateToken(token, user),
+     * each re-deriving the key and building a parser
+     */
+    @Benchmark
+    public void legacyPerRequest(Blackhole bh) {
+        bh.consume(legacyParse(accessToken).getExpiration().before(new Date()));
+        String email = legacyParse(accessToken).get("email", String.class);
+        bh.consume(email);
+        bh.consume(email.equals(legacyParse(accessToken).get("email", String.class)));
+        bh.consume(legacyParse(accessToken).getExpiration().before(new Date()));
+    }
+
+    /**
+     * New filter path: one verification against the shared parser
+     */
+    @Benchmark
+    public JwtClaims parseAndValidate() {
+        return jwtUtil.parseAndValidate(accessToken);
+    }
+
+    private static Claims legacyParse(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtTokenHandlingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
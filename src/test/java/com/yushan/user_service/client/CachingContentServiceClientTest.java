@@ -0,0 +1,162 @@
+package com.yushan.user_service.client;
+
+import com.yushan.user_service.client.dto.ChapterInfoDTO;
+import com.yushan.user_service.client.dto.NovelInfoDTO;
+import com.yushan.user_service.dto.ApiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CachingContentServiceClientTest {
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    private ContentServiceClient delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ContentSnapshotStore snapshots;
+
+    private CachingContentServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ContentServiceClient.class);
+        snapshots = mock(ContentSnapshotStore.class);
+        meterRegistry = new SimpleMeterRegistry();
+        client = new CachingContentServiceClient(delegate, snapshots, meterRegistry, 300, 3600, 30, 5, 1000, ticker::get);
+    }
+
+    @Test
+    void getNovelsByIds_onlyRequestsMissingIds() {
+        when(delegate.getNovelsByIds(List.of(1, 2))).thenReturn(ApiResponse.success(List.of(novel(1), novel(2))));
+        when(delegate.getNovelsByIds(List.of(3))).thenReturn(ApiResponse.success(List.of(novel(3))));
+
+        client.getNovelsByIds(List.of(1, 2));
+        List<NovelInfoDTO> result = client.getNovelsByIds(List.of(3, 2, 1)).getData();
+
+        assertEquals(List.of(3, 2, 1), result.stream().map(NovelInfoDTO::id).toList());
+        verify(delegate).getNovelsByIds(List.of(1, 2));
+        verify(delegate).getNovelsByIds(List.of(3));
+        assertEquals(3.0, meterRegistry.get("content.cache.remote.ids").counter().count());
+    }
+
+    @Test
+    void getNovelsByIds_withEveryIdCached_makesNoRemoteCall() {
+        when(delegate.getNovelsByIds(List.of(1, 2))).thenReturn(ApiResponse.success(List.of(novel(1), novel(2))));
+        client.getNovelsByIds(List.of(1, 2));
+
+        client.getNovelsByIds(List.of(2, 1, 2));
+        client.getNovelById(1);
+
+        verify(delegate, times(1)).getNovelsByIds(anyList());
+        verify(delegate, never()).getNovelById(any());
+    }
+
+    @Test
+    void getNovelsByIds_cachesMissingIdsUntilNegativeTtl() {
+        when(delegate.getNovelsByIds(List.of(1, 404))).thenReturn(ApiResponse.success(List.of(novel(1))));
+        when(delegate.getNovelsByIds(List.of(404))).thenReturn(ApiResponse.success(List.of()));
+
+        client.getNovelsByIds(List.of(1, 404));
+        assertEquals(List.of(novel(1)), client.getNovelsByIds(List.of(1, 404)).getData());
+        assertNull(client.getNovelById(404).getData());
+        verify(delegate, times(1)).getNovelsByIds(anyList());
+        assertEquals(2.0, meterRegistry.get("content.cache.negative.hits").counter().count());
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        client.getNovelsByIds(List.of(1, 404));
+
+        verify(delegate).getNovelsByIds(List.of(404));
+    }
+
+    @Test
+    void getNovelById_expiresAfterNovelTtl() {
+        when(delegate.getNovelsByIds(List.of(1))).thenReturn(ApiResponse.success(List.of(novel(1))));
+
+        client.getNovelById(1);
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(299));
+        client.getNovelById(1);
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        client.getNovelById(1);
+
+        verify(delegate, times(2)).getNovelsByIds(List.of(1));
+    }
+
+    @Test
+    void fallbackResponses_areNotCached() {
+        ContentServiceClient.ContentServiceFallback fallback = new ContentServiceClient.ContentServiceFallback();
+        when(delegate.getNovelsByIds(anyList())).thenReturn(fallback.getNovelsByIds(List.of(1)));
+
+        ApiResponse<List<NovelInfoDTO>> degraded = client.getNovelsByIds(List.of(1));
+        ApiResponse<NovelInfoDTO> single = client.getNovelById(1);
+        client.getNovelsByIds(List.of(1));
+
+        assertEquals(ContentServiceClient.ContentServiceFallback.MESSAGE, degraded.getMessage());
+        assertNull(single.getData());
+        assertFalse(CachingContentServiceClient.isStale(single));
+        verify(delegate, times(3)).getNovelsByIds(List.of(1));
+        verify(snapshots, never()).saveNovels(any());
+    }
+
+    @Test
+    void realAnswers_areSnapshotted() {
+        when(delegate.getNovelsByIds(List.of(1, 2))).thenReturn(ApiResponse.success(List.of(novel(1))));
+
+        client.getNovelsByIds(List.of(1, 2));
+
+        verify(snapshots).saveNovels(List.of(novel(1)));
+    }
+
+    @Test
+    void fallback_servesLastKnownGoodMarkedStale_andRetriesAfterStaleTtl() {
+        ContentServiceClient.ContentServiceFallback fallback = new ContentServiceClient.ContentServiceFallback();
+        when(delegate.getNovelsByIds(anyList())).thenReturn(fallback.getNovelsByIds(List.of(1, 2)));
+        when(snapshots.findNovels(List.of(1, 2))).thenReturn(Map.of(1, novel(1)));
+
+        ApiResponse<List<NovelInfoDTO>> first = client.getNovelsByIds(List.of(1, 2));
+        ApiResponse<List<NovelInfoDTO>> cached = client.getNovelsByIds(List.of(1));
+
+        assertTrue(CachingContentServiceClient.isStale(first));
+        assertEquals(List.of(novel(1)), first.getData());
+        assertTrue(CachingContentServiceClient.isStale(cached));
+        verify(delegate, never()).getNovelsByIds(List.of(1));
+        assertEquals(2.0, meterRegistry.get("content.cache.stale.served").counter().count());
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        when(delegate.getNovelsByIds(List.of(1))).thenReturn(ApiResponse.success(List.of(novel(1))));
+
+        assertFalse(CachingContentServiceClient.isStale(client.getNovelsByIds(List.of(1))));
+    }
+
+    @Test
+    void getChaptersByIds_cachesIndependentlyOfNovels() {
+        when(delegate.getChaptersByIds(List.of(7))).thenReturn(ApiResponse.success(List.of(new ChapterInfoDTO(7, 3, 1))));
+
+        client.getChaptersByIds(List.of(7));
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(301));
+        List<ChapterInfoDTO> chapters = client.getChaptersByIds(List.of(7)).getData();
+
+        assertEquals(3, chapters.get(0).chapterNumber());
+        verify(delegate, times(1)).getChaptersByIds(anyList());
+    }
+
+    @Test
+    void emptyRequest_makesNoRemoteCall() {
+        assertTrue(client.getNovelsByIds(List.of()).getData().isEmpty());
+        verifyNoInteractions(delegate);
+    }
+
+    private static NovelInfoDTO novel(int id) {
+        return new NovelInfoDTO(id, "Novel " + id, "author", null, 10, "PUBLISHED");
+    }
+}
@@ -0,0 +1,121 @@
+package com.yushan.user_service.client;
+
+import com.yushan.user_service.client.dto.ChapterInfoDTO;
+import com.yushan.user_service.client.dto.NovelInfoDTO;
+import com.yushan.user_service.dto.ApiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CoalescingContentServiceClientTest {
+
+    private final ContentServiceClient delegate = mock(ContentServiceClient.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    private CoalescingContentServiceClient client;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        if (client != null) {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentLookups_areSentAsOneDeduplicatedBatch() throws Exception {
+        client = new CoalescingContentServiceClient(delegate, meterRegistry, 200, 1000);
+        when(delegate.getNovelsByIds(anyList())).thenAnswer(invocation -> {
+            List<Integer> ids = invocation.getArgument(0);
+            return ApiResponse.success(ids.stream().map(CoalescingContentServiceClientTest::novel).toList());
+        });
+        List<List<Integer>> requests = List.of(List.of(1, 2), List.of(2, 3), List.of(3, 1), List.of(4));
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<ApiResponse<List<NovelInfoDTO>>>> results = new ArrayList<>();
+        for (List<Integer> ids : requests) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return client.getNovelsByIds(ids);
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < requests.size(); i++) {
+            List<Integer> returned = results.get(i).get(5, TimeUnit.SECONDS).getData().stream().map(NovelInfoDTO::id).toList();
+            assertEquals(requests.get(i), returned);
+        }
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Integer>> captor = ArgumentCaptor.forClass(List.class);
+        verify(delegate, times(1)).getNovelsByIds(captor.capture());
+        assertEquals(Set.of(1, 2, 3, 4), new HashSet<>(captor.getValue()));
+        assertEquals(4, captor.getValue().size());
+        assertEquals(4.0, meterRegistry.get("content.batch.lookups").tag("type", "novels").counter().count());
+    }
+
+    @Test
+    void batchReachingMaxIds_isFlushedWithoutWaitingForTheWindow() {
+        client = new CoalescingContentServiceClient(delegate, meterRegistry, 60_000, 3);
+        when(delegate.getChaptersByIds(List.of(1, 2, 3)))
+                .thenReturn(ApiResponse.success(List.of(new ChapterInfoDTO(1, 1, 9), new ChapterInfoDTO(3, 3, 9))));
+
+        List<ChapterInfoDTO> chapters = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> client.getChaptersByIds(List.of(1, 2, 3)).getData());
+
+        assertEquals(List.of(1, 3), chapters.stream().map(ChapterInfoDTO::id).toList());
+    }
+
+    @Test
+    void getNovelById_goesThroughNovelBatch_andKeepsFallbackMessage() {
+        client = new CoalescingContentServiceClient(delegate, meterRegistry, 1, 1000);
+        when(delegate.getNovelsByIds(List.of(5)))
+                .thenReturn(ApiResponse.success(ContentServiceClient.ContentServiceFallback.MESSAGE, List.of()));
+
+        ApiResponse<NovelInfoDTO> response = client.getNovelById(5);
+
+        assertNull(response.getData());
+        assertEquals(ContentServiceClient.ContentServiceFallback.MESSAGE, response.getMessage());
+        verify(delegate, never()).getNovelById(any());
+    }
+
+    @Test
+    void failedBatch_isRethrownToEveryCaller() {
+        client = new CoalescingContentServiceClient(delegate, meterRegistry, 1, 1000);
+        when(delegate.getNovelsByIds(anyList())).thenThrow(new IllegalStateException("boom"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> client.getNovelsByIds(List.of(1)));
+        assertEquals("boom", e.getMessage());
+    }
+
+    @Test
+    void zeroWindow_callsDelegateDirectly() {
+        client = new CoalescingContentServiceClient(delegate, meterRegistry, 0, 1000);
+        when(delegate.getNovelsByIds(List.of(1))).thenReturn(ApiResponse.success(List.of(novel(1))));
+
+        assertEquals(1, client.getNovelsByIds(List.of(1)).getData().size());
+        assertEquals(0L, meterRegistry.get("content.batch.ids").tag("type", "novels").summary().count());
+    }
+
+    private static NovelInfoDTO novel(int id) {
+        return new NovelInfoDTO(id, "Novel " + id, "author", null, 10, "PUBLISHED");
+    }
+}
@@ -0,0 +1,83 @@
+package com.yushan.user_service.client;
+
+import com.yushan.user_service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentFanOutTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ContentFanOut fanOut;
+
+    @AfterEach
+    void tearDown() {
+        fanOut.shutdown();
+    }
+
+    @Test
+    void both_runsLookupsInParallel() {
+        fanOut = new ContentFanOut(meterRegistry, 2000);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        // each lookup only finishes once the other one has started
+        ContentFanOut.Both<String, Integer> result = fanOut.both(
+                () -> awaitOther(bothStarted, "novel"),
+                () -> awaitOther(bothStarted, 7));
+
+        assertEquals("novel", result.first());
+        assertEquals(7, result.second());
+    }
+
+    @Test
+    void both_deadlinePassed_cancelsLookupsAndThrowsServiceUnavailable() throws Exception {
+        fanOut = new ContentFanOut(meterRegistry, 50);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class, () -> fanOut.both(
+                () -> "fast",
+                () -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException ex) {
+                        interrupted.countDown();
+                    }
+                    return "slow";
+                }));
+
+        assertTrue(e.getRetryAfterSeconds() > 0);
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS), "slow lookup was not cancelled");
+        assertEquals(1.0, meterRegistry.counter("content.fanout.deadline.exceeded").count());
+    }
+
+    @Test
+    void both_lookupFails_rethrowsItsException() {
+        fanOut = new ContentFanOut(meterRegistry, 2000);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> fanOut.both(
+                () -> {
+                    throw new IllegalStateException("boom");
+                },
+                () -> "ok"));
+
+        assertEquals("boom", e.getMessage());
+    }
+
+    private static <T> T awaitOther(CountDownLatch bothStarted, T value) {
+        bothStarted.countDown();
+        try {
+            if (!bothStarted.await(1, TimeUnit.SECONDS)) {
+                throw new AssertionError("lookups ran one after the other");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,75 @@
+package com.yushan.user_service.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yushan.user_service.client.dto.ChapterInfoDTO;
+import com.yushan.user_service.client.dto.NovelInfoDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentSnapshotStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void savedMetadata_isFoundAfterRestart() {
+        NovelInfoDTO novel = new NovelInfoDTO(1, "Title", "author", "https://cdn/cover.png", 12, "PUBLISHED");
+        ChapterInfoDTO chapter = new ChapterInfoDTO(10, 3, 1);
+        ContentSnapshotStore store = open();
+        store.saveNovels(List.of(novel));
+        store.saveChapters(List.of(chapter));
+        store.close();
+
+        ContentSnapshotStore reopened = open();
+        try {
+            assertEquals(Map.of(1, novel), reopened.findNovels(List.of(1, 2)));
+            assertEquals(Map.of(10, chapter), reopened.findChapters(List.of(10)));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void oversizedNovel_isSkippedAndCounted() {
+        ContentSnapshotStore store = open();
+        try {
+            store.saveNovels(List.of(new NovelInfoDTO(1, "x".repeat(1000), "author", null, 1, "PUBLISHED")));
+
+            assertTrue(store.findNovels(List.of(1)).isEmpty());
+            assertEquals(1.0, meterRegistry.get("content.snapshot.oversized").counter().count());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void unopenableDirectory_leavesStoreEmpty() throws Exception {
+        Path notADirectory = tempDir.resolve("file");
+        Files.writeString(notADirectory, "x");
+        ContentSnapshotStore store = new ContentSnapshotStore(new ObjectMapper(), meterRegistry,
+                notADirectory.toString(), 64, 64);
+        store.open();
+
+        store.saveNovels(List.of(new NovelInfoDTO(1, "Title", "author", null, 1, "PUBLISHED")));
+
+        assertTrue(store.findNovels(List.of(1)).isEmpty());
+        store.close();
+    }
+
+    private ContentSnapshotStore open() {
+        ContentSnapshotStore store = new ContentSnapshotStore(new ObjectMapper(), meterRegistry,
+                tempDir.resolve("snapshot").toString(), 64, 64);
+        store.open();
+        return store;
+    }
+}
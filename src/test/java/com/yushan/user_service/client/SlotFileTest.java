@@ -0,0 +1,95 @@
+package com.yushan.user_service.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void putGet_roundTripsValues() throws Exception {
+        try (SlotFile file = new SlotFile(tempDir.resolve("t.slots"), 1024, 64)) {
+            assertTrue(file.put(1, bytes("one")));
+            assertTrue(file.put(2, bytes("two")));
+            assertTrue(file.put(1, bytes("uno")));
+
+            assertEquals("uno", string(file.get(1)));
+            assertEquals("two", string(file.get(2)));
+            assertNull(file.get(3));
+        }
+    }
+
+    @Test
+    void values_surviveReopen() throws Exception {
+        Path path = tempDir.resolve("t.slots");
+        try (SlotFile file = new SlotFile(path, 1024, 64)) {
+            file.put(42, bytes("kept"));
+        }
+        try (SlotFile file = new SlotFile(path, 1024, 64)) {
+            assertEquals("kept", string(file.get(42)));
+        }
+    }
+
+    @Test
+    void reopenWithOtherGeometry_clearsTheFile() throws Exception {
+        Path path = tempDir.resolve("t.slots");
+        try (SlotFile file = new SlotFile(path, 1024, 64)) {
+            file.put(42, bytes("kept"));
+        }
+        try (SlotFile file = new SlotFile(path, 1024, 128)) {
+            assertNull(file.get(42));
+        }
+    }
+
+    @Test
+    void collidingKey_replacesThePreviousOne() throws Exception {
+        try (SlotFile file = new SlotFile(tempDir.resolve("t.slots"), 1, 64)) {
+            file.put(1, bytes("one"));
+            file.put(2, bytes("two"));
+
+            assertNull(file.get(1));
+            assertEquals("two", string(file.get(2)));
+        }
+    }
+
+    @Test
+    void put_refusesValuesLargerThanASlot() throws Exception {
+        try (SlotFile file = new SlotFile(tempDir.resolve("t.slots"), 16, 32)) {
+            assertEquals(20, file.maxValueBytes());
+            assertFalse(file.put(1, new byte[21]));
+            assertTrue(file.put(1, new byte[20]));
+        }
+    }
+
+    @Test
+    void corruptedSlot_readsAsEmpty() throws Exception {
+        Path path = tempDir.resolve("t.slots");
+        try (SlotFile file = new SlotFile(path, 1, 64)) {
+            file.put(7, bytes("value"));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(path.toFile(), "rw")) {
+            // first value byte: 8-byte file header + 12-byte slot header
+            raw.seek(20);
+            raw.write('X');
+        }
+        try (SlotFile file = new SlotFile(path, 1, 64)) {
+            assertNull(file.get(7));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+}
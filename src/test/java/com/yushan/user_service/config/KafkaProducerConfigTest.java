@@ -0,0 +1,68 @@
+package com.yushan.user_service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaProducerConfigTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private KafkaProducerConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new KafkaProducerConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", "localhost:9092");
+        ReflectionTestUtils.setField(config, "publisherMaxBlockMs", 2000L);
+    }
+
+    @Test
+    void activityProfile_favoursThroughputOverDurability() {
+        ProducerFactory<String, byte[]> factory = config.activityProducerFactory(meterRegistry, "1", 50, 262144, "lz4", 2);
+
+        Map<String, Object> props = factory.getConfigurationProperties();
+        assertEquals("1", props.get(ProducerConfig.ACKS_CONFIG));
+        assertEquals(false, props.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertEquals(50, props.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(262144, props.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("lz4", props.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(2000L, props.get(ProducerConfig.MAX_BLOCK_MS_CONFIG));
+        assertMetricsBound(factory);
+    }
+
+    @Test
+    void userEventsProfile_isIdempotentWithAllAcks() {
+        ProducerFactory<String, byte[]> factory = config.userEventsProducerFactory(meterRegistry, 5, 65536, "zstd", 120000);
+
+        Map<String, Object> props = factory.getConfigurationProperties();
+        assertEquals("all", props.get(ProducerConfig.ACKS_CONFIG));
+        assertEquals(true, props.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertEquals(5, props.get(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION));
+        assertEquals("zstd", props.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(120000, props.get(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG));
+        assertMetricsBound(factory);
+    }
+
+    @Test
+    void templates_recordSendLatencyPerProfile() {
+        var template = config.activityKafkaTemplate(config.activityProducerFactory(meterRegistry, "1", 50, 262144, "lz4", 2));
+
+        assertTrue((Boolean) ReflectionTestUtils.getField(template, "micrometerEnabled"));
+        assertEquals(Map.of("profile", "activity"), ReflectionTestUtils.getField(template, "micrometerTags"));
+    }
+
+    private void assertMetricsBound(ProducerFactory<String, byte[]> factory) {
+        assertTrue(((DefaultKafkaProducerFactory<String, byte[]>) factory).getListeners().stream()
+                .anyMatch(MicrometerProducerListener.class::isInstance));
+    }
+}
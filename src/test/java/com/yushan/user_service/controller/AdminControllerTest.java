@@ -7,6 +7,9 @@ import com.yushan.user_service.enums.ErrorCode;
 import com.yushan.user_service.enums.UserStatus;
 import com.yushan.user_service.service.AdminService;
 import com.yushan.user_service.service.UserService;
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.service.TokenRevocationService;
+import com.yushan.user_service.util.ActivityEventThrottle;
 import com.yushan.user_service.util.JwtUtil;
 import com.yushan.user_service.util.RedisUtil;
 import com.yushan.user_service.event.UserActivityEventProducer;
@@ -56,9 +59,18 @@ class AdminControllerTest {
     @MockBean
     private JwtUtil jwtUtil;
 
+    @MockBean
+    private AuthPrincipalCache authPrincipalCache;
+
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
     @MockBean
     private UserActivityEventProducer userActivityEventProducer;
 
+    @MockBean
+    private ActivityEventThrottle activityEventThrottle;
+
     private AdminPromoteRequestDTO request;
     private UserProfileResponseDTO response;
 
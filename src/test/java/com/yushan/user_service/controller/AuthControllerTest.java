@@ -7,6 +7,9 @@ import com.yushan.user_service.entity.User;
 import com.yushan.user_service.event.UserActivityEventProducer;
 import com.yushan.user_service.service.AuthService;
 import com.yushan.user_service.service.MailService;
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.service.TokenRevocationService;
+import com.yushan.user_service.util.ActivityEventThrottle;
 import com.yushan.user_service.util.JwtUtil;
 import com.yushan.user_service.util.RedisUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -56,9 +59,18 @@ public class AuthControllerTest {
     @MockBean
     private JwtUtil jwtUtil;
 
+    @MockBean
+    private AuthPrincipalCache authPrincipalCache;
+
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
     @MockBean
     private UserActivityEventProducer userActivityEventProducer;
 
+    @MockBean
+    private ActivityEventThrottle activityEventThrottle;
+
     private UserRegistrationRequestDTO registrationDTO;
     private UserAuthResponseDTO userAuthResponseDTO;
     private UserLoginRequestDTO loginRequest;
@@ -133,10 +145,14 @@ public class AuthControllerTest {
     @Test
     void logout_Success() throws Exception {
         // When & Then
-        mockMvc.perform(post("/api/v1/auth/logout").with(csrf()))
+        mockMvc.perform(post("/api/v1/auth/logout")
+                        .with(csrf())
+                        .header("Authorization", "Bearer access-token"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.code").value(200))
-                .andExpect(jsonPath("$.message").value("JWT tokens are stateless and cannot be invalidated server-side. Client should discard tokens."));
+                .andExpect(jsonPath("$.message").value("Logged out successfully"));
+
+        verify(authService).logout("access-token", null);
     }
 
     @Test
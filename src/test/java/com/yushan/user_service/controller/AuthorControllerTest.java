@@ -11,6 +11,9 @@ import com.yushan.user_service.event.UserActivityEventProducer;
 import com.yushan.user_service.service.AuthorService;
 import com.yushan.user_service.service.MailService;
 import com.yushan.user_service.service.UserService;
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.service.TokenRevocationService;
+import com.yushan.user_service.util.ActivityEventThrottle;
 import com.yushan.user_service.util.JwtUtil;
 import com.yushan.user_service.util.RedisUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -105,9 +108,18 @@ class AuthorControllerTest {
     @MockBean
     private JwtUtil jwtUtil;
 
+    @MockBean
+    private AuthPrincipalCache authPrincipalCache;
+
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
     @MockBean
     private UserActivityEventProducer userActivityEventProducer;
 
+    @MockBean
+    private ActivityEventThrottle activityEventThrottle;
+
     private User testUser;
     private String testEmail;
 
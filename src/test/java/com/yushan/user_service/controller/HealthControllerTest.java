@@ -3,6 +3,9 @@ package com.yushan.user_service.controller;
 import com.yushan.user_service.dao.UserMapper;
 import com.yushan.user_service.event.UserActivityEventProducer;
 import com.yushan.user_service.service.UserService;
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.service.TokenRevocationService;
+import com.yushan.user_service.util.ActivityEventThrottle;
 import com.yushan.user_service.util.JwtUtil;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,8 +33,17 @@ public class HealthControllerTest {
     @MockBean
     private JwtUtil jwtUtil;
 
+    @MockBean
+    private AuthPrincipalCache authPrincipalCache;
+
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
     @MockBean
     private UserActivityEventProducer userActivityEventProducer;
+
+    @MockBean
+    private ActivityEventThrottle activityEventThrottle;
     @Autowired
     private MockMvc mockMvc;
 
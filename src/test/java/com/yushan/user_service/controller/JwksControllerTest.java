@@ -0,0 +1,77 @@
+package com.yushan.user_service.controller;
+
+import com.yushan.user_service.dao.UserMapper;
+import com.yushan.user_service.event.UserActivityEventProducer;
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.service.TokenRevocationService;
+import com.yushan.user_service.security.JwtKeyProvider;
+import com.yushan.user_service.util.ActivityEventThrottle;
+import com.yushan.user_service.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(JwksController.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc(addFilters = false)
+public class JwksControllerTest {
+
+    @MockBean
+    private JwtKeyProvider jwtKeyProvider;
+
+    @MockBean
+    private UserMapper userMapper;
+
+    @MockBean
+    private JwtUtil jwtUtil;
+
+    @MockBean
+    private AuthPrincipalCache authPrincipalCache;
+
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
+    @MockBean
+    private UserActivityEventProducer userActivityEventProducer;
+
+    @MockBean
+    private ActivityEventThrottle activityEventThrottle;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtKeyProvider.getJwksJson()).thenReturn("{\"keys\":[{\"kty\":\"EC\",\"kid\":\"k1\"}]}");
+        when(jwtKeyProvider.getJwksEtag()).thenReturn("\"abc123\"");
+    }
+
+    @Test
+    void jwks_shouldReturnKeysWithCacheHeaders() throws Exception {
+        mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/json"))
+                .andExpect(jsonPath("$.keys[0].kid").value("k1"))
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(header().string("Cache-Control", "max-age=300, public"));
+    }
+
+    @Test
+    void jwks_shouldReturnNotModifiedForMatchingEtag() throws Exception {
+        mockMvc.perform(get("/.well-known/jwks.json").header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+}
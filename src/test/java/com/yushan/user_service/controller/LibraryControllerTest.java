@@ -128,6 +128,24 @@ class LibraryControllerTest {
         assertSame(pageResponse, response.getData());
     }
 
+    @Test
+    void getUserLibraryByCursor_Success() {
+        // Given
+        mockAuthentication();
+        CursorPageResponseDTO<LibraryResponseDTO> pageResponse = new CursorPageResponseDTO<>(List.of(), 10, "next", null);
+        when(libraryService.getUserLibraryByCursor(testUserId, "", 10, "createTime", "desc", false))
+                .thenReturn(pageResponse);
+
+        // When
+        ApiResponse<CursorPageResponseDTO<LibraryResponseDTO>> response = libraryController.getUserLibraryByCursor(
+                "", 10, "createTime", "desc", false, authentication);
+
+        // Then
+        assertNotNull(response);
+        assertEquals(response.getCode(), ErrorCode.SUCCESS.getCode());
+        assertSame(pageResponse, response.getData());
+    }
+
     @Test
     void checkNovelInLibrary_Success() {
         // Given
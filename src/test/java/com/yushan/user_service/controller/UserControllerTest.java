@@ -12,6 +12,9 @@ import com.yushan.user_service.security.CustomUserDetailsService.CustomUserDetai
 import com.yushan.user_service.security.SecurityExpressionRoot;
 import com.yushan.user_service.service.MailService;
 import com.yushan.user_service.service.UserService;
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.service.TokenRevocationService;
+import com.yushan.user_service.util.ActivityEventThrottle;
 import com.yushan.user_service.util.JwtUtil;
 import com.yushan.user_service.util.RedisUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -102,12 +105,21 @@ public class UserControllerTest {
     @MockBean
     private JwtUtil jwtUtil;
 
+    @MockBean
+    private AuthPrincipalCache authPrincipalCache;
+
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
     @MockBean
     private RedisUtil redisUtil;
 
     @MockBean
     private UserActivityEventProducer userActivityEventProducer;
 
+    @MockBean
+    private ActivityEventThrottle activityEventThrottle;
+
     private SecurityExpressionRoot securityExpressionRoot;
     private User testUser;
     private UUID testUserId = UUID.fromString("a0eebc99-9c0b-4ef8-bb6d-6bb9bd380a11");
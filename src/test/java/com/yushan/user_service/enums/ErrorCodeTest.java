@@ -69,13 +69,23 @@ class ErrorCodeTest {
         assertEquals("Internal Server Error", errorCode.getMessage());
     }
 
+    @Test
+    void testServiceUnavailableCode() {
+        // Given & When
+        ErrorCode errorCode = ErrorCode.SERVICE_UNAVAILABLE;
+
+        // Then
+        assertEquals(503, errorCode.getCode());
+        assertEquals("Service Unavailable", errorCode.getMessage());
+    }
+
     @Test
     void testErrorCodeValues() {
         // Given & When
         ErrorCode[] values = ErrorCode.values();
 
         // Then
-        assertEquals(7, values.length);
+        assertEquals(8, values.length);
         assertArrayEquals(new ErrorCode[]{
             ErrorCode.SUCCESS,
             ErrorCode.BAD_REQUEST,
@@ -84,6 +94,7 @@ class ErrorCodeTest {
             ErrorCode.NOT_FOUND,
             ErrorCode.VALIDATION_ERROR,
             ErrorCode.INTERNAL_SERVER_ERROR,
+            ErrorCode.SERVICE_UNAVAILABLE,
         }, values);
     }
 
@@ -0,0 +1,118 @@
+package com.yushan.user_service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yushan.user_service.event.dto.UserActivityEvent;
+import com.yushan.user_service.event.dto.UserLoggedInEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.message.MissingSchemaException;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventCodecTest {
+
+    private final AvroSchemaRegistry schemaRegistry = new AvroSchemaRegistry();
+
+    private final EventCodec codec = new EventCodec(schemaRegistry, Set.of("active"));
+
+    @Test
+    void encode_jsonTopic_usesJsonWithTypeId() throws Exception {
+        UserActivityEvent event = activity(UUID.randomUUID());
+
+        OutgoingEvent encoded = codec.encode("other", "key", event);
+
+        assertEquals(UserActivityEvent.class.getName(), encoded.typeId());
+        assertFalse(EventCodec.isAvro(encoded.value()));
+        assertEquals(event.userId().toString(),
+                new ObjectMapper().readTree(encoded.value()).get("userId").asText());
+    }
+
+    @Test
+    void encode_avroTopic_roundTripsActivityEvent() throws Exception {
+        UserActivityEvent event = activity(UUID.randomUUID());
+
+        OutgoingEvent encoded = codec.encode("active", event.userId().toString(), event);
+
+        assertNull(encoded.typeId());
+        assertTrue(EventCodec.isAvro(encoded.value()));
+        assertEquals(event, codec.decodeActivity(encoded.value()));
+    }
+
+    @Test
+    void encodeAvro_isSmallerThanJson() {
+        UserActivityEvent event = activity(UUID.randomUUID());
+
+        int avroBytes = codec.encode("active", null, event).value().length;
+        int jsonBytes = codec.encode("other", null, event).value().length;
+
+        assertTrue(avroBytes * 2 < jsonBytes, "avro " + avroBytes + " vs json " + jsonBytes);
+    }
+
+    @Test
+    void encodeAvro_accountEventCarriesEventType() throws Exception {
+        UUID userId = UUID.randomUUID();
+        Date now = new Date();
+        UserLoggedInEvent event = new UserLoggedInEvent(userId, "alice", "alice@example.com", now, now, now, null);
+
+        GenericRecord record = codec.decodeAccountEvent(codec.encodeAvro(event));
+
+        assertEquals("UserLoggedInEvent", record.get("eventType").toString());
+        assertEquals("alice@example.com", record.get("email").toString());
+        assertEquals(now.getTime(), record.get("lastLoginTime"));
+        assertNull(record.get("lastActiveTime"));
+    }
+
+    @Test
+    void encodeAvro_unknownType_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> codec.encode("active", null, "not an event"));
+    }
+
+    @Test
+    void decodeActivity_readsRecordsWrittenWithOlderSchemaVersion() throws Exception {
+        Schema v0;
+        try (InputStream in = getClass().getResourceAsStream("/avro/UserActivityEvent-v0.avsc")) {
+            v0 = new Schema.Parser().parse(in);
+        }
+        UUID userId = UUID.randomUUID();
+        ByteBuffer uuid = ByteBuffer.allocate(16).putLong(userId.getMostSignificantBits()).putLong(userId.getLeastSignificantBits());
+        GenericRecord old = new GenericData.Record(v0);
+        old.put("userId", new GenericData.Fixed(v0.getField("userId").schema(), uuid.array()));
+        old.put("serviceName", "content-service");
+        old.put("endpoint", "/api/v1/chapters");
+        old.put("timestamp", 1_700_000_000_000L);
+        ByteBuffer encoded = new BinaryMessageEncoder<GenericRecord>(GenericData.get(), v0).encode(old);
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+
+        UserActivityEvent decoded = codec.decodeActivity(bytes);
+
+        assertEquals(userId, decoded.userId());
+        assertEquals("content-service", decoded.serviceName());
+        assertNull(decoded.method());
+        assertEquals(LocalDateTime.of(2023, 11, 14, 22, 13, 20), decoded.timestamp());
+    }
+
+    @Test
+    void decodeActivity_unknownFingerprint_fails() {
+        byte[] bytes = {(byte) 0xC3, 0x01, 1, 2, 3, 4, 5, 6, 7, 8, 0};
+
+        assertThrows(MissingSchemaException.class, () -> codec.decodeActivity(bytes));
+        assertFalse(EventCodec.isAvro("{}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private UserActivityEvent activity(UUID userId) {
+        return new UserActivityEvent(userId, "content-service", "/api/v1/chapters/42", "GET",
+                LocalDateTime.of(2025, 1, 2, 3, 4, 5, 678_000_000));
+    }
+}
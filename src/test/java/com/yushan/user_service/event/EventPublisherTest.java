@@ -0,0 +1,163 @@
+package com.yushan.user_service.event;
+
+import com.yushan.user_service.event.dto.UserActivityEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EventPublisherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private EventPublisher publisher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = newPublisher(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void step_sendsBufferedEventAsJsonWithTypeHeader() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(success());
+        UUID userId = UUID.randomUUID();
+
+        publisher.publish("active", userId.toString(), activity(userId));
+        publisher.step();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(captor.capture());
+        ProducerRecord<String, byte[]> record = captor.getValue();
+        assertEquals("active", record.topic());
+        assertEquals(userId.toString(), record.key());
+        assertTrue(new String(record.value(), StandardCharsets.UTF_8).contains(userId.toString()));
+        assertEquals(UserActivityEvent.class.getName(),
+                new String(record.headers().lastHeader("__TypeId__").value(), StandardCharsets.UTF_8));
+        assertEquals(1.0, counter("sent"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedSend_isJournaledAndReplayedWhenBrokerRecovers() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")))
+                .thenReturn(success());
+
+        publisher.publish("active", "user-1", activity(UUID.randomUUID()));
+        publisher.step();
+        assertEquals(1.0, counter("spilled"));
+
+        publisher.step();
+
+        verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+        assertEquals(1.0, counter("replayed"));
+        assertEquals(0.0, counter("dropped"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publish_whenBufferIsFull_spillsInsteadOfBlocking() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(success());
+
+        for (int i = 0; i < 5; i++) {
+            publisher.publish("active", "user-" + i, activity(UUID.randomUUID()));
+        }
+        assertEquals(3.0, counter("spilled"));
+        verifyNoInteractions(kafkaTemplate);
+
+        // journaled events go first, the buffered ones queue up behind them
+        publisher.step();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(5)).send(captor.capture());
+        List<String> keys = captor.getAllValues().stream().map(ProducerRecord::key).toList();
+        assertEquals(List.of("user-2", "user-3", "user-4", "user-0", "user-1"), keys);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void brokerBack_sendsNewEventsDirectlyWhileTheJournalDrains() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(success());
+        for (int i = 0; i < 152; i++) {
+            publisher.publish("active", "user-" + i, activity(UUID.randomUUID()));
+        }
+        assertEquals(150.0, counter("spilled"));
+
+        publisher.step();
+
+        // one replay batch, and the buffered events did not go behind the rest of the journal
+        assertEquals(100.0, counter("replayed"));
+        assertEquals(2.0, counter("sent"));
+        assertEquals(150.0, counter("spilled"));
+
+        publisher.step();
+
+        assertEquals(150.0, counter("replayed"));
+        verify(kafkaTemplate, times(152)).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shutdown_journalsUnsentEventsForNextStart() throws Exception {
+        publisher.publish("user.events", null, activity(UUID.randomUUID()));
+        publisher.shutdown();
+        verifyNoInteractions(kafkaTemplate);
+
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(success());
+        publisher = newPublisher(2);
+        publisher.step();
+
+        verify(kafkaTemplate).send(any(ProducerRecord.class));
+        assertEquals(1.0, counter("replayed"));
+    }
+
+    private EventPublisher newPublisher(int bufferCapacity) {
+        EventCodec codec = new EventCodec(new AvroSchemaRegistry(), Set.of());
+        KafkaTemplateRouter router = new KafkaTemplateRouter(kafkaTemplate, kafkaTemplate, Set.of());
+        EventPublisher created = new EventPublisher(router, codec, meterRegistry, bufferCapacity,
+                tempDir.resolve("events.journal").toString(), 64 * 1024, 0, 1000, 0);
+        created.openJournal();
+        return created;
+    }
+
+    private UserActivityEvent activity(UUID userId) {
+        return new UserActivityEvent(userId, "user-service", "/api/v1/users/me", "GET", LocalDateTime.now());
+    }
+
+    private CompletableFuture<SendResult<String, byte[]>> success() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("kafka.publisher.events").tag("result", result).counter().count();
+    }
+}
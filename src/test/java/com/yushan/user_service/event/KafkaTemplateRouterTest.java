@@ -0,0 +1,31 @@
+package com.yushan.user_service.event;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+class KafkaTemplateRouterTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> activityTemplate = mock(KafkaTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> durableTemplate = mock(KafkaTemplate.class);
+
+    private final KafkaTemplateRouter router = new KafkaTemplateRouter(activityTemplate, durableTemplate, Set.of("active"));
+
+    @Test
+    void forTopic_activityTopicUsesActivityProfile() {
+        assertSame(activityTemplate, router.forTopic("active"));
+    }
+
+    @Test
+    void forTopic_otherTopicsUseDurableProfile() {
+        assertSame(durableTemplate, router.forTopic("user.events"));
+        assertSame(durableTemplate, router.forTopic("some.new.topic"));
+    }
+}
@@ -0,0 +1,41 @@
+package com.yushan.user_service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yushan.user_service.event.dto.NovelStatusChangedEvent;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Stand-in for the content service's novel status producer
+ *
+ * Encodes status changes the way content-service puts them on the novel.status topic:
+ * JSON with ISO timestamps, plus whatever extra fields the producer adds.
+ */
+public final class NovelStatusEventStandIn {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private NovelStatusEventStandIn() {
+    }
+
+    public static byte[] statusChanged(int novelId, String status, LocalDateTime timestamp) {
+        try {
+            return MAPPER.writeValueAsBytes(Map.of(
+                    "novelId", novelId,
+                    "status", status,
+                    "timestamp", timestamp,
+                    "eventType", "NovelStatusChanged"));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static NovelStatusChangedEvent event(int novelId, String status, LocalDateTime timestamp) {
+        return new NovelStatusChangedEvent(novelId, status, timestamp);
+    }
+}
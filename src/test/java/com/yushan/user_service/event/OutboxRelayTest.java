@@ -0,0 +1,165 @@
+package com.yushan.user_service.event;
+
+import com.yushan.user_service.dao.OutboxMapper;
+import com.yushan.user_service.entity.OutboxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private OutboxMapper outboxMapper;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+    private KafkaTemplateRouter router;
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        outboxMapper = mock(OutboxMapper.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        router = new KafkaTemplateRouter(mock(KafkaTemplate.class), kafkaTemplate, Set.of("active"));
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxMapper, router, transactionManager, meterRegistry, true, 500, 2, 1000, 60);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_publishesBatchWithTypeHeaderAndMarksItPublished() {
+        when(outboxMapper.selectUnpublishedForUpdate(2))
+                .thenReturn(List.of(event(1L), event(2L)))
+                .thenReturn(List.of());
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(success());
+
+        relay.relay();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(captor.capture());
+        ProducerRecord<String, byte[]> record = captor.getAllValues().get(0);
+        assertEquals("user.events", record.topic());
+        assertEquals("{\"id\":1}", new String(record.value(), StandardCharsets.UTF_8));
+        assertEquals("com.example.Event",
+                new String(record.headers().lastHeader("__TypeId__").value(), StandardCharsets.UTF_8));
+        verify(outboxMapper).markPublished(eq(List.of(1L, 2L)), any(Date.class));
+        // a full batch means more may be waiting, so the relay polls again in a new transaction
+        verify(outboxMapper, times(2)).selectUnpublishedForUpdate(2);
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(2.0, counter("published"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_marksOnlyTheAcknowledgedPrefix() {
+        when(outboxMapper.selectUnpublishedForUpdate(2)).thenReturn(List.of(event(1L), event(2L)));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(success())
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        relay.relay();
+
+        verify(outboxMapper).markPublished(eq(List.of(1L)), any(Date.class));
+        verify(outboxMapper, times(1)).selectUnpublishedForUpdate(2);
+        assertEquals(1.0, counter("published"));
+        assertEquals(1.0, counter("failed"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_whenKafkaRejectsSend_leavesBatchPending() {
+        when(outboxMapper.selectUnpublishedForUpdate(2)).thenReturn(List.of(event(1L)));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenThrow(new RuntimeException("metadata timeout"));
+
+        relay.relay();
+
+        verify(outboxMapper, never()).markPublished(anyList(), any());
+        assertEquals(1.0, counter("failed"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_sendsAvroEventsWithoutTypeHeader() {
+        OutboxEvent avro = new OutboxEvent(3L, "user.events", null, null, new byte[]{(byte) 0xC3, 0x01, 0x00}, new Date(), null);
+        when(outboxMapper.selectUnpublishedForUpdate(2)).thenReturn(List.of(avro));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(success());
+
+        relay.relay();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(captor.capture());
+        assertNull(captor.getValue().headers().lastHeader("__TypeId__"));
+        assertArrayEquals(avro.getPayload(), captor.getValue().value());
+    }
+
+    @Test
+    void relay_whenDisabled_doesNothing() {
+        OutboxRelay disabled = new OutboxRelay(outboxMapper, router, transactionManager, meterRegistry, false, 500, 2, 1000, 60);
+
+        disabled.relay();
+        disabled.prune();
+
+        verifyNoInteractions(outboxMapper, kafkaTemplate, transactionManager);
+    }
+
+    @Test
+    void start_pollsOnTheRelayThread() {
+        OutboxRelay polling = new OutboxRelay(outboxMapper, router, transactionManager, meterRegistry, true, 10, 2, 1000, 60);
+        AtomicReference<String> pollingThread = new AtomicReference<>();
+        when(outboxMapper.selectUnpublishedForUpdate(2)).thenAnswer(invocation -> {
+            pollingThread.compareAndSet(null, Thread.currentThread().getName());
+            return List.of();
+        });
+
+        polling.start();
+        try {
+            verify(outboxMapper, timeout(1000).atLeastOnce()).selectUnpublishedForUpdate(2);
+        } finally {
+            polling.shutdown();
+        }
+
+        assertEquals("outbox-relay", pollingThread.get());
+    }
+
+    @Test
+    void prune_deletesInChunksUntilDone() {
+        when(outboxMapper.deletePublishedBefore(any(Date.class), eq(20))).thenReturn(20, 5);
+
+        relay.prune();
+
+        verify(outboxMapper, times(2)).deletePublishedBefore(any(Date.class), eq(20));
+        assertEquals(25.0, counter("pruned"));
+    }
+
+    private OutboxEvent event(long id) {
+        byte[] payload = ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8);
+        return new OutboxEvent(id, "user.events", null, "com.example.Event", payload, new Date(), null);
+    }
+
+    private CompletableFuture<SendResult<String, byte[]>> success() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("outbox.events").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,67 @@
+package com.yushan.user_service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yushan.user_service.dao.OutboxMapper;
+import com.yushan.user_service.entity.OutboxEvent;
+import com.yushan.user_service.event.dto.EventEnvelope;
+import com.yushan.user_service.event.dto.UserRegisteredEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxWriterTest {
+
+    @Mock
+    private OutboxMapper outboxMapper;
+
+    @Spy
+    private EventCodec eventCodec = new EventCodec(new AvroSchemaRegistry(), Set.of("avro.topic"));
+
+    @InjectMocks
+    private OutboxWriter outboxWriter;
+
+    @Test
+    void append_storesSerializedPayloadWithTypeId() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        EventEnvelope envelope = new EventEnvelope("UserRegisteredEvent", mapper.readTree("{\"username\":\"alice\"}"));
+
+        outboxWriter.append("user.events", null, envelope);
+
+        OutboxEvent stored = captureInserted();
+        assertEquals("user.events", stored.getTopic());
+        assertNull(stored.getEventKey());
+        assertEquals(EventEnvelope.class.getName(), stored.getEventType());
+        assertEquals(envelope, mapper.readValue(stored.getPayload(), EventEnvelope.class));
+    }
+
+    @Test
+    void append_onAvroTopic_storesSingleObjectEncodingWithoutTypeId() throws Exception {
+        UUID userId = UUID.randomUUID();
+        Date now = new Date();
+
+        outboxWriter.append("avro.topic", null, new UserRegisteredEvent(userId, "alice", "alice@example.com", now, now, now, now));
+
+        OutboxEvent stored = captureInserted();
+        assertNull(stored.getEventType());
+        assertTrue(EventCodec.isAvro(stored.getPayload()));
+        assertEquals("alice", eventCodec.decodeAccountEvent(stored.getPayload()).get("username").toString());
+    }
+
+    private OutboxEvent captureInserted() {
+        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxMapper).insert(captor.capture());
+        return captor.getValue();
+    }
+}
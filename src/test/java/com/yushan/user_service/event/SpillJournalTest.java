@@ -0,0 +1,139 @@
+package com.yushan.user_service.event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void appendPeekAdvance_roundTripsEventsInOrder() throws Exception {
+        try (SpillJournal journal = new SpillJournal(tempDir.resolve("events.journal"), 4096)) {
+            assertTrue(journal.isEmpty());
+            assertTrue(journal.append(event("active", "user-1", "{\"a\":1}")));
+            assertTrue(journal.append(new OutgoingEvent("user.events", null, null, bytes("{\"b\":2}"))));
+
+            List<OutgoingEvent> events = journal.peek(10);
+
+            assertEquals(2, events.size());
+            assertEquals("active", events.get(0).topic());
+            assertEquals("user-1", events.get(0).key());
+            assertEquals("com.example.Event", events.get(0).typeId());
+            assertEquals("{\"a\":1}", new String(events.get(0).value(), StandardCharsets.UTF_8));
+            assertNull(events.get(1).key());
+            assertNull(events.get(1).typeId());
+
+            journal.advance(1);
+            assertEquals("user.events", journal.peek(10).get(0).topic());
+            journal.advance(1);
+            assertTrue(journal.isEmpty());
+            assertEquals(0, journal.pendingBytes());
+        }
+    }
+
+    @Test
+    void reopen_keepsUnreplayedEvents() throws Exception {
+        Path path = tempDir.resolve("events.journal");
+        try (SpillJournal journal = new SpillJournal(path, 4096)) {
+            journal.append(event("active", "user-1", "first"));
+            journal.append(event("active", "user-2", "second"));
+            journal.advance(1);
+        }
+
+        try (SpillJournal reopened = new SpillJournal(path, 4096)) {
+            List<OutgoingEvent> events = reopened.peek(10);
+            assertEquals(1, events.size());
+            assertEquals("user-2", events.get(0).key());
+        }
+    }
+
+    @Test
+    void append_whenFull_refusesUntilDrained() throws Exception {
+        try (SpillJournal journal = new SpillJournal(tempDir.resolve("events.journal"), 128)) {
+            assertTrue(journal.append(event("active", "user-1", "x".repeat(60))));
+            assertFalse(journal.append(event("active", "user-2", "x".repeat(60))));
+
+            journal.advance(1);
+
+            assertTrue(journal.append(event("active", "user-2", "x".repeat(60))));
+        }
+    }
+
+    @Test
+    void append_wrapsAroundOnceReplayedRecordsFreedTheStart() throws Exception {
+        Path path = tempDir.resolve("events.journal");
+        try (SpillJournal journal = new SpillJournal(path, 256)) {
+            assertTrue(journal.append(event("active", "user-1", "x".repeat(40))));
+            assertTrue(journal.append(event("active", "user-2", "x".repeat(40))));
+            assertFalse(journal.append(event("active", "user-3", "x".repeat(30))));
+
+            journal.advance(1);
+
+            assertTrue(journal.append(event("active", "user-3", "x".repeat(30))));
+            assertFalse(journal.append(event("active", "user-4", "x".repeat(30))));
+        }
+
+        try (SpillJournal reopened = new SpillJournal(path, 256)) {
+            assertEquals(List.of("user-2", "user-3"), reopened.peek(10).stream().map(OutgoingEvent::key).toList());
+            reopened.advance(1);
+            assertEquals(List.of("user-3"), reopened.peek(10).stream().map(OutgoingEvent::key).toList());
+            reopened.advance(1);
+            assertTrue(reopened.isEmpty());
+            assertTrue(reopened.append(event("active", "user-4", "x".repeat(40))));
+        }
+    }
+
+    @Test
+    void open_whenAlreadyOpen_isRefused() throws Exception {
+        Path path = tempDir.resolve("events.journal");
+        try (SpillJournal journal = new SpillJournal(path, 4096)) {
+            assertThrows(IOException.class, () -> new SpillJournal(path, 4096));
+        }
+
+        try (SpillJournal reopened = new SpillJournal(path, 4096)) {
+            assertTrue(reopened.isEmpty());
+        }
+    }
+
+    @Test
+    void peek_withCorruptRecord_discardsTheRest() throws Exception {
+        Path path = tempDir.resolve("events.journal");
+        try (SpillJournal journal = new SpillJournal(path, 4096)) {
+            journal.append(event("active", "user-1", "first"));
+            journal.append(event("active", "user-2", "second"));
+        }
+        // flip a byte inside the second record's value
+        try (var channel = java.nio.channels.FileChannel.open(path, java.nio.file.StandardOpenOption.WRITE,
+                java.nio.file.StandardOpenOption.READ)) {
+            var buffer = channel.map(java.nio.channels.FileChannel.MapMode.READ_WRITE, 0, 4096);
+            int writeOffset = buffer.getInt(4);
+            buffer.put(writeOffset - 1, (byte) 'X');
+            buffer.force();
+        }
+
+        try (SpillJournal reopened = new SpillJournal(path, 4096)) {
+            List<OutgoingEvent> events = reopened.peek(10);
+            assertEquals(1, events.size());
+            assertEquals("user-1", events.get(0).key());
+            reopened.advance(1);
+            assertTrue(reopened.isEmpty());
+        }
+    }
+
+    private OutgoingEvent event(String topic, String key, String value) {
+        return new OutgoingEvent(topic, key, "com.example.Event", bytes(value));
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
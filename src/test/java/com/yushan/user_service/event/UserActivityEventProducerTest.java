@@ -6,7 +6,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.kafka.core.KafkaTemplate;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -17,13 +16,13 @@ import static org.mockito.Mockito.*;
 class UserActivityEventProducerTest {
 
     @Mock
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private EventPublisher eventPublisher;
 
     @InjectMocks
     private UserActivityEventProducer userActivityEventProducer;
 
     @Test
-    void sendUserActivityEvent_shouldSendEventToKafka() {
+    void sendUserActivityEvent_shouldQueueEventKeyedByUser() {
         // Given
         UUID userId = UUID.randomUUID();
         UserActivityEvent event = new UserActivityEvent(userId, "test-service", "/test", "", LocalDateTime.now());
@@ -34,7 +33,7 @@ class UserActivityEventProducerTest {
         userActivityEventProducer.sendUserActivityEvent(event);
 
         // Then
-        verify(kafkaTemplate, times(1)).send(expectedTopic, expectedKey, event);
+        verify(eventPublisher, times(1)).publish(expectedTopic, expectedKey, event);
     }
 
     @Test
@@ -45,15 +44,15 @@ class UserActivityEventProducerTest {
         String expectedTopic = "active";
         String expectedKey = userId.toString();
 
-        // Simulate an exception when sending to Kafka
-        doThrow(new RuntimeException("Kafka connection failed")).when(kafkaTemplate).send(expectedTopic, expectedKey, event);
+        // Simulate an unexpected failure while queueing
+        doThrow(new RuntimeException("Publisher failed")).when(eventPublisher).publish(expectedTopic, expectedKey, event);
 
         // When
         userActivityEventProducer.sendUserActivityEvent(event);
 
         // Then
-        // Verify that the send method was still called
-        verify(kafkaTemplate, times(1)).send(expectedTopic, expectedKey, event);
+        // Verify that the publish method was still called
+        verify(eventPublisher, times(1)).publish(expectedTopic, expectedKey, event);
         // The test passes if no exception is thrown, as it should be caught and logged.
     }
 }
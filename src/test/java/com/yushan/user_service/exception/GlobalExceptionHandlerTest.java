@@ -120,6 +120,23 @@ class GlobalExceptionHandlerTest {
         assertEquals(errorMessage, response.getBody().getMessage());
     }
 
+    @Test
+    void testHandleServiceUnavailableException() {
+        // Given
+        ServiceUnavailableException exception = new ServiceUnavailableException("Server busy, please retry", 2);
+
+        // When
+        ResponseEntity<ApiResponse<Object>> response = globalExceptionHandler.handleServiceUnavailableException(exception, webRequest);
+
+        // Then
+        assertNotNull(response);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst("Retry-After"));
+        assertNotNull(response.getBody());
+        assertEquals(ErrorCode.SERVICE_UNAVAILABLE.getCode(), response.getBody().getCode());
+        assertEquals("Server busy, please retry", response.getBody().getMessage());
+    }
+
     @Test
     void testHandleMethodArgumentNotValidException() {
         // Given
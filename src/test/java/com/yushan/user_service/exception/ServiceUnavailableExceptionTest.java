@@ -0,0 +1,50 @@
+package com.yushan.user_service.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ServiceUnavailableException.
+ */
+class ServiceUnavailableExceptionTest {
+
+    @Test
+    void testServiceUnavailableExceptionWithMessage() {
+        // Given
+        String message = "Server busy";
+
+        // When
+        ServiceUnavailableException exception = new ServiceUnavailableException(message, 3);
+
+        // Then
+        assertEquals(message, exception.getMessage());
+        assertEquals(3, exception.getRetryAfterSeconds());
+        assertNull(exception.getCause());
+    }
+
+    @Test
+    void testServiceUnavailableExceptionWithMessageAndCause() {
+        // Given
+        Throwable cause = new RuntimeException("Root cause");
+
+        // When
+        ServiceUnavailableException exception = new ServiceUnavailableException("Server busy", 1, cause);
+
+        // Then
+        assertEquals(cause, exception.getCause());
+        assertEquals(1, exception.getRetryAfterSeconds());
+    }
+
+    @Test
+    void testResponseStatusAnnotation() {
+        // Given
+        ResponseStatus responseStatus = ServiceUnavailableException.class.getAnnotation(ResponseStatus.class);
+
+        // Then
+        assertNotNull(responseStatus);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseStatus.value());
+    }
+}
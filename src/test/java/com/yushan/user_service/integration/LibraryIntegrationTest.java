@@ -15,7 +15,9 @@ import com.yushan.user_service.enums.ErrorCode;
 import com.yushan.user_service.enums.Gender;
 import com.yushan.user_service.enums.NovelStatus;
 import com.yushan.user_service.enums.UserStatus;
+import com.yushan.user_service.event.dto.NovelStatusChangedEvent;
 import com.yushan.user_service.service.MailService;
+import com.yushan.user_service.service.NovelStatusProjection;
 import com.yushan.user_service.util.JwtUtil;
 import com.yushan.user_service.dto.ApiResponse;
 import com.yushan.user_service.util.MailUtil;
@@ -26,6 +28,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
@@ -34,11 +37,13 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -91,6 +96,12 @@ public class LibraryIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private NovelStatusProjection novelStatusProjection;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @MockBean
     private ContentServiceClient contentServiceClient;
 
@@ -115,6 +126,13 @@ public class LibraryIntegrationTest {
         // Mock the Feign client to prevent network errors
         NovelInfoDTO mockNovel = new NovelInfoDTO(1, "Test Novel", "Test Author", "cover.jpg", 100, NovelStatus.PUBLISHED.name());
         when(contentServiceClient.getNovelById(anyInt())).thenReturn(ApiResponse.success("Success", mockNovel));
+        // single-novel lookups reach the Feign client as batch reads
+        when(contentServiceClient.getNovelsByIds(anyList())).thenAnswer(invocation -> {
+            List<Integer> novelIds = invocation.getArgument(0);
+            return ApiResponse.success("Success", novelIds.stream()
+                    .map(id -> new NovelInfoDTO(id, "Test Novel", "Test Author", "cover.jpg", 100, NovelStatus.PUBLISHED.name()))
+                    .toList());
+        });
 
         // Create a test user
         testUser = createTestUser("libraryuser@example.com", "libraryuser", "password123");
@@ -190,6 +208,12 @@ public class LibraryIntegrationTest {
     void testGetUserLibrary_Success() throws Exception {
         addNovelToDb(testUserLibrary.getId(), 5, 10);
         addNovelToDb(testUserLibrary.getId(), 6, 20);
+        addNovelToDb(testUserLibrary.getId(), 7, 30);
+        // content-service status events, novel 7 was taken down
+        novelStatusProjection.apply(List.of(
+                new NovelStatusChangedEvent(5, NovelStatus.PUBLISHED.name(), LocalDateTime.now()),
+                new NovelStatusChangedEvent(6, NovelStatus.PUBLISHED.name(), LocalDateTime.now()),
+                new NovelStatusChangedEvent(7, NovelStatus.HIDDEN.name(), LocalDateTime.now())));
 
         // Mock the Feign client for this specific test
         List<NovelInfoDTO> mockNovels = Arrays.asList(
@@ -207,6 +231,56 @@ public class LibraryIntegrationTest {
                 .andExpect(jsonPath("$.data.content.length()").value(2));
     }
 
+    @Test
+    void testGetUserLibraryByCursor_WalksEveryPageOnce() throws Exception {
+        // inserted in one transaction, so all rows share create_time and only the id breaks ties
+        addNovelToDb(testUserLibrary.getId(), 5, 10);
+        addNovelToDb(testUserLibrary.getId(), 6, 20);
+        addNovelToDb(testUserLibrary.getId(), 7, 30);
+        novelStatusProjection.apply(List.of(
+                new NovelStatusChangedEvent(5, NovelStatus.PUBLISHED.name(), LocalDateTime.now()),
+                new NovelStatusChangedEvent(6, NovelStatus.PUBLISHED.name(), LocalDateTime.now()),
+                new NovelStatusChangedEvent(7, NovelStatus.PUBLISHED.name(), LocalDateTime.now())));
+        when(contentServiceClient.getNovelsByIds(any())).thenReturn(ApiResponse.success("Success", Collections.emptyList()));
+        when(contentServiceClient.getChaptersByIds(any())).thenReturn(ApiResponse.success("Success", Collections.emptyList()));
+
+        List<Integer> seen = new ArrayList<>();
+        String cursor = "";
+        for (int page = 0; page < 3; page++) {
+            String body = mockMvc.perform(get("/api/v1/library")
+                            .param("cursor", cursor)
+                            .param("size", "1")
+                            .header("Authorization", "Bearer " + testUserToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.content.length()").value(1))
+                    .andExpect(jsonPath("$.data.totalElements").doesNotExist())
+                    .andReturn().getResponse().getContentAsString();
+            seen.add(objectMapper.readTree(body).at("/data/content/0/novelId").asInt());
+            cursor = objectMapper.readTree(body).at("/data/nextCursor").asText(null);
+            assertThat(cursor == null).isEqualTo(page == 2);
+        }
+        assertThat(seen).containsExactlyInAnyOrder(5, 6, 7);
+    }
+
+    @Test
+    void testGetUserLibraryByCursor_EntriesWithoutCreateTimeAreNotSkipped() throws Exception {
+        addNovelToDb(testUserLibrary.getId(), 5, 10);
+        addNovelToDb(testUserLibrary.getId(), 6, 20);
+        addNovelToDb(testUserLibrary.getId(), 7, 30);
+        // create_time has a default but is nullable, so writes that set it to null leave none
+        jdbcTemplate.update("UPDATE novel_library SET create_time = NULL WHERE library_id = ? AND novel_id IN (6, 7)",
+                testUserLibrary.getId());
+        novelStatusProjection.apply(List.of(
+                new NovelStatusChangedEvent(5, NovelStatus.PUBLISHED.name(), LocalDateTime.now()),
+                new NovelStatusChangedEvent(6, NovelStatus.PUBLISHED.name(), LocalDateTime.now()),
+                new NovelStatusChangedEvent(7, NovelStatus.PUBLISHED.name(), LocalDateTime.now())));
+        when(contentServiceClient.getChaptersByIds(any())).thenReturn(ApiResponse.success("Success", Collections.emptyList()));
+
+        // entries without a create time sort as the latest ones, in both directions
+        assertThat(walkLibraryByCursor("asc")).containsExactly(5, 6, 7);
+        assertThat(walkLibraryByCursor("desc")).containsExactly(7, 6, 5);
+    }
+
     @Test
     void testCheckNovelInLibrary_ReturnsTrueWhenInLibrary() throws Exception {
         Integer novelId = 7;
@@ -300,4 +374,23 @@ public class LibraryIntegrationTest {
         item.setUpdateTime(new Date());
         novelLibraryMapper.insert(item);
     }
+
+    private List<Integer> walkLibraryByCursor(String order) throws Exception {
+        List<Integer> seen = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            String body = mockMvc.perform(get("/api/v1/library")
+                            .param("cursor", cursor)
+                            .param("size", "1")
+                            .param("sort", "createTime")
+                            .param("order", order)
+                            .header("Authorization", "Bearer " + testUserToken))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            objectMapper.readTree(body).at("/data/content").forEach(entry -> seen.add(entry.get("novelId").asInt()));
+            cursor = objectMapper.readTree(body).at("/data/nextCursor").asText(null);
+            assertThat(seen).hasSizeLessThanOrEqualTo(10);
+        }
+        return seen;
+    }
 }
@@ -0,0 +1,205 @@
+package com.yushan.user_service.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yushan.user_service.TestcontainersConfiguration;
+import com.yushan.user_service.enums.NovelStatus;
+import com.yushan.user_service.service.MailService;
+import com.yushan.user_service.util.MailUtil;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plan regression tests for library queries with real PostgreSQL
+ *
+ * This test class verifies, against a seeded dataset of 5000 libraries with 20 novels each:
+ * - Library lookups by user id use the unique user_id index
+ * - Lookups of one novel of a user use the unique (user_id, novel_id) index, without library
+ * - Listing, paging and deleting library entries never scan novel_library sequentially
+ * - The user_id backfill finds its rows through the partial index
+ *
+ * The integration-test profile reads by novel_library.user_id (library.user-id-reads.enabled).
+ *
+ * The plans are taken from the SQL of the mapper statements, so a mapper change that
+ * stops using the indexes fails here.
+ */
+@SpringBootTest
+@ActiveProfiles("integration-test")
+@Import(TestcontainersConfiguration.class)
+@Transactional
+@TestPropertySource(properties = {
+        "spring.kafka.bootstrap-servers=",
+        "spring.kafka.enabled=false",
+        "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration",
+        "jwt.secret=test-secret-key-for-integration-tests-123456",
+        "jwt.access-token.expiration=3600000",
+        "jwt.refresh-token.expiration=86400000"
+})
+@org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable(named = "CI", matches = "true")
+public class LibraryQueryPlanIntegrationTest {
+
+    private static final String NOVEL_LIBRARY_MAPPER = "com.yushan.user_service.dao.NovelLibraryMapper.";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private MailService mailService;
+    @MockBean
+    private MailUtil mailUtil;
+
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("INSERT INTO library (uuid, user_id) SELECT gen_random_uuid(), gen_random_uuid() FROM generate_series(1, 5000)");
+        jdbcTemplate.execute("INSERT INTO novel_library (library_id, novel_id, progress, create_time, update_time) "
+                + "SELECT l.id, n, n * 10, NOW() - n * INTERVAL '1 minute', NOW() - (n * 7 % 20) * INTERVAL '1 minute' "
+                + "FROM library l CROSS JOIN generate_series(1, 20) n");
+        jdbcTemplate.update("INSERT INTO novel_status (novel_id, status, update_time) "
+                + "SELECT n, ?, NOW() FROM generate_series(1, 20) n ON CONFLICT DO NOTHING", NovelStatus.PUBLISHED.getValue());
+        jdbcTemplate.execute("ANALYZE library");
+        jdbcTemplate.execute("ANALYZE novel_library");
+        jdbcTemplate.execute("ANALYZE novel_status");
+        userId = jdbcTemplate.queryForObject("SELECT user_id FROM library ORDER BY id DESC LIMIT 1", UUID.class);
+    }
+
+    @Test
+    void selectLibraryByUserId_usesUserIdIndex() throws Exception {
+        List<JsonNode> plan = explain("com.yushan.user_service.dao.LibraryMapper.selectByUserId", userId);
+
+        assertUsesIndex(plan, "uq_library_user_id");
+        assertNoSeqScan(plan, "library");
+    }
+
+    @Test
+    void selectByUserIdAndNovelId_usesUserNovelIndexWithoutLibrary() throws Exception {
+        List<JsonNode> plan = explain(NOVEL_LIBRARY_MAPPER + "selectByUserIdAndNovelId",
+                params("userId", userId, "novelId", 5));
+
+        assertUsesIndex(plan, "uq_novel_library_user_novel");
+        assertNoScanOf(plan, "library");
+        assertNoSeqScan(plan, "novel_library");
+    }
+
+    @Test
+    void selectNovelIdsByUserId_doesNotScanNovelLibrary() throws Exception {
+        List<JsonNode> plan = explain(NOVEL_LIBRARY_MAPPER + "selectNovelIdsByUserId", userId);
+
+        assertNoScanOf(plan, "library");
+        assertNoSeqScan(plan, "novel_library");
+    }
+
+    @Test
+    void selectByUserIdAndStatusAfter_doesNotScanNovelLibrary() throws Exception {
+        Map<String, Object> params = params("userId", userId, "status", NovelStatus.PUBLISHED.getValue());
+        params.put("afterValue", null);
+        params.put("afterId", null);
+        params.put("limit", 11);
+        params.put("sort", "update_time");
+        params.put("order", "DESC");
+
+        List<JsonNode> plan = explain(NOVEL_LIBRARY_MAPPER + "selectByUserIdAndStatusAfter", params);
+
+        assertNoScanOf(plan, "library");
+        assertNoSeqScan(plan, "novel_library");
+    }
+
+    @Test
+    void deleteByUserIdAndNovelIds_doesNotScanNovelLibrary() throws Exception {
+        List<JsonNode> plan = explain(NOVEL_LIBRARY_MAPPER + "deleteByUserIdAndNovelIds",
+                params("userId", userId, "novelIds", List.of(3, 4)));
+
+        assertNoScanOf(plan, "library");
+        assertNoSeqScan(plan, "novel_library");
+    }
+
+    @Test
+    void backfillUserIds_usesMissingUserIdIndex() throws Exception {
+        List<JsonNode> plan = explain(NOVEL_LIBRARY_MAPPER + "backfillUserIds", params("afterId", 0, "limit", 1000));
+
+        assertUsesIndex(plan, "idx_novel_library_user_id_missing");
+        assertNoSeqScan(plan, "novel_library");
+    }
+
+    private static Map<String, Object> params(String firstName, Object first, String secondName, Object second) {
+        Map<String, Object> params = new HashMap<>();
+        params.put(firstName, first);
+        params.put(secondName, second);
+        return params;
+    }
+
+    /**
+     * EXPLAIN a mapper statement with its parameters bound the way MyBatis binds them
+     *
+     * @return every node of the plan
+     */
+    private List<JsonNode> explain(String statementId, Object parameter) throws Exception {
+        MappedStatement statement = sqlSessionFactory.getConfiguration().getMappedStatement(statementId);
+        BoundSql boundSql = statement.getBoundSql(parameter);
+        String json = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + boundSql.getSql())) {
+                new DefaultParameterHandler(statement, parameter, boundSql).setParameters(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+        List<JsonNode> nodes = new ArrayList<>();
+        collect(objectMapper.readTree(json).get(0).get("Plan"), nodes);
+        return nodes;
+    }
+
+    private static void collect(JsonNode node, List<JsonNode> nodes) {
+        nodes.add(node);
+        if (node.has("Plans")) {
+            node.get("Plans").forEach(child -> collect(child, nodes));
+        }
+    }
+
+    private static void assertUsesIndex(List<JsonNode> plan, String index) {
+        assertThat(plan).as("plan nodes of %s", plan)
+                .anyMatch(node -> index.equals(node.path("Index Name").asText()));
+    }
+
+    private static void assertNoScanOf(List<JsonNode> plan, String table) {
+        assertThat(plan).as("plan nodes of %s", plan)
+                .noneMatch(node -> table.equals(node.path("Relation Name").asText()));
+    }
+
+    private static void assertNoSeqScan(List<JsonNode> plan, String table) {
+        assertThat(plan).as("plan nodes of %s", plan)
+                .noneMatch(node -> "Seq Scan".equals(node.path("Node Type").asText())
+                        && table.equals(node.path("Relation Name").asText()));
+    }
+}
@@ -3,6 +3,7 @@ package com.yushan.user_service.interceptor;
 import com.yushan.user_service.event.UserActivityEventProducer;
 import com.yushan.user_service.event.dto.UserActivityEvent;
 import com.yushan.user_service.security.CustomUserDetailsService;
+import com.yushan.user_service.util.ActivityEventThrottle;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -30,6 +31,9 @@ class UserActivityInterceptorTest {
     @Mock
     private UserActivityEventProducer userActivityEventProducer;
 
+    @Mock
+    private ActivityEventThrottle activityEventThrottle;
+
     @Mock
     private Authentication authentication;
 
@@ -66,6 +70,7 @@ class UserActivityInterceptorTest {
         when(authentication.isAuthenticated()).thenReturn(true);
         when(authentication.getPrincipal()).thenReturn(userDetails);
         when(userDetails.getUserId()).thenReturn(testUserId.toString());
+        when(activityEventThrottle.tryAcquire(testUserId)).thenReturn(true);
 
         // When
         boolean result = userActivityInterceptor.preHandle(mockRequest, mockResponse, new Object());
@@ -84,6 +89,22 @@ class UserActivityInterceptorTest {
         assertNotNull(capturedEvent.timestamp());
     }
 
+    @Test
+    void preHandle_whenThrottled_shouldNotSendEventAndReturnTrue() throws Exception {
+        // Given
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(userDetails.getUserId()).thenReturn(testUserId.toString());
+        when(activityEventThrottle.tryAcquire(testUserId)).thenReturn(false);
+
+        // When
+        boolean result = userActivityInterceptor.preHandle(mockRequest, mockResponse, new Object());
+
+        // Then
+        assertTrue(result);
+        verifyNoInteractions(userActivityEventProducer);
+    }
+
     @Test
     void preHandle_whenUserIsNotAuthenticated_shouldNotSendEventAndReturnTrue() throws Exception {
         // Given
@@ -132,6 +153,7 @@ class UserActivityInterceptorTest {
         when(authentication.isAuthenticated()).thenReturn(true);
         when(authentication.getPrincipal()).thenReturn(userDetails);
         when(userDetails.getUserId()).thenReturn(testUserId.toString());
+        when(activityEventThrottle.tryAcquire(testUserId)).thenReturn(true);
         doThrow(new RuntimeException("Kafka is down")).when(userActivityEventProducer).sendUserActivityEvent(any(UserActivityEvent.class));
 
         // When
@@ -0,0 +1,79 @@
+package com.yushan.user_service.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yushan.user_service.event.dto.NovelStatusChangedEvent;
+import com.yushan.user_service.service.NovelStatusProjection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.yushan.user_service.event.NovelStatusEventStandIn.statusChanged;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NovelStatusListenerTest {
+
+    @Mock
+    private NovelStatusProjection novelStatusProjection;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @InjectMocks
+    private NovelStatusListener novelStatusListener;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void handleNovelStatusBatch_shouldProjectParsedEvents_andAckAfterWrite() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        novelStatusListener.handleNovelStatusBatch(List.of(
+                statusChanged(1, "PUBLISHED", now),
+                "not json".getBytes(StandardCharsets.UTF_8),
+                statusChanged(2, "HIDDEN", now)), acknowledgment);
+
+        ArgumentCaptor<List<NovelStatusChangedEvent>> events = ArgumentCaptor.forClass(List.class);
+        var inOrder = inOrder(novelStatusProjection, acknowledgment);
+        inOrder.verify(novelStatusProjection).apply(events.capture());
+        inOrder.verify(acknowledgment).acknowledge();
+        assertEquals(List.of(new NovelStatusChangedEvent(1, "PUBLISHED", now), new NovelStatusChangedEvent(2, "HIDDEN", now)),
+                events.getValue());
+    }
+
+    @Test
+    void handleNovelStatusBatch_whenWriteFails_shouldNackForRedelivery() {
+        doThrow(new RuntimeException("db down")).when(novelStatusProjection).apply(anyList());
+
+        novelStatusListener.handleNovelStatusBatch(List.of(statusChanged(1, "PUBLISHED", LocalDateTime.now())), acknowledgment);
+
+        verify(acknowledgment).nack(eq(0), any(Duration.class));
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void handleNovelStatusBatch_withOnlyUnreadableEvents_shouldAckWithoutWriting() {
+        novelStatusListener.handleNovelStatusBatch(List.of("null".getBytes(StandardCharsets.UTF_8)), acknowledgment);
+
+        verifyNoInteractions(novelStatusProjection);
+        verify(acknowledgment).acknowledge();
+    }
+}
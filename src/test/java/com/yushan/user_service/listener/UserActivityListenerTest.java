@@ -3,19 +3,28 @@ package com.yushan.user_service.listener;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yushan.user_service.event.AvroSchemaRegistry;
+import com.yushan.user_service.event.EventCodec;
+import com.yushan.user_service.event.dto.UserActivityEvent;
 import com.yushan.user_service.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,51 +33,95 @@ class UserActivityListenerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private Acknowledgment acknowledgment;
+
     @Spy
     private ObjectMapper objectMapper = new ObjectMapper()
             .registerModule(new JavaTimeModule())
             .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
+    @Spy
+    private EventCodec eventCodec = new EventCodec(new AvroSchemaRegistry(), Set.of("active"));
+
     @InjectMocks
     private UserActivityListener userActivityListener;
 
     @Test
-    void handleUserActivity_shouldUpdateLastActiveTime_whenUserIdIsNotNull() throws Exception {
-        UUID userId = UUID.randomUUID();
+    void handleUserActivityBatch_shouldKeepLatestTimestampPerUser_andAckOnceFlushed() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        LocalDateTime earlier = LocalDateTime.now().withNano(0).minusMinutes(5);
+        LocalDateTime later = earlier.plusMinutes(5);
+
+        userActivityListener.handleUserActivityBatch(List.of(
+                event(first, later),
+                event(first, earlier),
+                event(second, earlier)
+        ), acknowledgment);
+
+        ArgumentCaptor<Runnable> onFlushed = ArgumentCaptor.forClass(Runnable.class);
+        verify(userService).updateLastActiveTimes(eq(Map.of(first, later, second, earlier)), onFlushed.capture());
+        // not before the write-behind buffer has flushed the batch
+        verify(acknowledgment, never()).acknowledge();
+
+        onFlushed.getValue().run();
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleUserActivityBatch_shouldDecodeAvroAndJsonRecordsInTheSameBatch() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
         LocalDateTime timestamp = LocalDateTime.now().withNano(0);
+        byte[] avro = eventCodec.encodeAvro(new UserActivityEvent(first, "content-service", "/api/v1/chapters", "GET", timestamp));
+
+        userActivityListener.handleUserActivityBatch(List.of(avro, event(second, timestamp)), acknowledgment);
+
+        verify(userService).updateLastActiveTimes(eq(Map.of(first, timestamp, second, timestamp)), any(Runnable.class));
+    }
 
+    @Test
+    void handleUserActivityBatch_shouldIgnoreUnknownFields() throws Exception {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime timestamp = LocalDateTime.now().withNano(0);
         Map<String, Object> payloadMap = new HashMap<>();
         payloadMap.put("userId", userId.toString());
         payloadMap.put("timestamp", timestamp.toString());
+        payloadMap.put("sessionId", "abc");
 
-        String payload = objectMapper.writeValueAsString(payloadMap);
+        userActivityListener.handleUserActivityBatch(List.of(objectMapper.writeValueAsBytes(payloadMap)), acknowledgment);
 
-        userActivityListener.handleUserActivity(payload);
-
-        verify(userService, times(1)).updateLastActiveTime(eq(userId), eq(timestamp));
+        verify(userService).updateLastActiveTimes(eq(Map.of(userId, timestamp)), any(Runnable.class));
     }
 
     @Test
-    void handleUserActivity_shouldNotUpdateLastActiveTime_whenUserIdIsNull() throws Exception {
+    void handleUserActivityBatch_shouldSkipInvalidRecords() throws Exception {
+        UUID userId = UUID.randomUUID();
         LocalDateTime timestamp = LocalDateTime.now().withNano(0);
+        Map<String, Object> missingUser = new HashMap<>();
+        missingUser.put("userId", null);
+        missingUser.put("timestamp", timestamp.toString());
 
-        Map<String, Object> payloadMap = new HashMap<>();
-        payloadMap.put("userId", null);
-        payloadMap.put("timestamp", timestamp.toString());
-
-        String payload = objectMapper.writeValueAsString(payloadMap);
+        userActivityListener.handleUserActivityBatch(List.of(
+                "not a json".getBytes(StandardCharsets.UTF_8),
+                objectMapper.writeValueAsBytes(missingUser),
+                event(userId, timestamp)
+        ), acknowledgment);
 
-        userActivityListener.handleUserActivity(payload);
-
-        verify(userService, never()).updateLastActiveTime(any(), any());
+        verify(userService).updateLastActiveTimes(eq(Map.of(userId, timestamp)), any(Runnable.class));
     }
 
     @Test
-    void handleUserActivity_shouldNotUpdateLastActiveTime_whenPayloadIsInvalidJson() {
-        String invalidPayload = "not a json";
+    void handleUserActivityBatch_withOnlyInvalidRecords_shouldAckWithoutWriting() {
+        userActivityListener.handleUserActivityBatch(
+                List.of("not a json".getBytes(StandardCharsets.UTF_8)), acknowledgment);
 
-        userActivityListener.handleUserActivity(invalidPayload);
+        verify(userService, never()).updateLastActiveTimes(anyMap(), any());
+        verify(acknowledgment).acknowledge();
+    }
 
-        verify(userService, never()).updateLastActiveTime(any(), any());
+    private byte[] event(UUID userId, LocalDateTime timestamp) throws Exception {
+        return objectMapper.writeValueAsBytes(new UserActivityEvent(userId, "content-service", "/api/v1/chapters", "GET", timestamp));
     }
 }
@@ -0,0 +1,99 @@
+package com.yushan.user_service.security;
+
+import com.yushan.user_service.dao.UserMapper;
+import com.yushan.user_service.entity.User;
+import com.yushan.user_service.enums.UserStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AuthPrincipalCacheTest {
+
+    private UserMapper userMapper;
+    private AuthPrincipalCache cache;
+    private UUID userId;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        cache = new AuthPrincipalCache(userMapper, new SimpleMeterRegistry(), 60, 100);
+
+        userId = UUID.randomUUID();
+        user = new User();
+        user.setUuid(userId);
+        user.setEmail("reader@example.com");
+        user.setUsername("reader");
+        user.setStatus(UserStatus.NORMAL.getCode());
+        user.setIsAuthor(false);
+        user.setIsAdmin(false);
+        when(userMapper.selectAuthPrincipalByUuid(userId)).thenReturn(user);
+    }
+
+    @Test
+    void resolve_loadsOnceAndServesFromCache() {
+        CustomUserDetailsService.CustomUserDetails first =
+                cache.resolve(userId, "reader@example.com", "USER", 0, new Date());
+        CustomUserDetailsService.CustomUserDetails second =
+                cache.resolve(userId, "reader@example.com", "USER", 0, new Date());
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(userId.toString(), first.getUserId());
+        verify(userMapper, times(1)).selectAuthPrincipalByUuid(userId);
+    }
+
+    @Test
+    void resolve_reloadsWhenNewerTokenCarriesDifferentRole() {
+        cache.resolve(userId, "reader@example.com", "USER", 0, new Date());
+
+        user.setIsAuthor(true);
+        CustomUserDetailsService.CustomUserDetails details =
+                cache.resolve(userId, "reader@example.com", "AUTHOR", 0, new Date(System.currentTimeMillis() + 5000));
+
+        assertTrue(details.isAuthor());
+        verify(userMapper, times(2)).selectAuthPrincipalByUuid(userId);
+    }
+
+    @Test
+    void resolve_keepsCachedRowForOlderTokenWithStaleRole() {
+        cache.resolve(userId, "reader@example.com", "USER", 0, new Date());
+
+        CustomUserDetailsService.CustomUserDetails details =
+                cache.resolve(userId, "reader@example.com", "AUTHOR", 0, new Date(System.currentTimeMillis() - 60000));
+
+        assertNotNull(details);
+        assertFalse(details.isAuthor());
+        verify(userMapper, times(1)).selectAuthPrincipalByUuid(userId);
+    }
+
+    @Test
+    void resolve_returnsNullWhenEmailDoesNotMatch() {
+        assertNull(cache.resolve(userId, "someone-else@example.com", "USER", 0, new Date(0)));
+    }
+
+    @Test
+    void resolve_returnsNullWhenUserMissing() {
+        UUID unknown = UUID.randomUUID();
+        assertNull(cache.resolve(unknown, "ghost@example.com", "USER", 0, new Date()));
+    }
+
+    @Test
+    void evict_forcesReload() {
+        cache.resolve(userId, "reader@example.com", "USER", 0, new Date());
+        cache.evict(userId);
+
+        user.setStatus(UserStatus.BANNED.getCode());
+        CustomUserDetailsService.CustomUserDetails details =
+                cache.resolve(userId, "reader@example.com", "USER", 0, new Date(0));
+
+        assertFalse(details.isEnabled());
+        verify(userMapper, times(2)).selectAuthPrincipalByUuid(userId);
+    }
+}
@@ -0,0 +1,106 @@
+package com.yushan.user_service.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static com.yushan.user_service.security.RefreshTokenStore.RotationResult.REUSED;
+import static com.yushan.user_service.security.RefreshTokenStore.RotationResult.ROTATED;
+import static com.yushan.user_service.security.RefreshTokenStore.RotationResult.UNKNOWN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryRefreshTokenStoreTest {
+
+    private static final long TTL = 60_000L;
+
+    private InMemoryRefreshTokenStore store;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryRefreshTokenStore();
+        userId = UUID.randomUUID();
+        store.create("family-1", userId, "jti-1", TTL);
+    }
+
+    @Test
+    void rotate_acceptsCurrentTokenOnce() {
+        assertEquals(ROTATED, store.rotate("family-1", userId, "jti-1", "jti-2", TTL));
+        assertEquals(ROTATED, store.rotate("family-1", userId, "jti-2", "jti-3", TTL));
+    }
+
+    @Test
+    void rotate_reuseOfOldTokenKillsFamily() {
+        store.rotate("family-1", userId, "jti-1", "jti-2", TTL);
+
+        assertEquals(REUSED, store.rotate("family-1", userId, "jti-1", "jti-x", TTL));
+        // the legitimate holder of jti-2 is signed out too
+        assertEquals(UNKNOWN, store.rotate("family-1", userId, "jti-2", "jti-3", TTL));
+    }
+
+    @Test
+    void rotate_unknownOrExpiredFamily() {
+        store.create("family-2", userId, "jti-a", -1);
+
+        assertEquals(UNKNOWN, store.rotate("missing", userId, "jti-1", "jti-2", TTL));
+        assertEquals(UNKNOWN, store.rotate("family-2", userId, "jti-a", "jti-b", TTL));
+    }
+
+    @Test
+    void rotateAndRevoke_ofAnotherUsersFamily_changeNothing() {
+        UUID otherUser = UUID.randomUUID();
+
+        assertEquals(UNKNOWN, store.rotate("family-1", otherUser, "jti-1", "jti-2", TTL));
+        store.revokeFamily("family-1", otherUser);
+
+        assertEquals(ROTATED, store.rotate("family-1", userId, "jti-1", "jti-2", TTL));
+    }
+
+    @Test
+    void revokeFamily_onlyAffectsThatFamily() {
+        store.create("family-2", userId, "jti-a", TTL);
+
+        store.revokeFamily("family-1", userId);
+
+        assertEquals(UNKNOWN, store.rotate("family-1", userId, "jti-1", "jti-2", TTL));
+        assertEquals(ROTATED, store.rotate("family-2", userId, "jti-a", "jti-b", TTL));
+    }
+
+    @Test
+    void revokeAllForUser_signsOutEveryDevice() {
+        UUID otherUser = UUID.randomUUID();
+        store.create("family-2", userId, "jti-a", TTL);
+        store.create("family-3", otherUser, "jti-z", TTL);
+
+        store.revokeAllForUser(userId);
+
+        assertEquals(UNKNOWN, store.rotate("family-1", userId, "jti-1", "jti-2", TTL));
+        assertEquals(UNKNOWN, store.rotate("family-2", userId, "jti-a", "jti-b", TTL));
+        assertEquals(ROTATED, store.rotate("family-3", otherUser, "jti-z", "jti-y", TTL));
+    }
+
+    @Test
+    void claimLegacy_succeedsOncePerToken() {
+        assertTrue(store.claimLegacy(userId, "legacy-1", TTL));
+        assertFalse(store.claimLegacy(userId, "legacy-1", TTL));
+        assertTrue(store.claimLegacy(userId, "legacy-2", TTL));
+    }
+
+    @Test
+    void purgeExpired_dropsExpiredFamiliesAndClaimsOnly() {
+        store.create("family-2", userId, "jti-a", -1);
+        store.claimLegacy(userId, "legacy-1", -1);
+        store.claimLegacy(userId, "legacy-2", TTL);
+
+        store.purgeExpired();
+
+        assertEquals(UNKNOWN, store.rotate("family-2", userId, "jti-a", "jti-b", TTL));
+        assertEquals(ROTATED, store.rotate("family-1", userId, "jti-1", "jti-2", TTL));
+        // an expired claim is gone, its token could not be validated anyway
+        assertTrue(store.claimLegacy(userId, "legacy-1", TTL));
+        assertFalse(store.claimLegacy(userId, "legacy-2", TTL));
+    }
+}
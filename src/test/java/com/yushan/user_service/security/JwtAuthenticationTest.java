@@ -317,7 +317,7 @@ public class JwtAuthenticationTest {
         mockMvc.perform(post("/api/v1/auth/logout")
                 .header("Authorization", "Bearer " + testUserToken))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.message").value("JWT tokens are stateless and cannot be invalidated server-side. Client should discard tokens."))
+                .andExpect(jsonPath("$.message").value("Logged out successfully"))
                 .andExpect(jsonPath("$.timestamp").exists());
     }
 
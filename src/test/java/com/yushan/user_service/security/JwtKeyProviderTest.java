@@ -0,0 +1,137 @@
+package com.yushan.user_service.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyProviderTest {
+
+    private static final String SECRET = "unit-test-secret-key-for-jwt-key-provider-0123456789";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void hs256_signsWithSecretAndPublishesNoKeys() throws Exception {
+        JwtKeyProvider provider = new JwtKeyProvider("HS256", SECRET, "", "", "", "", "");
+
+        String token = provider.sign(Jwts.builder().subject("reader")).compact();
+        Jws<Claims> jws = provider.buildParser().parseSignedClaims(token);
+
+        assertEquals("reader", jws.getPayload().getSubject());
+        assertNull(jws.getHeader().getKeyId());
+        assertEquals(0, objectMapper.readTree(provider.getJwksJson()).get("keys").size());
+    }
+
+    @Test
+    void hs256_requiresSecret() {
+        assertThrows(IllegalStateException.class, () -> new JwtKeyProvider("HS256", "", "", "", "", "", ""));
+    }
+
+    @Test
+    void es256_withoutConfiguredKeys_usesEphemeralKeyWithKid() throws Exception {
+        JwtKeyProvider provider = new JwtKeyProvider("ES256", "", "", "", "", "", "");
+
+        String token = provider.sign(Jwts.builder().subject("reader")).compact();
+        Jws<Claims> jws = provider.buildParser().parseSignedClaims(token);
+
+        assertEquals("ES256", jws.getHeader().getAlgorithm());
+        assertEquals(provider.getActiveKeyId(), jws.getHeader().getKeyId());
+
+        JsonNode key = objectMapper.readTree(provider.getJwksJson()).get("keys").get(0);
+        assertEquals("EC", key.get("kty").asText());
+        assertEquals("P-256", key.get("crv").asText());
+        assertEquals(provider.getActiveKeyId(), key.get("kid").asText());
+        assertNull(key.get("d"), "private key material must not be published");
+    }
+
+    @Test
+    void eddsa_rotation_keepsTokensFromRetiredKeyValid() throws Exception {
+        KeyPair oldPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        KeyPair newPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+
+        JwtKeyProvider oldProvider = new JwtKeyProvider("EdDSA", "", "k1",
+                encode(oldPair.getPrivate().getEncoded()), encode(oldPair.getPublic().getEncoded()), "", "");
+        JwtKeyProvider newProvider = new JwtKeyProvider("EdDSA", "", "k2",
+                encode(newPair.getPrivate().getEncoded()), encode(newPair.getPublic().getEncoded()),
+                "k1:" + encode(oldPair.getPublic().getEncoded()), "");
+
+        String oldToken = oldProvider.sign(Jwts.builder().subject("reader")).compact();
+        String newToken = newProvider.sign(Jwts.builder().subject("writer")).compact();
+
+        assertEquals("reader", newProvider.buildParser().parseSignedClaims(oldToken).getPayload().getSubject());
+        assertEquals("writer", newProvider.buildParser().parseSignedClaims(newToken).getPayload().getSubject());
+        assertThrows(JwtException.class, () -> oldProvider.buildParser().parseSignedClaims(newToken));
+
+        JsonNode keys = objectMapper.readTree(newProvider.getJwksJson()).get("keys");
+        assertEquals(2, keys.size());
+        assertEquals("OKP", keys.get(0).get("kty").asText());
+        assertEquals("Ed25519", keys.get(0).get("crv").asText());
+    }
+
+    @Test
+    void es256_acceptsLegacyHmacTokensUntilTheConfiguredInstant() {
+        JwtKeyProvider legacy = new JwtKeyProvider("HS256", SECRET, "", "", "", "", "");
+        JwtKeyProvider current = new JwtKeyProvider("ES256", SECRET, "", "", "", "",
+                Instant.now().plus(Duration.ofDays(7)).toString());
+
+        String hmacToken = legacy.sign(Jwts.builder().subject("reader")).compact();
+
+        assertEquals("reader", current.buildParser().parseSignedClaims(hmacToken).getPayload().getSubject());
+    }
+
+    @Test
+    void es256_rejectsLegacyHmacTokensAfterTheConfiguredInstant() {
+        JwtKeyProvider legacy = new JwtKeyProvider("HS256", SECRET, "", "", "", "", "");
+        JwtKeyProvider current = new JwtKeyProvider("ES256", SECRET, "", "", "", "",
+                Instant.now().minus(Duration.ofMinutes(1)).toString());
+
+        String hmacToken = legacy.sign(Jwts.builder().subject("reader")).compact();
+
+        assertThrows(JwtException.class, () -> current.buildParser().parseSignedClaims(hmacToken));
+    }
+
+    @Test
+    void es256_withoutAcceptUntil_rejectsLegacyHmacTokens() {
+        JwtKeyProvider legacy = new JwtKeyProvider("HS256", SECRET, "", "", "", "", "");
+        JwtKeyProvider current = new JwtKeyProvider("ES256", SECRET, "", "", "", "", "");
+
+        String hmacToken = legacy.sign(Jwts.builder().subject("reader")).compact();
+
+        assertThrows(JwtException.class, () -> current.buildParser().parseSignedClaims(hmacToken));
+    }
+
+    @Test
+    void invalidAcceptUntil_failsFast() {
+        assertThrows(IllegalStateException.class,
+                () -> new JwtKeyProvider("ES256", SECRET, "", "", "", "", "next week"));
+    }
+
+    @Test
+    void jwksEtag_isStableForSameKeys() {
+        JwtKeyProvider provider = new JwtKeyProvider("ES256", "", "", "", "", "", "");
+
+        assertTrue(provider.getJwksEtag().startsWith("\""));
+        assertEquals(provider.getJwksEtag(), provider.getJwksEtag());
+    }
+
+    @Test
+    void unsupportedAlgorithm_failsFast() {
+        assertThrows(IllegalStateException.class, () -> new JwtKeyProvider("RS512", SECRET, "", "", "", "", ""));
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,83 @@
+package com.yushan.user_service.security;
+
+import com.yushan.user_service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        if (hasher != null) {
+            hasher.shutdown();
+        }
+    }
+
+    @Test
+    void hashAndMatches_roundTrip() {
+        hasher = new PasswordHasher(meterRegistry, 2, 8, 4, 5000, 1);
+
+        String hash = hasher.hash("password123");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(hasher.matches("password123", hash));
+        assertFalse(hasher.matches("wrong", hash));
+        assertFalse(hasher.matches("password123", null));
+        assertEquals(1, meterRegistry.get("auth.password.hash.duration").tag("operation", "hash").timer().count());
+        assertEquals(2, meterRegistry.get("auth.password.hash.duration").tag("operation", "verify").timer().count());
+    }
+
+    @Test
+    void needsRehash_comparesStoredCost() {
+        hasher = new PasswordHasher(meterRegistry, 1, 8, 10, 5000, 1);
+
+        assertFalse(hasher.needsRehash(BCrypt.hashpw("pw", BCrypt.gensalt(10))));
+        assertTrue(hasher.needsRehash(BCrypt.hashpw("pw", BCrypt.gensalt(4))));
+        assertFalse(hasher.needsRehash(null));
+        assertFalse(hasher.needsRehash("not-a-bcrypt-hash"));
+    }
+
+    @Test
+    void hashAsync_completesWithHash() throws Exception {
+        hasher = new PasswordHasher(meterRegistry, 1, 8, 4, 5000, 1);
+
+        String hash = hasher.hashAsync("password123").get(5, TimeUnit.SECONDS);
+
+        assertTrue(BCrypt.checkpw("password123", hash));
+    }
+
+    @Test
+    void saturatedPool_rejectsWithServiceUnavailable() {
+        // one worker and one queue slot, both taken by slow hashes
+        hasher = new PasswordHasher(meterRegistry, 1, 1, 13, 5000, 7);
+        CompletableFuture<String> running = hasher.hashAsync("first");
+        CompletableFuture<String> queued = hasher.hashAsync("second");
+
+        ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class,
+                () -> hasher.matches("third", "$2a$04$abcdefghijklmnopqrstuu"));
+
+        assertEquals(7, ex.getRetryAfterSeconds());
+        assertTrue(hasher.hashAsync("fourth").isCompletedExceptionally());
+        assertEquals(2.0, meterRegistry.get("auth.password.hash.rejected").counter().count());
+        running.cancel(true);
+        queued.cancel(true);
+    }
+
+    @Test
+    void slowHash_timesOutWithServiceUnavailable() {
+        hasher = new PasswordHasher(meterRegistry, 1, 4, 14, 1, 1);
+
+        assertThrows(ServiceUnavailableException.class, () -> hasher.hash("password123"));
+    }
+}
@@ -31,6 +31,12 @@ class AdminServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
     @InjectMocks
     private AdminService adminService;
 
@@ -91,6 +97,22 @@ class AdminServiceTest {
                     user.getUuid().equals(testUserUuid) &&
                             user.getStatus().equals(UserStatus.BANNED.ordinal())
             ));
+            verify(tokenRevocationService).revokeAllForUser(testUserUuid);
+            verify(userProfileCache).invalidate(testUserUuid);
+        }
+
+        @Test
+        @DisplayName("Should only invalidate the cached profile when reinstating a user")
+        void shouldEvictWithoutRevokingWhenReinstating() {
+            // Given
+            when(userMapper.selectByPrimaryKey(testUserUuid)).thenReturn(testUser);
+
+            // When
+            adminService.updateUserStatus(testUserUuid, UserStatus.NORMAL);
+
+            // Then
+            verify(userProfileCache).invalidate(testUserUuid);
+            verify(tokenRevocationService, never()).revokeAllForUser(any());
         }
 
         @Test
@@ -7,8 +7,14 @@ import com.yushan.user_service.dto.UserRegistrationRequestDTO;
 import com.yushan.user_service.entity.Library;
 import com.yushan.user_service.entity.User;
 import com.yushan.user_service.enums.Gender;
+import com.yushan.user_service.enums.RegistrationResult;
+import com.yushan.user_service.enums.UserStatus;
 import com.yushan.user_service.event.UserEventProducer;
+import com.yushan.user_service.event.dto.UserLoggedInEvent;
 import com.yushan.user_service.exception.ValidationException;
+import com.yushan.user_service.security.PasswordHasher;
+import com.yushan.user_service.security.RefreshTokenStore;
+import com.yushan.user_service.util.JwtClaims;
 import com.yushan.user_service.util.JwtUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,10 +22,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
 import java.util.Date;
 import java.util.UUID;
 
@@ -44,6 +53,21 @@ public class AuthServiceTest {
     @Mock
     private UserEventProducer userEventProducer;
 
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @Mock
+    private LoginSideEffectPipeline loginSideEffectPipeline;
+
+    @Spy
+    private PasswordHasher passwordHasher = new PasswordHasher(new SimpleMeterRegistry(), 2, 16, 10, 5000, 1);
+
     @InjectMocks
     private AuthService authService;
 
@@ -57,6 +81,8 @@ public class AuthServiceTest {
     void setUp() {
         // 使用 ReflectionTestUtils 设置 @Value 注入的字段
         ReflectionTestUtils.setField(authService, "accessTokenExpiration", 3600L);
+        ReflectionTestUtils.setField(authService, "refreshTokenExpiration", 86400000L);
+        ReflectionTestUtils.setField(authService, "singleStatementRegistration", true);
 
         userUuid = UUID.randomUUID();
         userEmail = "test@example.com";
@@ -86,14 +112,15 @@ public class AuthServiceTest {
     @Test
     void register_Success() {
         // Given
-        when(userMapper.selectByEmail(userEmail)).thenReturn(null);
+        when(userMapper.insertWithLibrary(any(User.class), any(UUID.class))).thenReturn(RegistrationResult.REGISTERED);
 
         // When
         User registeredUser = authService.register(registrationDTO);
 
         // Then
         ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
-        verify(userMapper).insert(userCaptor.capture());
+        ArgumentCaptor<UUID> libraryCaptor = ArgumentCaptor.forClass(UUID.class);
+        verify(userMapper).insertWithLibrary(userCaptor.capture(), libraryCaptor.capture());
         User capturedUser = userCaptor.getValue();
 
         assertThat(capturedUser.getEmail()).isEqualTo(registrationDTO.getEmail());
@@ -101,11 +128,13 @@ public class AuthServiceTest {
         assertThat(BCrypt.checkpw(userPassword, capturedUser.getHashPassword())).isTrue();
         assertThat(capturedUser.getGender()).isEqualTo(Gender.MALE.getCode());
         assertThat(capturedUser.getAvatarUrl()).isEqualTo(Gender.MALE.getAvatarUrl());
+        // the statement stores these timestamps, so the returned user matches the row
+        assertThat(capturedUser.getCreateTime()).isNotNull();
+        assertThat(capturedUser.getLastActive()).isEqualTo(capturedUser.getCreateTime());
 
-        ArgumentCaptor<Library> libraryCaptor = ArgumentCaptor.forClass(Library.class);
-        verify(libraryMapper).insertSelective(libraryCaptor.capture());
-        Library capturedLibrary = libraryCaptor.getValue();
-        assertThat(capturedLibrary.getUserId()).isEqualTo(capturedUser.getUuid());
+        assertThat(libraryCaptor.getValue()).isNotNull().isNotEqualTo(capturedUser.getUuid());
+        verify(userMapper, never()).selectByEmail(anyString());
+        verify(userMapper, never()).insert(any(User.class));
 
         assertThat(registeredUser).isEqualTo(capturedUser);
     }
@@ -113,6 +142,37 @@ public class AuthServiceTest {
     @Test
     void register_EmailAlreadyExists_ThrowsValidationException() {
         // Given
+        when(userMapper.insertWithLibrary(any(User.class), any(UUID.class))).thenReturn(RegistrationResult.EMAIL_TAKEN);
+
+        // When & Then
+        assertThatThrownBy(() -> authService.register(registrationDTO))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Email was registered");
+
+        verify(userMapper).insertWithLibrary(any(User.class), any(UUID.class));
+    }
+
+    @Test
+    void register_SeparateStatements_InsertsUserThenLibrary() {
+        // Given
+        ReflectionTestUtils.setField(authService, "singleStatementRegistration", false);
+        when(userMapper.selectByEmail(userEmail)).thenReturn(null);
+
+        // When
+        User registeredUser = authService.register(registrationDTO);
+
+        // Then
+        verify(userMapper).insert(registeredUser);
+        ArgumentCaptor<Library> libraryCaptor = ArgumentCaptor.forClass(Library.class);
+        verify(libraryMapper).insertSelective(libraryCaptor.capture());
+        assertThat(libraryCaptor.getValue().getUserId()).isEqualTo(registeredUser.getUuid());
+        verify(userMapper, never()).insertWithLibrary(any(User.class), any(UUID.class));
+    }
+
+    @Test
+    void register_SeparateStatements_EmailAlreadyExists_ThrowsValidationException() {
+        // Given
+        ReflectionTestUtils.setField(authService, "singleStatementRegistration", false);
         when(userMapper.selectByEmail(userEmail)).thenReturn(new User());
 
         // When & Then
@@ -127,20 +187,20 @@ public class AuthServiceTest {
     @Test
     void registerAndCreateResponse_Success() {
         // Given
-        when(userMapper.selectByEmail(userEmail)).thenReturn(null);
+        when(userMapper.insertWithLibrary(any(User.class), any(UUID.class))).thenReturn(RegistrationResult.REGISTERED);
         when(jwtUtil.generateAccessToken(any(User.class))).thenReturn("fake-access-token");
-        when(jwtUtil.generateRefreshToken(any(User.class))).thenReturn("fake-refresh-token");
+        when(jwtUtil.generateRefreshToken(any(User.class), anyString(), anyString())).thenReturn("fake-refresh-token");
         doNothing().when(userEventProducer).sendUserRegisteredEvent(any());
 
         // When
         UserAuthResponseDTO response = authService.registerAndCreateResponse(registrationDTO);
 
         // Then
-        verify(userMapper).insert(any(User.class));
-        verify(libraryMapper).insertSelective(any(Library.class));
+        verify(userMapper).insertWithLibrary(any(User.class), any(UUID.class));
         verify(userEventProducer).sendUserRegisteredEvent(any());
         verify(jwtUtil).generateAccessToken(any(User.class));
-        verify(jwtUtil).generateRefreshToken(any(User.class));
+        verify(jwtUtil).generateRefreshToken(any(User.class), anyString(), anyString());
+        verify(refreshTokenStore).create(anyString(), any(UUID.class), anyString(), eq(86400000L));
 
         assertThat(response).isNotNull();
         assertThat(response.getEmail()).isEqualTo(userEmail);
@@ -160,6 +220,24 @@ public class AuthServiceTest {
 
         // Then
         assertThat(loggedInUser).isEqualTo(testUser);
+        verify(userMapper, never()).updatePasswordHash(any(), anyString(), anyString());
+    }
+
+    @Test
+    void login_OutdatedHashCost_RehashesInBackground() {
+        // Given
+        String outdatedHash = BCrypt.hashpw(userPassword, BCrypt.gensalt(4));
+        testUser.setHashPassword(outdatedHash);
+        when(userMapper.selectByEmail(userEmail)).thenReturn(testUser);
+
+        // When
+        authService.login(userEmail, userPassword);
+
+        // Then: only replaces the hash it verified, not one set by a concurrent password change
+        ArgumentCaptor<String> hashCaptor = ArgumentCaptor.forClass(String.class);
+        verify(userMapper, timeout(5000)).updatePasswordHash(eq(userUuid), eq(outdatedHash), hashCaptor.capture());
+        assertThat(hashCaptor.getValue()).startsWith("$2a$10$");
+        assertThat(BCrypt.checkpw(userPassword, hashCaptor.getValue())).isTrue();
     }
 
     @Test
@@ -189,15 +267,17 @@ public class AuthServiceTest {
         // Given
         when(userMapper.selectByEmail(userEmail)).thenReturn(testUser);
         when(jwtUtil.generateAccessToken(testUser)).thenReturn("new-access-token");
-        when(jwtUtil.generateRefreshToken(testUser)).thenReturn("new-refresh-token");
-        doNothing().when(userEventProducer).sendUserLoggedInEvent(any());
+        when(jwtUtil.generateRefreshToken(eq(testUser), anyString(), anyString())).thenReturn("new-refresh-token");
 
         // When
         UserAuthResponseDTO response = authService.loginAndCreateResponse(userEmail, userPassword);
 
         // Then
-        verify(userEventProducer).sendUserLoggedInEvent(any());
-        verify(userMapper).updateByPrimaryKeySelective(any(User.class));
+        ArgumentCaptor<UserLoggedInEvent> eventCaptor = ArgumentCaptor.forClass(UserLoggedInEvent.class);
+        verify(loginSideEffectPipeline).submit(eventCaptor.capture(), any(Date.class));
+        assertThat(eventCaptor.getValue().uuid()).isEqualTo(userUuid);
+        verify(userEventProducer, never()).sendUserLoggedInEvent(any());
+        verify(userMapper, never()).updateByPrimaryKeySelective(any(User.class));
 
         assertThat(response).isNotNull();
         assertThat(response.getUuid()).isEqualTo(userUuid.toString());
@@ -209,13 +289,15 @@ public class AuthServiceTest {
     void refreshToken_Success() {
         // Given
         String refreshToken = "valid-refresh-token";
-        when(jwtUtil.validateToken(refreshToken)).thenReturn(true);
-        when(jwtUtil.isRefreshToken(refreshToken)).thenReturn(true);
-        when(jwtUtil.extractEmail(refreshToken)).thenReturn(userEmail);
-        when(jwtUtil.extractUserId(refreshToken)).thenReturn(userUuid.toString());
-        when(userMapper.selectByEmail(userEmail)).thenReturn(testUser);
+        JwtClaims claims = claims("refresh", userUuid.toString());
+        when(jwtUtil.parseAndValidate(refreshToken)).thenReturn(claims);
+        when(refreshTokenStore.rotate(eq("family-1"), eq(userUuid), eq(claims.jti()), anyString(), eq(86400000L)))
+                .thenReturn(RefreshTokenStore.RotationResult.ROTATED);
+        when(userMapper.selectAuthPrincipalByUuid(userUuid)).thenReturn(principal(testUser));
+        when(userProfileCache.get(userUuid)).thenReturn(testUser);
         when(jwtUtil.generateAccessToken(testUser)).thenReturn("new-access-token-from-refresh");
-        when(jwtUtil.generateRefreshToken(testUser)).thenReturn("new-refresh-token-from-refresh");
+        when(jwtUtil.generateRefreshToken(eq(testUser), eq("family-1"), anyString()))
+                .thenReturn("new-refresh-token-from-refresh");
 
         // When
         UserAuthResponseDTO response = authService.refreshToken(refreshToken);
@@ -225,13 +307,18 @@ public class AuthServiceTest {
         assertThat(response.getAccessToken()).isEqualTo("new-access-token-from-refresh");
         assertThat(response.getRefreshToken()).isEqualTo("new-refresh-token-from-refresh");
         assertThat(response.getUuid()).isEqualTo(userUuid.toString());
+        // profile columns come back too, not just the auth columns
+        assertThat(response.getUsername()).isEqualTo("testuser");
+        assertThat(response.getAvatarUrl()).isEqualTo(Gender.MALE.getAvatarUrl());
+        assertThat(response.getCreateTime()).isNotNull();
+        verify(userMapper, never()).selectByEmail(anyString());
     }
 
     @Test
     void refreshToken_InvalidToken_ThrowsValidationException() {
         // Given
         String invalidToken = "invalid-token";
-        when(jwtUtil.validateToken(invalidToken)).thenReturn(false);
+        when(jwtUtil.parseAndValidate(invalidToken)).thenReturn(null);
 
         // When & Then
         assertThatThrownBy(() -> authService.refreshToken(invalidToken))
@@ -243,8 +330,7 @@ public class AuthServiceTest {
     void refreshToken_NotARefreshToken_ThrowsValidationException() {
         // Given
         String accessToken = "access-token";
-        when(jwtUtil.validateToken(accessToken)).thenReturn(true);
-        when(jwtUtil.isRefreshToken(accessToken)).thenReturn(false);
+        when(jwtUtil.parseAndValidate(accessToken)).thenReturn(claims("access", userUuid.toString()));
 
         // When & Then
         assertThatThrownBy(() -> authService.refreshToken(accessToken))
@@ -252,34 +338,200 @@ public class AuthServiceTest {
                 .hasMessage("Token is not a refresh token");
     }
 
+    @Test
+    void refreshToken_ReusedToken_ThrowsValidationException() {
+        // Given
+        String refreshToken = "already-rotated-token";
+        when(jwtUtil.parseAndValidate(refreshToken)).thenReturn(claims("refresh", userUuid.toString()));
+        when(refreshTokenStore.rotate(eq("family-1"), eq(userUuid), anyString(), anyString(), anyLong()))
+                .thenReturn(RefreshTokenStore.RotationResult.REUSED);
+
+        // When & Then
+        assertThatThrownBy(() -> authService.refreshToken(refreshToken))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Refresh token has already been used");
+        verify(jwtUtil, never()).generateAccessToken(any());
+    }
+
+    @Test
+    void refreshToken_RevokedFamily_ThrowsValidationException() {
+        // Given
+        String refreshToken = "revoked-family-token";
+        when(jwtUtil.parseAndValidate(refreshToken)).thenReturn(claims("refresh", userUuid.toString()));
+        when(refreshTokenStore.rotate(eq("family-1"), eq(userUuid), anyString(), anyString(), anyLong()))
+                .thenReturn(RefreshTokenStore.RotationResult.UNKNOWN);
+
+        // When & Then
+        assertThatThrownBy(() -> authService.refreshToken(refreshToken))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Invalid refresh token");
+    }
+
+    @Test
+    void refreshToken_LegacyTokenWithoutFamily_StartsNewFamily() {
+        // Given
+        String refreshToken = "legacy-refresh-token";
+        JwtClaims claims = new JwtClaims(userUuid.toString(), userEmail, null, null, "refresh",
+                UUID.randomUUID().toString(), Instant.now(), Instant.now().plusSeconds(3600), null);
+        when(jwtUtil.parseAndValidate(refreshToken)).thenReturn(claims);
+        when(userMapper.selectAuthPrincipalByUuid(userUuid)).thenReturn(principal(testUser));
+        when(userProfileCache.get(userUuid)).thenReturn(testUser);
+        when(refreshTokenStore.claimLegacy(eq(userUuid), eq(claims.jti()), anyLong())).thenReturn(true);
+        when(jwtUtil.generateRefreshToken(eq(testUser), anyString(), anyString())).thenReturn("family-token");
+
+        // When
+        UserAuthResponseDTO response = authService.refreshToken(refreshToken);
+
+        // Then
+        assertThat(response.getRefreshToken()).isEqualTo("family-token");
+        verify(refreshTokenStore).create(anyString(), eq(userUuid), anyString(), eq(86400000L));
+        verify(refreshTokenStore, never()).rotate(any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void refreshToken_LegacyTokenAlreadyClaimed_ThrowsValidationException() {
+        // Given
+        String refreshToken = "legacy-refresh-token";
+        JwtClaims claims = new JwtClaims(userUuid.toString(), userEmail, null, null, "refresh",
+                UUID.randomUUID().toString(), Instant.now(), Instant.now().plusSeconds(3600), null);
+        when(jwtUtil.parseAndValidate(refreshToken)).thenReturn(claims);
+        when(refreshTokenStore.claimLegacy(eq(userUuid), eq(claims.jti()), anyLong())).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> authService.refreshToken(refreshToken))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Invalid refresh token");
+        verify(refreshTokenStore, never()).create(any(), any(), any(), anyLong());
+    }
+
     @Test
     void refreshToken_UserNotFound_ThrowsValidationException() {
         // Given
         String refreshToken = "valid-refresh-token";
-        when(jwtUtil.validateToken(refreshToken)).thenReturn(true);
-        when(jwtUtil.isRefreshToken(refreshToken)).thenReturn(true);
-        when(jwtUtil.extractEmail(refreshToken)).thenReturn(userEmail);
-        when(userMapper.selectByEmail(userEmail)).thenReturn(null);
+        when(jwtUtil.parseAndValidate(refreshToken)).thenReturn(claims("refresh", userUuid.toString()));
+        when(refreshTokenStore.rotate(eq("family-1"), eq(userUuid), anyString(), anyString(), anyLong()))
+                .thenReturn(RefreshTokenStore.RotationResult.ROTATED);
+        when(userMapper.selectAuthPrincipalByUuid(userUuid)).thenReturn(null);
 
         // When & Then
         assertThatThrownBy(() -> authService.refreshToken(refreshToken))
                 .isInstanceOf(ValidationException.class)
                 .hasMessage("User not found or token mismatch");
+        verify(refreshTokenStore).revokeFamily("family-1", userUuid);
     }
 
     @Test
     void refreshToken_TokenMismatch_ThrowsValidationException() {
         // Given
         String refreshToken = "valid-refresh-token";
-        when(jwtUtil.validateToken(refreshToken)).thenReturn(true);
-        when(jwtUtil.isRefreshToken(refreshToken)).thenReturn(true);
-        when(jwtUtil.extractEmail(refreshToken)).thenReturn(userEmail);
-        when(jwtUtil.extractUserId(refreshToken)).thenReturn(UUID.randomUUID().toString()); // Mismatched UUID
-        when(userMapper.selectByEmail(userEmail)).thenReturn(testUser);
+        testUser.setEmail("changed@example.com"); // email changed since the token was issued
+        when(jwtUtil.parseAndValidate(refreshToken)).thenReturn(claims("refresh", userUuid.toString()));
+        when(refreshTokenStore.rotate(eq("family-1"), eq(userUuid), anyString(), anyString(), anyLong()))
+                .thenReturn(RefreshTokenStore.RotationResult.ROTATED);
+        when(userMapper.selectAuthPrincipalByUuid(userUuid)).thenReturn(principal(testUser));
 
         // When & Then
         assertThatThrownBy(() -> authService.refreshToken(refreshToken))
                 .isInstanceOf(ValidationException.class)
                 .hasMessage("User not found or token mismatch");
+        verify(userProfileCache, never()).get(any());
+    }
+
+    @Test
+    void refreshToken_SuspendedInDatabase_ThrowsEvenIfCachedProfileIsNormal() {
+        // Given
+        String refreshToken = "valid-refresh-token";
+        User suspended = principal(testUser);
+        suspended.setStatus(UserStatus.SUSPENDED.getCode());
+        when(jwtUtil.parseAndValidate(refreshToken)).thenReturn(claims("refresh", userUuid.toString()));
+        when(refreshTokenStore.rotate(eq("family-1"), eq(userUuid), anyString(), anyString(), anyLong()))
+                .thenReturn(RefreshTokenStore.RotationResult.ROTATED);
+        when(userMapper.selectAuthPrincipalByUuid(userUuid)).thenReturn(suspended);
+
+        // When & Then
+        assertThatThrownBy(() -> authService.refreshToken(refreshToken))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Account is suspended. Please contact support.");
+        verify(refreshTokenStore).revokeFamily("family-1", userUuid);
+        verify(jwtUtil, never()).generateAccessToken(any());
+    }
+
+    @Test
+    void refreshToken_CachedProfileDisagreesWithDatabase_ReloadsIt() {
+        // Given
+        String refreshToken = "valid-refresh-token";
+        User staleProfile = principal(testUser);
+        staleProfile.setIsAuthor(true); // author role revoked since the profile was cached
+        when(jwtUtil.parseAndValidate(refreshToken)).thenReturn(claims("refresh", userUuid.toString()));
+        when(refreshTokenStore.rotate(eq("family-1"), eq(userUuid), anyString(), anyString(), anyLong()))
+                .thenReturn(RefreshTokenStore.RotationResult.ROTATED);
+        when(userMapper.selectAuthPrincipalByUuid(userUuid)).thenReturn(principal(testUser));
+        when(userProfileCache.get(userUuid)).thenReturn(staleProfile, testUser);
+        when(jwtUtil.generateAccessToken(testUser)).thenReturn("new-access-token-from-refresh");
+
+        // When
+        UserAuthResponseDTO response = authService.refreshToken(refreshToken);
+
+        // Then
+        assertThat(response.getAccessToken()).isEqualTo("new-access-token-from-refresh");
+        verify(userProfileCache).invalidate(userUuid);
+        verify(jwtUtil, never()).generateAccessToken(staleProfile);
+    }
+
+    @Test
+    void logout_RevokesAccessAndRefreshTokens() {
+        // Given
+        JwtClaims access = claims("access", userUuid.toString());
+        JwtClaims refresh = claims("refresh", userUuid.toString());
+        when(jwtUtil.parseAndValidate("access-token")).thenReturn(access);
+        when(jwtUtil.parseAndValidate("refresh-token")).thenReturn(refresh);
+
+        // When
+        authService.logout("access-token", "refresh-token");
+
+        // Then
+        verify(tokenRevocationService).revoke(access);
+        verify(tokenRevocationService).revoke(refresh);
+        verify(refreshTokenStore).revokeFamily("family-1", userUuid);
+    }
+
+    @Test
+    void logoutAll_RevokesEverythingForUser() {
+        // When
+        authService.logoutAll(userUuid);
+
+        // Then
+        verify(tokenRevocationService).revokeAllForUser(userUuid);
+    }
+
+    @Test
+    void logout_IgnoresInvalidTokensAndAccessTokenPassedAsRefresh() {
+        // Given
+        JwtClaims access = claims("access", userUuid.toString());
+        when(jwtUtil.parseAndValidate("access-token")).thenReturn(access);
+        when(jwtUtil.parseAndValidate(null)).thenReturn(null);
+
+        // When
+        authService.logout(null, "access-token");
+
+        // Then
+        verify(tokenRevocationService, never()).revoke(any());
+    }
+
+    private JwtClaims claims(String tokenType, String userId) {
+        Instant now = Instant.now();
+        return new JwtClaims(userId, userEmail, "USER", 0, tokenType, UUID.randomUUID().toString(),
+                now, now.plusSeconds(3600), "refresh".equals(tokenType) ? "family-1" : null);
+    }
+
+    private User principal(User user) {
+        User principal = new User();
+        principal.setUuid(user.getUuid());
+        principal.setEmail(user.getEmail());
+        principal.setUsername(user.getUsername());
+        principal.setStatus(user.getStatus());
+        principal.setIsAuthor(user.getIsAuthor());
+        principal.setIsAdmin(user.getIsAdmin());
+        return principal;
     }
 }
@@ -32,6 +32,9 @@ class AuthorServiceTest {
     @Mock
     private RedisUtil redisUtil;
 
+    @Mock
+    private UserProfileCache userProfileCache;
+
     @InjectMocks
     private AuthorService authorService;
 
@@ -78,6 +81,7 @@ class AuthorServiceTest {
         assertEquals(testEmail, result.getEmail());
         assertTrue(result.getIsAuthor());
         verify(userMapper).updateByPrimaryKeySelective(testUser);
+        verify(userProfileCache).invalidate(testUser.getUuid());
     }
 
     @Test
@@ -0,0 +1,183 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.dao.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LastActiveWriteBehindTest {
+
+    private static final long MIN_WRITE_INTERVAL_MS = 300_000L;
+
+    private UserMapper userMapper;
+    private SimpleMeterRegistry meterRegistry;
+    private LastActiveWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        meterRegistry = new SimpleMeterRegistry();
+        writeBehind = new LastActiveWriteBehind(userMapper, meterRegistry, 2, 1000, 5000, MIN_WRITE_INTERVAL_MS);
+    }
+
+    @Test
+    void flush_withNothingRecorded_skipsDatabase() {
+        writeBehind.flush();
+
+        verifyNoInteractions(userMapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_writesLatestTimePerUserInOneBatch() {
+        UUID first = UUID.fromString("f0000000-0000-0000-0000-000000000000");
+        UUID second = UUID.fromString("10000000-0000-0000-0000-000000000000");
+        Instant earlier = Instant.parse("2025-01-01T10:00:00Z");
+        Instant later = Instant.parse("2025-01-01T11:00:00Z");
+
+        writeBehind.record(Map.of(first, later, second, earlier), null);
+        writeBehind.record(Map.of(first, earlier), null);
+        writeBehind.flush();
+
+        ArgumentCaptor<Map<UUID, Date>> updates = ArgumentCaptor.forClass(Map.class);
+        verify(userMapper).updateLastActiveBatch(updates.capture());
+        assertEquals(Map.of(first, Date.from(later), second, Date.from(earlier)), updates.getValue());
+        // row lock order, as the login flush
+        assertEquals(List.of(second, first), List.copyOf(updates.getValue().keySet()));
+        assertEquals(2.0, meterRegistry.get("user.last_active.flush.size").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("user.last_active.flush.lag").timer().count());
+
+        writeBehind.flush();
+        verifyNoMoreInteractions(userMapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_holdsBackUsersWrittenWithinTheWriteInterval() {
+        UUID userId = UUID.randomUUID();
+        writeBehind.record(Map.of(userId, Instant.parse("2025-01-01T10:00:00Z")), null);
+        writeBehind.flush();
+
+        writeBehind.record(Map.of(userId, Instant.parse("2025-01-01T10:01:00Z")), null);
+        writeBehind.flush();
+
+        verify(userMapper, times(1)).updateLastActiveBatch(anyMap());
+        assertEquals(1.0, meterRegistry.get("user.last_active.pending").gauge().value());
+
+        writeBehind = new LastActiveWriteBehind(userMapper, meterRegistry, 2, 1000, 5000, 0);
+        writeBehind.record(Map.of(userId, Instant.parse("2025-01-01T10:01:00Z")), null);
+        writeBehind.flush();
+        writeBehind.record(Map.of(userId, Instant.parse("2025-01-01T10:02:00Z")), null);
+        writeBehind.flush();
+
+        ArgumentCaptor<Map<UUID, Date>> updates = ArgumentCaptor.forClass(Map.class);
+        verify(userMapper, times(3)).updateLastActiveBatch(updates.capture());
+        assertEquals(Map.of(userId, Date.from(Instant.parse("2025-01-01T10:02:00Z"))), updates.getValue());
+    }
+
+    @Test
+    void flush_runsCallbackOnceTheRecordIsFlushed() {
+        AtomicInteger acknowledged = new AtomicInteger();
+
+        writeBehind.record(Map.of(UUID.randomUUID(), Instant.now()), acknowledged::incrementAndGet);
+        assertEquals(0, acknowledged.get());
+
+        writeBehind.flush();
+        writeBehind.flush();
+        assertEquals(1, acknowledged.get());
+    }
+
+    @Test
+    void flush_runsCallbackWhenItsUsersAreHeldBack() {
+        UUID userId = UUID.randomUUID();
+        AtomicInteger acknowledged = new AtomicInteger();
+        writeBehind.record(Map.of(userId, Instant.now()), null);
+        writeBehind.flush();
+
+        writeBehind.record(Map.of(userId, Instant.now()), acknowledged::incrementAndGet);
+        writeBehind.flush();
+
+        assertEquals(1, acknowledged.get());
+        verify(userMapper, times(1)).updateLastActiveBatch(anyMap());
+    }
+
+    @Test
+    void record_beyondCapacity_dropsNewUsersButUpdatesKnownOnes() {
+        UUID known = UUID.randomUUID();
+        writeBehind.record(Map.of(known, Instant.now()), null);
+        writeBehind.record(Map.of(UUID.randomUUID(), Instant.now()), null);
+
+        writeBehind.record(Map.of(UUID.randomUUID(), Instant.now()), null);
+        writeBehind.record(Map.of(known, Instant.now().plusSeconds(1)), null);
+
+        assertEquals(1.0, meterRegistry.get("user.last_active.dropped").counter().count());
+        assertEquals(2.0, meterRegistry.get("user.last_active.pending").gauge().value());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_failure_keepsEntriesAndCallbackForNextFlush() {
+        UUID userId = UUID.randomUUID();
+        Instant activeAt = Instant.parse("2025-01-01T10:00:00Z");
+        AtomicInteger acknowledged = new AtomicInteger();
+        when(userMapper.updateLastActiveBatch(anyMap()))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(1);
+
+        writeBehind.record(Map.of(userId, activeAt), acknowledged::incrementAndGet);
+        writeBehind.flush();
+        assertEquals(0, acknowledged.get());
+        writeBehind.flush();
+
+        ArgumentCaptor<Map<UUID, Date>> updates = ArgumentCaptor.forClass(Map.class);
+        verify(userMapper, times(2)).updateLastActiveBatch(updates.capture());
+        assertEquals(Map.of(userId, Date.from(activeAt)), updates.getAllValues().get(1));
+        assertEquals(1.0, meterRegistry.get("user.last_active.flush.failed").counter().count());
+        assertEquals(1, acknowledged.get());
+    }
+
+    @Test
+    void start_flushesOnTheLastActiveThread() throws Exception {
+        LastActiveWriteBehind scheduled = new LastActiveWriteBehind(userMapper, meterRegistry, 2, 1000, 10, MIN_WRITE_INTERVAL_MS);
+        AtomicReference<String> flushThread = new AtomicReference<>();
+        when(userMapper.updateLastActiveBatch(anyMap())).thenAnswer(invocation -> {
+            flushThread.set(Thread.currentThread().getName());
+            return 1;
+        });
+
+        scheduled.start();
+        try {
+            scheduled.record(Map.of(UUID.randomUUID(), Instant.now()), null);
+            verify(userMapper, timeout(1000)).updateLastActiveBatch(anyMap());
+        } finally {
+            scheduled.shutdown();
+        }
+
+        assertEquals("last-active-flush", flushThread.get());
+    }
+
+    @Test
+    void shutdown_writesHeldBackEntries() throws Exception {
+        UUID userId = UUID.randomUUID();
+        writeBehind.record(Map.of(userId, Instant.now()), null);
+        writeBehind.flush();
+        writeBehind.record(Map.of(userId, Instant.now().plusSeconds(60)), null);
+
+        writeBehind.shutdown();
+
+        verify(userMapper, times(2)).updateLastActiveBatch(anyMap());
+    }
+}
@@ -1,11 +1,14 @@
 package com.yushan.user_service.service;
 
+import com.yushan.user_service.client.CachingContentServiceClient;
+import com.yushan.user_service.client.ContentFanOut;
 import com.yushan.user_service.client.ContentServiceClient;
 import com.yushan.user_service.client.dto.ChapterInfoDTO;
 import com.yushan.user_service.client.dto.NovelInfoDTO;
 import com.yushan.user_service.dao.LibraryMapper;
 import com.yushan.user_service.dao.NovelLibraryMapper;
 import com.yushan.user_service.dto.ApiResponse;
+import com.yushan.user_service.dto.CursorPageResponseDTO;
 import com.yushan.user_service.dto.LibraryResponseDTO;
 import com.yushan.user_service.dto.PageResponseDTO;
 import com.yushan.user_service.entity.Library;
@@ -13,13 +16,19 @@ import com.yushan.user_service.entity.NovelLibrary;
 import com.yushan.user_service.enums.NovelStatus;
 import com.yushan.user_service.exception.ResourceNotFoundException;
 import com.yushan.user_service.exception.ValidationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -40,6 +49,12 @@ class LibraryServiceTest {
     @Mock
     private LibraryMapper libraryMapper;
 
+    @Mock
+    private NovelStatusProjection novelStatusProjection;
+
+    @Spy
+    private ContentFanOut contentFanOut = new ContentFanOut(new SimpleMeterRegistry(), 2000);
+
     @InjectMocks
     private LibraryService libraryService;
 
@@ -55,6 +70,11 @@ class LibraryServiceTest {
         return new ApiResponse<>(200, "success", data);
     }
 
+    @AfterEach
+    void tearDown() {
+        contentFanOut.shutdown();
+    }
+
     @BeforeEach
     void setUp() {
         userId = UUID.randomUUID();
@@ -95,6 +115,51 @@ class LibraryServiceTest {
 
         // Then
         verify(novelLibraryMapper).insertSelective(any(NovelLibrary.class));
+        verify(novelStatusProjection).recordIfAbsent(novelInfo);
+    }
+
+    @Test
+    void addNovelToLibrary_SingleStatement_InsertsInOneRoundTrip() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "singleStatementWrites", true);
+        when(contentServiceClient.getNovelById(novelId)).thenReturn(createApiResponse(novelInfo));
+        when(novelLibraryMapper.insertByUserId(userId, novelId, null)).thenReturn(42);
+
+        // When
+        libraryService.addNovelToLibrary(userId, novelId, null);
+
+        // Then
+        verify(novelStatusProjection).recordIfAbsent(novelInfo);
+        verify(novelLibraryMapper, never()).selectByUserIdAndNovelId(any(), any());
+        verify(novelLibraryMapper, never()).insertSelective(any());
+        verifyNoInteractions(libraryMapper);
+    }
+
+    @Test
+    void addNovelToLibrary_SingleStatement_NovelAlreadyExists() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "singleStatementWrites", true);
+        when(contentServiceClient.getNovelById(novelId)).thenReturn(createApiResponse(novelInfo));
+        when(novelLibraryMapper.insertByUserId(userId, novelId, null)).thenReturn(0);
+
+        // When & Then
+        assertThatThrownBy(() -> libraryService.addNovelToLibrary(userId, novelId, null))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("novel has existed in library");
+        verify(novelStatusProjection, never()).recordIfAbsent(any());
+    }
+
+    @Test
+    void addNovelToLibrary_SingleStatement_UserLibraryNotFound() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "singleStatementWrites", true);
+        when(contentServiceClient.getNovelById(novelId)).thenReturn(createApiResponse(novelInfo));
+        when(novelLibraryMapper.insertByUserId(userId, novelId, null)).thenReturn(null);
+
+        // When & Then
+        assertThatThrownBy(() -> libraryService.addNovelToLibrary(userId, novelId, null))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("does not have a library");
     }
 
     @Test
@@ -324,6 +389,142 @@ class LibraryServiceTest {
         assertThat(result.getTotalElements()).isEqualTo(0);
     }
 
+    @Test
+    void getUserLibrary_WithStatusProjection_JoinsInSqlWithoutListingAllNovels() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "novelStatusProjectionEnabled", true);
+        List<NovelLibrary> paginatedLibraries = Arrays.asList(
+                createNovelLibrary(1, 1),
+                createNovelLibrary(2, 2)
+        );
+        List<NovelInfoDTO> novels = Arrays.asList(
+                new NovelInfoDTO(1, "Novel 1", "Author 1", "c1.jpg", 50, "PUBLISHED"),
+                new NovelInfoDTO(2, "Novel 2", "Author 2", "c2.jpg", 60, "PUBLISHED")
+        );
+        when(novelLibraryMapper.countByUserIdAndStatus(userId, NovelStatus.PUBLISHED.getValue())).thenReturn(12L);
+        when(novelLibraryMapper.selectByUserIdAndStatusWithPagination(userId, NovelStatus.PUBLISHED.getValue(), 10, 10, "update_time", "ASC"))
+                .thenReturn(paginatedLibraries);
+        when(contentServiceClient.getNovelsByIds(Arrays.asList(1, 2))).thenReturn(createApiResponse(novels));
+        when(contentServiceClient.getChaptersByIds(anyList())).thenReturn(createApiResponse(Collections.emptyList()));
+
+        // When
+        PageResponseDTO<LibraryResponseDTO> result = libraryService.getUserLibrary(userId, 1, 10, "updateTime", "asc");
+
+        // Then
+        assertThat(result.getTotalElements()).isEqualTo(12L);
+        assertThat(result.getContent()).extracting(LibraryResponseDTO::getNovelTitle).containsExactly("Novel 1", "Novel 2");
+        verify(novelLibraryMapper, never()).selectNovelIdsByUserId(any());
+        verify(novelLibraryMapper, never()).countByUserId(any(), anyList());
+    }
+
+    @Test
+    void getUserLibrary_WithStatusProjection_NoPublishedNovels() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "novelStatusProjectionEnabled", true);
+        when(novelLibraryMapper.countByUserIdAndStatus(userId, NovelStatus.PUBLISHED.getValue())).thenReturn(0L);
+
+        // When
+        PageResponseDTO<LibraryResponseDTO> result = libraryService.getUserLibrary(userId, 0, 10, "createTime", "desc");
+
+        // Then
+        assertThat(result.getContent()).isEmpty();
+        verify(novelLibraryMapper, never()).selectByUserIdAndStatusWithPagination(any(), anyInt(), anyInt(), anyInt(), anyString(), anyString());
+        verifyNoInteractions(contentServiceClient);
+    }
+
+    // ======= getUserLibraryByCursor Tests =======
+
+    @Test
+    void getUserLibraryByCursor_FirstPage_ReturnsExactCursorWithoutCounting() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "novelStatusProjectionEnabled", true);
+        Timestamp secondCreated = Timestamp.valueOf("2024-05-01 10:00:00.123456");
+        List<NovelLibrary> rows = Arrays.asList(
+                createNovelLibrary(3, 3, new Date(secondCreated.getTime() + 1000)),
+                createNovelLibrary(2, 2, secondCreated),
+                createNovelLibrary(1, 1, new Date(secondCreated.getTime() - 1000)));
+        // the page query returns the sort value untruncated next to the millisecond entity fields
+        rows.get(1).setSortValue(secondCreated.toInstant());
+        when(novelLibraryMapper.selectByUserIdAndStatusAfter(userId, NovelStatus.PUBLISHED.getValue(), null, null, 3, "create_time", "DESC"))
+                .thenReturn(rows);
+        when(contentServiceClient.getNovelsByIds(Arrays.asList(3, 2))).thenReturn(createApiResponse(Collections.emptyList()));
+        when(contentServiceClient.getChaptersByIds(anyList())).thenReturn(createApiResponse(Collections.emptyList()));
+
+        // When
+        CursorPageResponseDTO<LibraryResponseDTO> result = libraryService.getUserLibraryByCursor(userId, "", 2, "createTime", "desc", false);
+
+        // Then
+        assertThat(result.getContent()).extracting(LibraryResponseDTO::getId).containsExactly(3, 2);
+        assertThat(result.isHasNext()).isTrue();
+        assertThat(result.getTotalElements()).isNull();
+        LibraryCursor next = LibraryCursor.decode(result.getNextCursor());
+        assertThat(next.id()).isEqualTo(2);
+        assertThat(next.sortValue()).isEqualTo(secondCreated.toInstant());
+        verify(novelLibraryMapper, never()).countByUserIdAndStatus(any(), anyInt());
+    }
+
+    @Test
+    void getUserLibraryByCursor_NextPage_SeeksAfterCursorAndCounts() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "novelStatusProjectionEnabled", true);
+        Timestamp after = Timestamp.valueOf("2024-05-01 10:00:00.123456");
+        String cursor = new LibraryCursor("update_time", "ASC", after.toInstant(), 7).encode();
+        when(novelLibraryMapper.countByUserIdAndStatus(userId, NovelStatus.PUBLISHED.getValue())).thenReturn(8L);
+        when(novelLibraryMapper.selectByUserIdAndStatusAfter(userId, NovelStatus.PUBLISHED.getValue(), after, 7, 11, "update_time", "ASC"))
+                .thenReturn(List.of(createNovelLibrary(8, 8)));
+        when(contentServiceClient.getNovelsByIds(List.of(8))).thenReturn(createApiResponse(Collections.emptyList()));
+        when(contentServiceClient.getChaptersByIds(anyList())).thenReturn(createApiResponse(Collections.emptyList()));
+
+        // When
+        CursorPageResponseDTO<LibraryResponseDTO> result = libraryService.getUserLibraryByCursor(userId, cursor, 10, "updateTime", "asc", true);
+
+        // Then
+        assertThat(result.getContent()).extracting(LibraryResponseDTO::getId).containsExactly(8);
+        assertThat(result.isHasNext()).isFalse();
+        assertThat(result.getNextCursor()).isNull();
+        assertThat(result.getTotalElements()).isEqualTo(8L);
+    }
+
+    @Test
+    void getUserLibraryByCursor_EntryWithoutSortValue_RoundTripsCursorWithoutValue() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "novelStatusProjectionEnabled", true);
+        when(novelLibraryMapper.selectByUserIdAndStatusAfter(userId, NovelStatus.PUBLISHED.getValue(), null, null, 2, "create_time", "DESC"))
+                .thenReturn(Arrays.asList(createNovelLibrary(5, 5, null), createNovelLibrary(4, 4, null)));
+        when(novelLibraryMapper.selectByUserIdAndStatusAfter(userId, NovelStatus.PUBLISHED.getValue(), null, 5, 2, "create_time", "DESC"))
+                .thenReturn(List.of(createNovelLibrary(4, 4, null)));
+        when(contentServiceClient.getNovelsByIds(anyList())).thenReturn(createApiResponse(Collections.emptyList()));
+        when(contentServiceClient.getChaptersByIds(anyList())).thenReturn(createApiResponse(Collections.emptyList()));
+
+        // When
+        CursorPageResponseDTO<LibraryResponseDTO> first = libraryService.getUserLibraryByCursor(userId, "", 1, "createTime", "desc", false);
+        CursorPageResponseDTO<LibraryResponseDTO> second = libraryService.getUserLibraryByCursor(userId, first.getNextCursor(), 1, "createTime", "desc", false);
+
+        // Then
+        LibraryCursor next = LibraryCursor.decode(first.getNextCursor());
+        assertThat(next.sortValue()).isNull();
+        assertThat(next.id()).isEqualTo(5);
+        assertThat(second.getContent()).extracting(LibraryResponseDTO::getId).containsExactly(4);
+        assertThat(second.isHasNext()).isFalse();
+    }
+
+    @Test
+    void getUserLibraryByCursor_CursorForOtherSort_ThrowsValidationException() {
+        String cursor = new LibraryCursor("create_time", "DESC", Instant.now(), 1).encode();
+
+        assertThatThrownBy(() -> libraryService.getUserLibraryByCursor(userId, cursor, 10, "updateTime", "desc", false))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("different sort order");
+        verifyNoInteractions(novelLibraryMapper);
+    }
+
+    @Test
+    void getUserLibraryByCursor_MalformedCursor_ThrowsValidationException() {
+        assertThatThrownBy(() -> libraryService.getUserLibraryByCursor(userId, "not-a-cursor", 10, "createTime", "desc", false))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("Invalid library cursor");
+    }
+
     // ======= updateReadingProgress Tests =======
 
     @Test
@@ -344,6 +545,42 @@ class LibraryServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getNovelId()).isEqualTo(novelId);
         assertThat(result.getProgress()).isEqualTo(chapterId);
+        // metadata fetched for validation is reused for the response
+        verify(contentServiceClient).getNovelById(novelId);
+        verify(contentServiceClient).getChaptersByIds(Collections.singletonList(chapterId));
+    }
+
+    @Test
+    void updateReadingProgress_SingleStatement_UpdatesInOneRoundTrip() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "singleStatementWrites", true);
+        when(contentServiceClient.getNovelById(novelId)).thenReturn(createApiResponse(novelInfo));
+        when(contentServiceClient.getChaptersByIds(Collections.singletonList(chapterId)))
+                .thenReturn(createApiResponse(Collections.singletonList(chapterInfo)));
+        when(novelLibraryMapper.updateProgressByUserIdAndNovelId(userId, novelId, chapterId)).thenReturn(novelLibrary);
+
+        // When
+        LibraryResponseDTO result = libraryService.updateReadingProgress(userId, novelId, chapterId);
+
+        // Then
+        assertThat(result.getProgress()).isEqualTo(chapterId);
+        verify(novelLibraryMapper, never()).selectByUserIdAndNovelId(any(), any());
+        verify(novelLibraryMapper, never()).updateByPrimaryKeySelective(any());
+    }
+
+    @Test
+    void updateReadingProgress_SingleStatement_NovelNotInLibrary() {
+        // Given
+        ReflectionTestUtils.setField(libraryService, "singleStatementWrites", true);
+        when(contentServiceClient.getNovelById(novelId)).thenReturn(createApiResponse(novelInfo));
+        when(contentServiceClient.getChaptersByIds(Collections.singletonList(chapterId)))
+                .thenReturn(createApiResponse(Collections.singletonList(chapterInfo)));
+        when(novelLibraryMapper.updateProgressByUserIdAndNovelId(userId, novelId, chapterId)).thenReturn(null);
+
+        // When & Then
+        assertThatThrownBy(() -> libraryService.updateReadingProgress(userId, novelId, chapterId))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("novel don't exist in library");
     }
 
     @Test
@@ -390,6 +627,25 @@ class LibraryServiceTest {
         assertThat(result.getNovelId()).isEqualTo(novelId);
         assertThat(result.getProgress()).isEqualTo(chapterId);
         assertThat(result.getNovelTitle()).isEqualTo("Test Novel");
+        assertThat(result.isStale()).isFalse();
+    }
+
+    @Test
+    void getNovel_StaleChapterMetadata_MarksResultStale() {
+        // Given
+        when(novelLibraryMapper.selectByUserIdAndNovelId(userId, novelId))
+                .thenReturn(novelLibrary);
+        when(contentServiceClient.getNovelById(novelId))
+                .thenReturn(createApiResponse(novelInfo));
+        when(contentServiceClient.getChaptersByIds(Collections.singletonList(chapterId)))
+                .thenReturn(ApiResponse.success(CachingContentServiceClient.STALE_MESSAGE, Collections.singletonList(chapterInfo)));
+
+        // When
+        LibraryResponseDTO result = libraryService.getNovel(userId, novelId);
+
+        // Then
+        assertThat(result.isStale()).isTrue();
+        assertThat(result.getNovelTitle()).isEqualTo("Test Novel");
     }
 
     @Test
@@ -514,6 +770,12 @@ class LibraryServiceTest {
 
     // ======= Helper Methods =======
 
+    private NovelLibrary createNovelLibrary(Integer id, Integer novelId, Date createTime) {
+        NovelLibrary lib = createNovelLibrary(id, novelId);
+        lib.setCreateTime(createTime);
+        return lib;
+    }
+
     private NovelLibrary createNovelLibrary(Integer id, Integer novelId) {
         NovelLibrary lib = new NovelLibrary();
         lib.setId(id);
@@ -0,0 +1,124 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.dao.UserMapper;
+import com.yushan.user_service.event.UserEventProducer;
+import com.yushan.user_service.event.dto.UserLoggedInEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoginSideEffectPipelineTest {
+
+    private UserMapper userMapper;
+    private UserEventProducer userEventProducer;
+    private SimpleMeterRegistry meterRegistry;
+    private LoginSideEffectPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        userEventProducer = mock(UserEventProducer.class);
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new LoginSideEffectPipeline(userMapper, userEventProducer, meterRegistry, 3, 200, 500);
+    }
+
+    @Test
+    void flush_withNothingQueued_doesNothing() {
+        pipeline.flush();
+
+        verifyNoInteractions(userMapper, userEventProducer);
+    }
+
+    @Test
+    void flush_singleLogin_usesNarrowUpdate() {
+        UUID userId = UUID.randomUUID();
+        Date loginTime = new Date();
+
+        pipeline.submit(event(userId), loginTime);
+        pipeline.flush();
+
+        verify(userMapper).touchLogin(userId, loginTime);
+        verify(userMapper, never()).touchLogins(anyMap());
+        verify(userEventProducer).sendUserLoggedInEvent(any(UserLoggedInEvent.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_coalescesLoginsPerUserIntoOneUpdate() {
+        // UUID.compareTo puts first before second, Postgres the other way round
+        UUID first = UUID.fromString("f0000000-0000-0000-0000-000000000000");
+        UUID second = UUID.fromString("10000000-0000-0000-0000-000000000000");
+        Date earlier = new Date(1_000L);
+        Date later = new Date(2_000L);
+
+        pipeline.submit(event(first), later);
+        pipeline.submit(event(first), earlier);
+        pipeline.submit(event(second), earlier);
+        pipeline.flush();
+
+        ArgumentCaptor<Map<UUID, Date>> batch = ArgumentCaptor.forClass(Map.class);
+        verify(userMapper).touchLogins(batch.capture());
+        assertEquals(Map.of(first, later, second, earlier), batch.getValue());
+        assertEquals(List.of(second, first), List.copyOf(batch.getValue().keySet()));
+        verify(userEventProducer, times(3)).sendUserLoggedInEvent(any(UserLoggedInEvent.class));
+
+        pipeline.flush();
+        verifyNoMoreInteractions(userMapper);
+    }
+
+    @Test
+    void submit_whenQueueIsFull_dropsAndCounts() {
+        for (int i = 0; i < 4; i++) {
+            pipeline.submit(event(UUID.randomUUID()), new Date());
+        }
+
+        assertEquals(1.0, meterRegistry.get("auth.login.side_effects.dropped").counter().count());
+        pipeline.flush();
+        verify(userEventProducer, times(3)).sendUserLoggedInEvent(any(UserLoggedInEvent.class));
+    }
+
+    @Test
+    void flush_whenUpdateFails_stillPublishesEvents() {
+        doThrow(new RuntimeException("db down")).when(userMapper).touchLogin(any(), any());
+
+        pipeline.submit(event(UUID.randomUUID()), new Date());
+        pipeline.flush();
+
+        verify(userEventProducer).sendUserLoggedInEvent(any(UserLoggedInEvent.class));
+    }
+
+    @Test
+    void start_flushesOnTheLoginSideEffectThread() throws Exception {
+        LoginSideEffectPipeline scheduled = new LoginSideEffectPipeline(userMapper, userEventProducer, meterRegistry, 3, 10, 500);
+        AtomicReference<String> flushThread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            flushThread.set(Thread.currentThread().getName());
+            return null;
+        }).when(userEventProducer).sendUserLoggedInEvent(any(UserLoggedInEvent.class));
+
+        scheduled.start();
+        try {
+            scheduled.submit(event(UUID.randomUUID()), new Date());
+            verify(userEventProducer, timeout(1000)).sendUserLoggedInEvent(any(UserLoggedInEvent.class));
+        } finally {
+            scheduled.shutdown();
+        }
+
+        assertEquals("login-side-effects", flushThread.get());
+    }
+
+    private UserLoggedInEvent event(UUID userId) {
+        return new UserLoggedInEvent(userId, "reader", "reader@example.com", new Date(), new Date(), new Date(), new Date());
+    }
+}
@@ -0,0 +1,118 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.dao.NovelLibraryMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class NovelLibraryUserIdBackfillTest {
+
+    private NovelLibraryMapper novelLibraryMapper;
+
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private NovelLibraryUserIdBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        novelLibraryMapper = mock(NovelLibraryMapper.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        backfill = new NovelLibraryUserIdBackfill(novelLibraryMapper, transactionManager, meterRegistry, true, 100, 200);
+    }
+
+    @Test
+    void backfill_walksBatchesFromTheSharedCursorUntilNoneIsLeft() {
+        when(novelLibraryMapper.lockUserIdBackfillCursor()).thenReturn(0, 250, 420);
+        when(novelLibraryMapper.backfillUserIds(0, 100)).thenReturn(250);
+        when(novelLibraryMapper.backfillUserIds(250, 100)).thenReturn(420);
+        when(novelLibraryMapper.backfillUserIds(420, 100)).thenReturn(null);
+
+        for (int run = 0; run < 4; run++) {
+            backfill.backfill();
+        }
+
+        InOrder inOrder = inOrder(novelLibraryMapper);
+        inOrder.verify(novelLibraryMapper).backfillUserIds(0, 100);
+        inOrder.verify(novelLibraryMapper).updateUserIdBackfillCursor(250);
+        inOrder.verify(novelLibraryMapper).backfillUserIds(250, 100);
+        inOrder.verify(novelLibraryMapper).updateUserIdBackfillCursor(420);
+        inOrder.verify(novelLibraryMapper).backfillUserIds(420, 100);
+        // complete, the fourth run does nothing
+        verify(novelLibraryMapper, times(3)).lockUserIdBackfillCursor();
+        verify(novelLibraryMapper, times(2)).updateUserIdBackfillCursor(anyInt());
+        assertTrue(backfill.isComplete());
+        assertEquals(2.0, meterRegistry.counter("library.user-id.backfill.batches").count());
+    }
+
+    @Test
+    void backfill_cursorHeldByAnotherInstance_skipsTheRun() {
+        when(novelLibraryMapper.lockUserIdBackfillCursor()).thenReturn(null, 100);
+        when(novelLibraryMapper.backfillUserIds(100, 100)).thenReturn(null);
+
+        backfill.backfill();
+        verify(novelLibraryMapper, never()).backfillUserIds(anyInt(), anyInt());
+        assertFalse(backfill.isComplete());
+
+        backfill.backfill();
+        assertTrue(backfill.isComplete());
+    }
+
+    @Test
+    void backfill_failedBatch_retriesFromTheSameCursor() {
+        when(novelLibraryMapper.lockUserIdBackfillCursor()).thenReturn(100);
+        when(novelLibraryMapper.backfillUserIds(100, 100))
+                .thenThrow(new RuntimeException("lock timeout"))
+                .thenReturn(null);
+
+        backfill.backfill();
+        backfill.backfill();
+        backfill.backfill();
+
+        verify(novelLibraryMapper, times(2)).backfillUserIds(100, 100);
+        verify(novelLibraryMapper, never()).updateUserIdBackfillCursor(anyInt());
+        verify(transactionManager).rollback(any());
+        assertTrue(backfill.isComplete());
+    }
+
+    @Test
+    void backfill_disabled_doesNothing() {
+        backfill = new NovelLibraryUserIdBackfill(novelLibraryMapper, transactionManager, meterRegistry, false, 100, 200);
+
+        backfill.start();
+        backfill.backfill();
+
+        verifyNoInteractions(novelLibraryMapper);
+        assertFalse(backfill.isComplete());
+    }
+
+    @Test
+    void start_runsBackfillOnItsOwnThread() {
+        NovelLibraryUserIdBackfill scheduled =
+                new NovelLibraryUserIdBackfill(novelLibraryMapper, transactionManager, meterRegistry, true, 100, 10);
+        AtomicReference<String> backfillThread = new AtomicReference<>();
+        when(novelLibraryMapper.lockUserIdBackfillCursor()).thenAnswer(invocation -> {
+            backfillThread.set(Thread.currentThread().getName());
+            return 0;
+        });
+
+        scheduled.start();
+        try {
+            verify(novelLibraryMapper, timeout(1000).atLeastOnce()).backfillUserIds(0, 100);
+        } finally {
+            scheduled.shutdown();
+        }
+
+        assertEquals("library-user-id-backfill", backfillThread.get());
+    }
+}
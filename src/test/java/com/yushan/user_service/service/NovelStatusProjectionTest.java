@@ -0,0 +1,184 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.client.CachingContentServiceClient;
+import com.yushan.user_service.client.ContentServiceClient;
+import com.yushan.user_service.client.dto.NovelInfoDTO;
+import com.yushan.user_service.dao.NovelStatusMapper;
+import com.yushan.user_service.dto.ApiResponse;
+import com.yushan.user_service.entity.NovelStatusEntry;
+import com.yushan.user_service.enums.NovelStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.yushan.user_service.event.NovelStatusEventStandIn.event;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class NovelStatusProjectionTest {
+
+    private NovelStatusMapper novelStatusMapper;
+
+    private ContentServiceClient contentServiceClient;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private NovelStatusProjection projection;
+
+    @BeforeEach
+    void setUp() {
+        novelStatusMapper = mock(NovelStatusMapper.class);
+        contentServiceClient = mock(ContentServiceClient.class);
+        meterRegistry = new SimpleMeterRegistry();
+        projection = new NovelStatusProjection(novelStatusMapper, contentServiceClient, meterRegistry, true, 3, 10000);
+    }
+
+    @Test
+    void apply_keepsLatestEventPerNovel_andSkipsInvalidOnes() {
+        LocalDateTime earlier = LocalDateTime.of(2026, 1, 1, 10, 0);
+        LocalDateTime later = earlier.plusMinutes(1);
+
+        projection.apply(List.of(
+                event(1, "HIDDEN", later),
+                event(1, "PUBLISHED", earlier),
+                event(2, "published", earlier),
+                event(3, "NOT_A_STATUS", earlier),
+                event(4, "PUBLISHED", null)));
+
+        List<NovelStatusEntry> written = captureUpsert();
+        assertEquals(2, written.size());
+        assertEquals(NovelStatus.HIDDEN.getValue(), written.get(0).getStatus());
+        assertEquals(Timestamp.valueOf(later).getTime(), written.get(0).getUpdateTime().getTime());
+        assertEquals(NovelStatus.PUBLISHED.getValue(), written.get(1).getStatus());
+        assertEquals(2.0, meterRegistry.get("novel.status.events").tag("result", "applied").counter().count());
+        assertEquals(2.0, meterRegistry.get("novel.status.events").tag("result", "skipped").counter().count());
+    }
+
+    @Test
+    void apply_withNothingValid_writesNothing() {
+        projection.apply(List.of(event(1, null, LocalDateTime.now())));
+
+        verifyNoInteractions(novelStatusMapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordIfAbsent_insertsWithoutOverwriting() {
+        projection.recordIfAbsent(novel(7, "PUBLISHED"));
+
+        ArgumentCaptor<List<NovelStatusEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(novelStatusMapper).insertIfAbsent(entries.capture());
+        verify(novelStatusMapper, never()).upsertNewer(anyList());
+        assertEquals(7, entries.getValue().get(0).getNovelId());
+        assertEquals(NovelStatus.PUBLISHED.getValue(), entries.getValue().get(0).getStatus());
+        // fetched metadata may be stale, any event must be able to replace it
+        assertEquals(0L, entries.getValue().get(0).getUpdateTime().getTime());
+    }
+
+    @Test
+    void recordIfAbsent_withUnknownStatus_recordsNothing() {
+        projection.recordIfAbsent(novel(7, "SERIALIZING"));
+
+        verifyNoInteractions(novelStatusMapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfill_projectsFetchedNovels_andLeavesUnknownOnesUnprojected() {
+        when(novelStatusMapper.selectLibraryNovelIdsAfter(0, 3)).thenReturn(List.of(1, 2, 3));
+        when(contentServiceClient.getNovelsByIds(List.of(1, 2, 3)))
+                .thenReturn(ApiResponse.success(List.of(novel(1, "PUBLISHED"), novel(3, "SERIALIZING"))));
+
+        projection.backfill();
+
+        ArgumentCaptor<List<NovelStatusEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(novelStatusMapper).insertIfAbsent(entries.capture());
+        assertEquals(1, entries.getValue().size());
+        assertEquals(1, entries.getValue().get(0).getNovelId());
+        assertEquals(NovelStatus.PUBLISHED.getValue(), entries.getValue().get(0).getStatus());
+        assertEquals(0L, entries.getValue().get(0).getUpdateTime().getTime());
+    }
+
+    @Test
+    void backfill_walksNovelIdsInBatches_andFetchesOnlyUnprojectedOnes() {
+        when(novelStatusMapper.selectLibraryNovelIdsAfter(0, 3)).thenReturn(List.of(1, 2, 3));
+        when(novelStatusMapper.selectProjectedNovelIds(List.of(1, 2, 3))).thenReturn(List.of(1, 2, 3));
+        when(novelStatusMapper.selectLibraryNovelIdsAfter(3, 3)).thenReturn(List.of(4, 5));
+        when(novelStatusMapper.selectProjectedNovelIds(List.of(4, 5))).thenReturn(List.of(4));
+        when(contentServiceClient.getNovelsByIds(List.of(5))).thenReturn(ApiResponse.success(List.of(novel(5, "PUBLISHED"))));
+        when(novelStatusMapper.selectLibraryNovelIdsAfter(5, 3)).thenReturn(List.of());
+
+        projection.backfill();
+        verifyNoInteractions(contentServiceClient);
+        projection.backfill();
+        projection.backfill();
+        projection.backfill();
+
+        verify(novelStatusMapper).insertIfAbsent(anyList());
+        verify(novelStatusMapper, times(1)).selectLibraryNovelIdsAfter(5, 3);
+        assertEquals(1.0, meterRegistry.get("novel.status.backfilled").counter().count());
+    }
+
+    @Test
+    void backfill_whenContentServiceIsDegraded_retriesTheSameBatch() {
+        when(novelStatusMapper.selectLibraryNovelIdsAfter(0, 3)).thenReturn(List.of(1, 2));
+        when(contentServiceClient.getNovelsByIds(anyList()))
+                .thenReturn(ApiResponse.success(CachingContentServiceClient.STALE_MESSAGE, List.of(novel(1, "PUBLISHED"))));
+
+        projection.backfill();
+        projection.backfill();
+
+        verify(novelStatusMapper, never()).insertIfAbsent(anyList());
+        verify(novelStatusMapper, times(2)).selectLibraryNovelIdsAfter(0, 3);
+    }
+
+    @Test
+    void backfill_stopsOnceEveryLibraryNovelIsWalked() {
+        when(novelStatusMapper.selectLibraryNovelIdsAfter(0, 3)).thenReturn(List.of());
+
+        projection.backfill();
+        projection.backfill();
+
+        verify(novelStatusMapper, times(1)).selectLibraryNovelIdsAfter(0, 3);
+        verifyNoInteractions(contentServiceClient);
+    }
+
+    @Test
+    void start_runsBackfillOnItsOwnThread() {
+        NovelStatusProjection scheduled = new NovelStatusProjection(novelStatusMapper, contentServiceClient,
+                meterRegistry, true, 3, 10);
+        AtomicReference<String> backfillThread = new AtomicReference<>();
+        when(novelStatusMapper.selectLibraryNovelIdsAfter(0, 3)).thenAnswer(invocation -> {
+            backfillThread.set(Thread.currentThread().getName());
+            return List.of();
+        });
+
+        scheduled.start();
+        try {
+            verify(novelStatusMapper, timeout(1000)).selectLibraryNovelIdsAfter(0, 3);
+        } finally {
+            scheduled.shutdown();
+        }
+
+        assertEquals("novel-status-backfill", backfillThread.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NovelStatusEntry> captureUpsert() {
+        ArgumentCaptor<List<NovelStatusEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(novelStatusMapper).upsertNewer(entries.capture());
+        return entries.getValue().stream().sorted(Comparator.comparing(NovelStatusEntry::getNovelId)).toList();
+    }
+
+    private static NovelInfoDTO novel(int id, String status) {
+        return new NovelInfoDTO(id, "Novel " + id, "author", null, 1, status);
+    }
+}
@@ -0,0 +1,131 @@
+package com.yushan.user_service.service;
+
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.security.RefreshTokenStore;
+import com.yushan.user_service.util.JwtClaims;
+import com.yushan.user_service.util.RedisUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceTest {
+
+    private RedisUtil redisUtil;
+    private AuthPrincipalCache authPrincipalCache;
+    private RefreshTokenStore refreshTokenStore;
+    private TokenRevocationService service;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        redisUtil = mock(RedisUtil.class);
+        authPrincipalCache = mock(AuthPrincipalCache.class);
+        refreshTokenStore = mock(RefreshTokenStore.class);
+        service = new TokenRevocationService(redisUtil, authPrincipalCache, refreshTokenStore, new SimpleMeterRegistry(),
+                true, 10_000, 0.001, 604800000L);
+        userId = UUID.randomUUID();
+    }
+
+    @Test
+    void isRevoked_skipsRedisWhenFilterIsNegative() {
+        assertFalse(service.isRevoked(claims("jti-1", Instant.now())));
+
+        verifyNoInteractions(redisUtil);
+    }
+
+    @Test
+    void revoke_storesJtiWithRemainingLifetimeAndBroadcasts() {
+        JwtClaims claims = claims("jti-1", Instant.now());
+
+        service.revoke(claims);
+
+        verify(redisUtil).set(eq("revoked:jti:jti-1"), eq("1"), longThat(ttl -> ttl > 0 && ttl <= 3600_000L),
+                eq(TimeUnit.MILLISECONDS));
+        verify(redisUtil).publish(TokenRevocationService.CHANNEL, "jti:jti-1");
+
+        when(redisUtil.hasKey("revoked:jti:jti-1")).thenReturn(true);
+        assertTrue(service.isRevoked(claims));
+    }
+
+    @Test
+    void revoke_ignoresExpiredTokens() {
+        Instant past = Instant.now().minusSeconds(7200);
+        service.revoke(new JwtClaims(userId.toString(), "reader@example.com", "USER", 0, "access",
+                "jti-old", past, past.plusSeconds(60), null));
+
+        verifyNoInteractions(redisUtil);
+    }
+
+    @Test
+    void revokeAllForUser_rejectsTokensIssuedBeforeCutoff() {
+        service.revokeAllForUser(userId);
+
+        verify(authPrincipalCache).evict(userId);
+        verify(refreshTokenStore).revokeAllForUser(userId);
+        verify(redisUtil).publish(TokenRevocationService.CHANNEL, "user:" + userId);
+
+        long cutoff = System.currentTimeMillis();
+        when(redisUtil.get("revoked:user:" + userId)).thenReturn(String.valueOf(cutoff));
+
+        assertTrue(service.isRevoked(claims("jti-a", Instant.ofEpochMilli(cutoff - 60_000))));
+        assertFalse(service.isRevoked(claims("jti-b", Instant.ofEpochMilli(cutoff + 60_000))));
+    }
+
+    @Test
+    void isRevoked_failsOpenWhenRedisIsDown() {
+        JwtClaims claims = claims("jti-1", Instant.now());
+        service.revoke(claims);
+        when(redisUtil.hasKey(anyString())).thenThrow(new RuntimeException("connection refused"));
+
+        assertFalse(service.isRevoked(claims));
+    }
+
+    @Test
+    void onMessage_addsRemoteRevocationAndEvictsUser() {
+        service.onMessage(new DefaultMessage(TokenRevocationService.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                ("user:" + userId).getBytes(StandardCharsets.UTF_8)), null);
+
+        verify(authPrincipalCache).evict(userId);
+        when(redisUtil.get("revoked:user:" + userId)).thenReturn(String.valueOf(System.currentTimeMillis()));
+        assertTrue(service.isRevoked(claims("jti-1", Instant.now().minusSeconds(10))));
+    }
+
+    @Test
+    void rebuild_loadsRevocationsFromRedis() {
+        when(redisUtil.scan("revoked:*", 1000)).thenReturn(Set.of("revoked:jti:jti-9"));
+        when(redisUtil.hasKey("revoked:jti:jti-9")).thenReturn(true);
+
+        service.rebuild();
+
+        assertTrue(service.isRevoked(claims("jti-9", Instant.now())));
+    }
+
+    @Test
+    void disabled_neverTouchesRedis() {
+        TokenRevocationService disabled = new TokenRevocationService(redisUtil, authPrincipalCache,
+                refreshTokenStore, new SimpleMeterRegistry(), false, 10_000, 0.001, 604800000L);
+        JwtClaims claims = claims("jti-1", Instant.now());
+
+        disabled.revoke(claims);
+        disabled.rebuild();
+
+        assertFalse(disabled.isRevoked(claims));
+        verifyNoInteractions(redisUtil);
+    }
+
+    private JwtClaims claims(String jti, Instant issuedAt) {
+        return new JwtClaims(userId.toString(), "reader@example.com", "USER", 0, "access", jti,
+                issuedAt, issuedAt.plusSeconds(3600), null);
+    }
+}
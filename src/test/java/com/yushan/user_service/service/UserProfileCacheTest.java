@@ -0,0 +1,199 @@
+package com.yushan.user_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yushan.user_service.dao.UserMapper;
+import com.yushan.user_service.entity.User;
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.util.RedisUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserProfileCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private UserMapper userMapper;
+    private RedisUtil redisUtil;
+    private AuthPrincipalCache authPrincipalCache;
+    private SimpleMeterRegistry meterRegistry;
+    private UserProfileCache cache;
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        redisUtil = mock(RedisUtil.class);
+        authPrincipalCache = mock(AuthPrincipalCache.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new UserProfileCache(userMapper, redisUtil, authPrincipalCache, objectMapper, meterRegistry,
+                30, 1000, true, 300, 10);
+    }
+
+    @Test
+    void get_missInBothTiers_loadsFromDatabaseAndFillsBoth() throws Exception {
+        User user = user(UUID.randomUUID());
+        when(redisUtil.multiGet(anyList())).thenReturn(Arrays.asList((String) null));
+        when(userMapper.selectByPrimaryKey(user.getUuid())).thenReturn(user);
+
+        User loaded = cache.get(user.getUuid());
+        User again = cache.get(user.getUuid());
+
+        assertEquals("reader", loaded.getUsername());
+        assertNull(loaded.getHashPassword());
+        assertSame(loaded, again);
+        verify(userMapper, times(1)).selectByPrimaryKey(user.getUuid());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, String>> written = ArgumentCaptor.forClass(Map.class);
+        verify(redisUtil).multiSetIfAbsent(written.capture(), eq(300L), eq(TimeUnit.SECONDS));
+        String json = written.getValue().get("user:profile:" + user.getUuid());
+        assertFalse(json.contains("secret-hash"));
+        assertEquals(user.getEmail(), objectMapper.readValue(json, User.class).getEmail());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "user.profile.l2").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void get_redisHit_skipsDatabase() throws Exception {
+        User user = user(UUID.randomUUID());
+        user.setHashPassword(null);
+        when(redisUtil.multiGet(anyList())).thenReturn(List.of(objectMapper.writeValueAsString(user)));
+
+        User loaded = cache.get(user.getUuid());
+
+        assertEquals(user.getEmail(), loaded.getEmail());
+        verifyNoInteractions(userMapper);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "user.profile.l2").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void get_redisDown_fallsBackToDatabase() {
+        User user = user(UUID.randomUUID());
+        when(redisUtil.multiGet(anyList())).thenThrow(new RuntimeException("connection refused"));
+        when(userMapper.selectByPrimaryKey(user.getUuid())).thenReturn(user);
+
+        assertEquals(user.getEmail(), cache.get(user.getUuid()).getEmail());
+    }
+
+    @Test
+    void getAll_readsEachTierOnceForItsMisses_andKeepsRequestOrder() throws Exception {
+        User cached = user(UUID.randomUUID());
+        User inRedis = user(UUID.randomUUID());
+        User inDb = user(UUID.randomUUID());
+        when(userMapper.selectByPrimaryKey(cached.getUuid())).thenReturn(cached);
+        when(redisUtil.multiGet(anyList())).thenReturn(Arrays.asList((String) null));
+        cache.get(cached.getUuid());
+        reset(redisUtil, userMapper);
+
+        UUID unknown = UUID.randomUUID();
+        when(userMapper.selectByUuids(List.of(inDb.getUuid(), unknown))).thenReturn(List.of(inDb));
+        when(redisUtil.multiGet(anyList())).thenReturn(Arrays.asList(null, objectMapper.writeValueAsString(inRedis), null));
+
+        Map<UUID, User> result = cache.getAll(List.of(inDb.getUuid(), cached.getUuid(), inRedis.getUuid(), unknown));
+
+        assertEquals(List.of(inDb.getUuid(), cached.getUuid(), inRedis.getUuid()), new ArrayList<>(result.keySet()));
+        verify(redisUtil).multiGet(List.of("user:profile:" + inDb.getUuid(), "user:profile:" + inRedis.getUuid(),
+                "user:profile:" + unknown));
+        verify(userMapper).selectByUuids(List.of(inDb.getUuid(), unknown));
+    }
+
+    @Test
+    void invalidate_dropsBothTiersAndBroadcasts() {
+        User user = user(UUID.randomUUID());
+        when(redisUtil.multiGet(anyList())).thenReturn(Arrays.asList((String) null));
+        when(userMapper.selectByPrimaryKey(user.getUuid())).thenReturn(user);
+        cache.get(user.getUuid());
+
+        cache.invalidate(user.getUuid());
+        cache.get(user.getUuid());
+
+        verify(redisUtil).set("user:profile:" + user.getUuid(), "-", 10L, TimeUnit.SECONDS);
+        verify(redisUtil).publish(UserProfileCache.CHANNEL, user.getUuid().toString());
+        verify(authPrincipalCache).evict(user.getUuid());
+        verify(userMapper, times(2)).selectByPrimaryKey(user.getUuid());
+    }
+
+    @Test
+    void onMessage_dropsLocalCopyWithoutTouchingRedis() {
+        User user = user(UUID.randomUUID());
+        when(redisUtil.multiGet(anyList())).thenReturn(Arrays.asList((String) null));
+        when(userMapper.selectByPrimaryKey(user.getUuid())).thenReturn(user);
+        cache.get(user.getUuid());
+
+        cache.onMessage(new DefaultMessage(UserProfileCache.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                user.getUuid().toString().getBytes(StandardCharsets.UTF_8)), null);
+        cache.onMessage(new DefaultMessage(new byte[0], "garbage".getBytes(StandardCharsets.UTF_8)), null);
+
+        verify(authPrincipalCache).evict(user.getUuid());
+        verify(redisUtil, never()).set(anyString(), anyString(), anyLong(), any());
+        cache.get(user.getUuid());
+        verify(redisUtil, times(2)).multiGet(anyList());
+    }
+
+    @Test
+    void getAll_loadStartedBeforeInvalidate_doesNotCacheTheStaleCopy() {
+        User stale = user(UUID.randomUUID());
+        User fresh = user(stale.getUuid());
+        fresh.setUsername("renamed");
+        when(redisUtil.multiGet(anyList())).thenReturn(Arrays.asList((String) null));
+        // a writer commits and invalidates while this reader is still loading the old row
+        when(userMapper.selectByPrimaryKey(stale.getUuid())).thenAnswer(invocation -> {
+            cache.invalidate(stale.getUuid());
+            return stale;
+        }).thenReturn(fresh);
+
+        assertEquals("reader", cache.get(stale.getUuid()).getUsername());
+        verify(redisUtil, never()).multiSetIfAbsent(anyMap(), anyLong(), any());
+
+        assertEquals("renamed", cache.get(stale.getUuid()).getUsername());
+        verify(redisUtil).multiSetIfAbsent(anyMap(), anyLong(), any());
+    }
+
+    @Test
+    void get_tombstoneInRedis_isAMiss() {
+        User user = user(UUID.randomUUID());
+        when(redisUtil.multiGet(anyList())).thenReturn(List.of("-"));
+        when(userMapper.selectByPrimaryKey(user.getUuid())).thenReturn(user);
+
+        assertEquals(user.getEmail(), cache.get(user.getUuid()).getEmail());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "user.profile.l2").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void withL2Disabled_neverCallsRedis() {
+        UserProfileCache localOnly = new UserProfileCache(userMapper, redisUtil, authPrincipalCache, objectMapper,
+                new SimpleMeterRegistry(), 30, 1000, false, 300, 10);
+        User user = user(UUID.randomUUID());
+        when(userMapper.selectByPrimaryKey(user.getUuid())).thenReturn(user);
+
+        localOnly.get(user.getUuid());
+        localOnly.invalidate(user.getUuid());
+
+        verifyNoInteractions(redisUtil);
+        verify(authPrincipalCache).evict(user.getUuid());
+    }
+
+    private User user(UUID uuid) {
+        User user = new User();
+        user.setUuid(uuid);
+        user.setEmail(uuid + "@example.com");
+        user.setUsername("reader");
+        user.setHashPassword("secret-hash");
+        user.setGender(0);
+        user.setStatus(0);
+        return user;
+    }
+}
@@ -1,5 +1,6 @@
 package com.yushan.user_service.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yushan.user_service.dao.UserMapper;
 import com.yushan.user_service.dto.UserProfileResponseDTO;
 import com.yushan.user_service.dto.UserProfileUpdateRequestDTO;
@@ -7,13 +8,20 @@ import com.yushan.user_service.dto.UserProfileUpdateResponseDTO;
 import com.yushan.user_service.entity.User;
 import com.yushan.user_service.enums.Gender;
 import com.yushan.user_service.exception.ResourceNotFoundException;
+import com.yushan.user_service.security.AuthPrincipalCache;
+import com.yushan.user_service.util.RedisUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,12 +31,20 @@ public class UserServiceTest {
 
     private UserMapper userMapper;
     private MailService mailService;
+    private AuthPrincipalCache authPrincipalCache;
+    private LastActiveWriteBehind lastActiveWriteBehind;
+    private UserProfileCache userProfileCache;
     private UserService userService;
 
     @BeforeEach
     void setUp() {
         userMapper = Mockito.mock(UserMapper.class);
         mailService = Mockito.mock(MailService.class);
+        authPrincipalCache = Mockito.mock(AuthPrincipalCache.class);
+        lastActiveWriteBehind = Mockito.mock(LastActiveWriteBehind.class);
+        // real cache over the mocked mapper, L1 only
+        userProfileCache = new UserProfileCache(userMapper, Mockito.mock(RedisUtil.class), authPrincipalCache,
+                new ObjectMapper(), new SimpleMeterRegistry(), 30, 1000, false, 300, 10);
         userService = new UserService();
 
         // Inject mock mapper via reflection (simple without Spring context)
@@ -40,6 +56,14 @@ public class UserServiceTest {
             java.lang.reflect.Field f2 = UserService.class.getDeclaredField("mailService");
             f2.setAccessible(true);
             f2.set(userService, mailService);
+
+            java.lang.reflect.Field f3 = UserService.class.getDeclaredField("userProfileCache");
+            f3.setAccessible(true);
+            f3.set(userService, userProfileCache);
+
+            java.lang.reflect.Field f4 = UserService.class.getDeclaredField("lastActiveWriteBehind");
+            f4.setAccessible(true);
+            f4.set(userService, lastActiveWriteBehind);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -306,15 +330,14 @@ public class UserServiceTest {
     void getUsersByIds_withEmptyList_returnsEmptyList() {
         // Arrange
         List<UUID> emptyIdList = List.of();
-        when(userMapper.selectByUuids(emptyIdList)).thenReturn(List.of());
 
         // Act
         List<UserProfileResponseDTO> result = userService.getUsersByIds(emptyIdList);
 
-        // Assert
+        // Assert: nothing to look up, so no (invalid) empty IN () query
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(userMapper).selectByUuids(emptyIdList);
+        verify(userMapper, never()).selectByUuids(any());
     }
 
     @Test
@@ -343,6 +366,21 @@ public class UserServiceTest {
         assertFalse(profile.getIsAdmin());  // Should be false for normal user
     }
 
-}
-
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateLastActiveTimes_recordsBatchInWriteBehindWithoutTouchingDatabase() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        LocalDateTime lastActive = LocalDateTime.of(2025, 1, 1, 12, 0);
+        Runnable onFlushed = () -> { };
+
+        userService.updateLastActiveTimes(Map.of(first, lastActive, second, lastActive.plusMinutes(1)), onFlushed);
+
+        ArgumentCaptor<Map<UUID, Instant>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(lastActiveWriteBehind).record(captor.capture(), eq(onFlushed));
+        assertEquals(lastActive.atZone(ZoneId.systemDefault()).toInstant(), captor.getValue().get(first));
+        assertEquals(2, captor.getValue().size());
+        verifyNoInteractions(userMapper);
+    }
+}
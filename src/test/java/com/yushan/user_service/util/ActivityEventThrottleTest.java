@@ -0,0 +1,109 @@
+package com.yushan.user_service.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActivityEventThrottleTest {
+
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ActivityEventThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        throttle = new ActivityEventThrottle(meterRegistry, 60, 1024, clock::get);
+    }
+
+    @Test
+    void tryAcquire_suppressesRepeatsWithinWindow() {
+        UUID userId = UUID.randomUUID();
+
+        assertTrue(throttle.tryAcquire(userId));
+        assertFalse(throttle.tryAcquire(userId));
+        clock.addAndGet(59_000);
+        assertFalse(throttle.tryAcquire(userId));
+
+        assertEquals(1.0, counter("emitted"));
+        assertEquals(2.0, counter("suppressed"));
+    }
+
+    @Test
+    void tryAcquire_emitsAgainAfterWindow() {
+        UUID userId = UUID.randomUUID();
+        assertTrue(throttle.tryAcquire(userId));
+
+        clock.addAndGet(60_000);
+
+        assertTrue(throttle.tryAcquire(userId));
+        assertFalse(throttle.tryAcquire(userId));
+    }
+
+    @Test
+    void tryAcquire_tracksUsersIndependently() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        assertTrue(throttle.tryAcquire(first));
+        assertTrue(throttle.tryAcquire(second));
+        assertFalse(throttle.tryAcquire(first));
+        assertFalse(throttle.tryAcquire(second));
+    }
+
+    @Test
+    void tryAcquire_whenTableIsOverfilled_neverSuppressesUnseenUsers() {
+        ActivityEventThrottle small = new ActivityEventThrottle(meterRegistry, 60, 8, clock::get);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(small.tryAcquire(UUID.randomUUID()));
+        }
+    }
+
+    @Test
+    void tryAcquire_withZeroWindow_alwaysEmits() {
+        ActivityEventThrottle disabled = new ActivityEventThrottle(meterRegistry, 0, 1024, clock::get);
+        UUID userId = UUID.randomUUID();
+
+        assertTrue(disabled.tryAcquire(userId));
+        assertTrue(disabled.tryAcquire(userId));
+    }
+
+    @Test
+    void tryAcquire_concurrentCallsForSameUser_emitAtMostOncePerSlot() throws Exception {
+        UUID userId = UUID.randomUUID();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> throttle.tryAcquire(userId)));
+            }
+            int emitted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    emitted++;
+                }
+            }
+            // racing inserts may land in different ways of the bucket, never more
+            assertTrue(emitted >= 1 && emitted <= 4, "emitted " + emitted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("user.activity.events").tag("result", result).counter().count();
+    }
+}
@@ -187,4 +187,42 @@ public class JwtUtilTest {
         assertTrue(jwtUtil.validateToken(token1), "First token should be valid");
         assertTrue(jwtUtil.validateToken(token2), "Second token should be valid");
     }
+
+    @Test
+    void testParseAndValidateReadsAllClaims() {
+        testUser.setStatus(0);
+        String accessToken = jwtUtil.generateAccessToken(testUser);
+
+        JwtClaims claims = jwtUtil.parseAndValidate(accessToken);
+
+        assertNotNull(claims);
+        assertEquals(testUser.getUuid().toString(), claims.userId());
+        assertEquals(testUser.getEmail(), claims.email());
+        assertEquals("ADMIN", claims.role());
+        assertEquals(0, claims.status());
+        assertTrue(claims.isAccessToken());
+        assertFalse(claims.isRefreshToken());
+        assertNotNull(claims.jti());
+        assertTrue(claims.expiresAt().isAfter(claims.issuedAt()));
+    }
+
+    @Test
+    void testParseAndValidateRefreshToken() {
+        JwtClaims claims = jwtUtil.parseAndValidate(jwtUtil.generateRefreshToken(testUser));
+
+        assertNotNull(claims);
+        assertTrue(claims.isRefreshToken());
+        assertNull(claims.role());
+    }
+
+    @Test
+    void testParseAndValidateRejectsInvalidTokens() {
+        String accessToken = jwtUtil.generateAccessToken(testUser);
+        String tampered = accessToken.substring(0, accessToken.length() - 2) + "xx";
+
+        assertNull(jwtUtil.parseAndValidate(null));
+        assertNull(jwtUtil.parseAndValidate(""));
+        assertNull(jwtUtil.parseAndValidate("invalid.token.here"));
+        assertNull(jwtUtil.parseAndValidate(tampered));
+    }
 }
@@ -34,5 +34,22 @@ CREATE TABLE IF NOT EXISTS novel_library (
     novel_id INTEGER NOT NULL,
     progress INTEGER,
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
\ No newline at end of file
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    user_id UUID
+);
+
+CREATE TABLE IF NOT EXISTS outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    topic VARCHAR(255) NOT NULL,
+    event_key VARCHAR(255),
+    event_type VARCHAR(255),
+    payload BYTEA NOT NULL,
+    create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    published_time TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS novel_status (
+    novel_id INTEGER PRIMARY KEY,
+    status SMALLINT NOT NULL,
+    update_time TIMESTAMP NOT NULL
+);